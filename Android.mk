@@ -48,6 +48,7 @@ LOCAL_STATIC_JAVA_LIBRARIES := \
     jsr305 \
     settings-contextual-card-protos-lite \
     settings-log-bridge-protos-lite \
+    settings-performance-protos-lite \
     contextualcards \
     settings-logtags \
     zxing-core-1.7
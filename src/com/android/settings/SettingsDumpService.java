@@ -32,8 +32,12 @@ import android.telephony.TelephonyManager;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.internal.util.ArrayUtils;
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.instrumentation.LatencyTracker;
+import com.android.settings.core.instrumentation.SettingsMetricsFeatureProvider;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
+import com.android.settings.performance.PerformanceProto.SettingsPerformanceDump;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -42,6 +46,8 @@ import org.json.JSONObject;
 
 import java.io.File;
 import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 
 public class SettingsDumpService extends Service {
@@ -58,6 +64,10 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_PERFORMANCE = "performance";
+    @VisibleForTesting
+    static final String ARG_PROTO = "--proto";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -68,6 +78,17 @@ public class SettingsDumpService extends Service {
 
     @Override
     protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        if (ArrayUtils.contains(args, ARG_PROTO)) {
+            // Only the performance section is available as a proto.
+            try {
+                final FileOutputStream out = new FileOutputStream(fd);
+                dumpPerformanceProto().writeTo(out);
+                out.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         JSONObject dump = new JSONObject();
 
         try {
@@ -77,6 +98,7 @@ public class SettingsDumpService extends Service {
             dump.put(KEY_MEMORY, dumpMemory());
             dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
             dump.put(KEY_ANOMALY_DETECTION, dumpAnomalyDetection());
+            dump.put(KEY_PERFORMANCE, dumpPerformance());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -84,6 +106,32 @@ public class SettingsDumpService extends Service {
         writer.println(dump);
     }
 
+    @VisibleForTesting
+    JSONObject dumpPerformance() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        final LatencyTracker tracker = LatencyTracker.getInstance();
+        obj.put("latency", tracker.dump());
+        obj.put("counters", tracker.dumpCounters());
+        final SettingsMetricsFeatureProvider metricsFeatureProvider =
+                SettingsMetricsFeatureProvider.get(this);
+        if (metricsFeatureProvider != null) {
+            obj.put("log_writer", metricsFeatureProvider.dumpLogWriterStats());
+        }
+        return obj;
+    }
+
+    @VisibleForTesting
+    SettingsPerformanceDump dumpPerformanceProto() {
+        final SettingsPerformanceDump.Builder dump = SettingsPerformanceDump.newBuilder();
+        LatencyTracker.getInstance().dumpProto(dump);
+        final SettingsMetricsFeatureProvider metricsFeatureProvider =
+                SettingsMetricsFeatureProvider.get(this);
+        if (metricsFeatureProvider != null) {
+            dump.setLogWriter(metricsFeatureProvider.dumpLogWriterStatsProto());
+        }
+        return dump.build();
+    }
+
     private JSONObject dumpMemory() throws JSONException {
         JSONObject obj = new JSONObject();
         ProcStatsData statsManager = new ProcStatsData(this, false);
@@ -45,6 +45,7 @@ import android.security.KeyChain;
 import android.security.KeyChain.KeyChainConnection;
 import android.util.ArraySet;
 import android.util.Log;
+import android.util.LruCache;
 import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -63,6 +64,7 @@ import android.widget.TabHost;
 import android.widget.TextView;
 
 import com.android.internal.annotations.GuardedBy;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.app.UnlaunchableAppActivity;
 import com.android.internal.widget.LockPatternUtils;
 import com.android.settings.core.InstrumentedFragment;
@@ -70,9 +72,16 @@ import com.android.settings.core.InstrumentedFragment;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntConsumer;
 
 public class TrustedCredentialsSettings extends InstrumentedFragment
@@ -91,12 +100,22 @@ public class TrustedCredentialsSettings extends InstrumentedFragment
     private static final String USER_ACTION = "com.android.settings.TRUSTED_CREDENTIALS_USER";
     private static final int REQUEST_CONFIRM_CREDENTIALS = 1;
 
+    private static final int MAX_PARSED_CERTS = 500;
+
+    /**
+     * Certificates parsed by earlier loads, keyed by alias and hash of the encoded certificate,
+     * so reloading the list only parses certificates that were added or changed.
+     */
+    private static final LruCache<String, ParsedCert> sParsedCerts =
+            new LruCache<>(MAX_PARSED_CERTS);
+
     @Override
     public int getMetricsCategory() {
         return SettingsEnums.TRUSTED_CREDENTIALS;
     }
 
-    private enum Tab {
+    @VisibleForTesting
+    enum Tab {
         SYSTEM("system",
                 R.string.trusted_credentials_system_tab,
                 R.id.system_tab,
@@ -325,7 +344,8 @@ public class TrustedCredentialsSettings extends InstrumentedFragment
      * Adapter for expandable list view of certificates. Groups in the view correspond to profiles
      * whereas children correspond to certificates.
      */
-    private class GroupAdapter extends BaseExpandableListAdapter implements
+    @VisibleForTesting
+    class GroupAdapter extends BaseExpandableListAdapter implements
             ExpandableListView.OnGroupClickListener, ExpandableListView.OnChildClickListener,
             View.OnClickListener {
         private final AdapterData mData;
@@ -692,71 +712,93 @@ public class TrustedCredentialsSettings extends InstrumentedFragment
             @Override protected SparseArray<List<CertHolder>> doInBackground(Void... params) {
                 SparseArray<List<CertHolder>> certHoldersByProfile =
                         new SparseArray<List<CertHolder>>();
+                List<UserHandle> profiles = mUserManager.getUserProfiles();
+                final int n = profiles.size();
+                // Profiles are loaded in parallel, so the progress max grows as the aliases of
+                // each profile are known.
+                final AtomicInteger progress = new AtomicInteger();
+                final AtomicInteger max = new AtomicInteger();
+                final PendingConnections pendingConnections = new PendingConnections();
+                final List<Callable<ProfileCerts>> tasks = new ArrayList<>(n);
+                for (int i = 0; i < n; ++i) {
+                    final UserHandle profile = profiles.get(i);
+                    certHoldersByProfile.put(profile.getIdentifier(),
+                            new ArrayList<CertHolder>(0));
+                    if (!shouldSkipProfile(profile)) {
+                        tasks.add(() -> loadProfile(profile, progress, max, pendingConnections));
+                    }
+                }
+                if (tasks.isEmpty()) {
+                    return certHoldersByProfile;
+                }
+
+                final ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
                 try {
-                    synchronized(mKeyChainConnectionByProfileId) {
-                        List<UserHandle> profiles = mUserManager.getUserProfiles();
-                        final int n = profiles.size();
-                        // First we get all aliases for all profiles in order to show progress
-                        // correctly. Otherwise this could all be in a single loop.
-                        SparseArray<List<String>> aliasesByProfileId = new SparseArray<
-                                List<String>>(n);
-                        int max = 0;
-                        int progress = 0;
-                        for (int i = 0; i < n; ++i) {
-                            UserHandle profile = profiles.get(i);
-                            int profileId = profile.getIdentifier();
-                            if (shouldSkipProfile(profile)) {
-                                continue;
-                            }
-                            KeyChainConnection keyChainConnection = KeyChain.bindAsUser(mContext,
-                                    profile);
-                            // Saving the connection for later use on the certificate dialog.
-                            mKeyChainConnectionByProfileId.put(profileId, keyChainConnection);
-                            IKeyChainService service = keyChainConnection.getService();
-                            List<String> aliases = mTab.getAliases(service);
-                            if (isCancelled()) {
-                                return new SparseArray<List<CertHolder>>();
-                            }
-                            max += aliases.size();
-                            aliasesByProfileId.put(profileId, aliases);
+                    for (Future<ProfileCerts> future : executor.invokeAll(tasks)) {
+                        final ProfileCerts profileCerts;
+                        try {
+                            profileCerts = future.get();
+                        } catch (ExecutionException e) {
+                            Log.e(TAG, "Exception while loading aliases.", e.getCause());
+                            continue;
                         }
-                        for (int i = 0; i < n; ++i) {
-                            UserHandle profile = profiles.get(i);
-                            int profileId = profile.getIdentifier();
-                            List<String> aliases = aliasesByProfileId.get(profileId);
-                            if (isCancelled()) {
-                                return new SparseArray<List<CertHolder>>();
-                            }
-                            KeyChainConnection keyChainConnection = mKeyChainConnectionByProfileId.get(
-                                    profileId);
-                            if (shouldSkipProfile(profile) || aliases == null
-                                    || keyChainConnection == null) {
-                                certHoldersByProfile.put(profileId, new ArrayList<CertHolder>(0));
-                                continue;
+                        pendingConnections.remove(profileCerts.mConnection);
+                        synchronized (mKeyChainConnectionByProfileId) {
+                            final KeyChainConnection previous =
+                                    mKeyChainConnectionByProfileId.get(profileCerts.mProfileId);
+                            if (previous != null) {
+                                previous.close();
                             }
-                            IKeyChainService service = keyChainConnection.getService();
-                            List<CertHolder> certHolders = new ArrayList<CertHolder>(max);
-                            final int aliasMax = aliases.size();
-                            for (int j = 0; j < aliasMax; ++j) {
-                                String alias = aliases.get(j);
-                                byte[] encodedCertificate = service.getEncodedCaCertificate(alias,
-                                        true);
-                                X509Certificate cert = KeyChain.toCertificate(encodedCertificate);
-                                certHolders.add(new CertHolder(service, mAdapter,
-                                        mTab, alias, cert, profileId));
-                                publishProgress(++progress, max);
-                            }
-                            Collections.sort(certHolders);
-                            certHoldersByProfile.put(profileId, certHolders);
+                            // Saving the connection for later use on the certificate dialog.
+                            mKeyChainConnectionByProfileId.put(profileCerts.mProfileId,
+                                    profileCerts.mConnection);
                         }
-                        return certHoldersByProfile;
+                        certHoldersByProfile.put(profileCerts.mProfileId,
+                                profileCerts.mCertHolders);
                     }
-                } catch (RemoteException e) {
-                    Log.e(TAG, "Remote exception while loading aliases.", e);
-                    return new SparseArray<List<CertHolder>>();
                 } catch (InterruptedException e) {
                     Log.e(TAG, "InterruptedException while loading aliases.", e);
+                    // Profiles that finished loading but were never saved still hold their
+                    // connection.
+                    pendingConnections.closeAll();
                     return new SparseArray<List<CertHolder>>();
+                } finally {
+                    executor.shutdownNow();
+                }
+                if (isCancelled()) {
+                    return new SparseArray<List<CertHolder>>();
+                }
+                return certHoldersByProfile;
+            }
+
+            private ProfileCerts loadProfile(UserHandle profile, AtomicInteger progress,
+                    AtomicInteger max, PendingConnections pendingConnections)
+                    throws RemoteException, InterruptedException {
+                final int profileId = profile.getIdentifier();
+                KeyChainConnection keyChainConnection = KeyChain.bindAsUser(mContext, profile);
+                if (!pendingConnections.add(keyChainConnection)) {
+                    throw new InterruptedException();
+                }
+                try {
+                    IKeyChainService service = keyChainConnection.getService();
+                    List<String> aliases = mTab.getAliases(service);
+                    max.addAndGet(aliases.size());
+                    final int aliasMax = aliases.size();
+                    List<CertHolder> certHolders = new ArrayList<CertHolder>(aliasMax);
+                    for (int j = 0; j < aliasMax && !isCancelled(); ++j) {
+                        String alias = aliases.get(j);
+                        byte[] encodedCertificate = service.getEncodedCaCertificate(alias, true);
+                        certHolders.add(new CertHolder(service, mAdapter, mTab, alias,
+                                getParsedCert(alias, encodedCertificate), profileId));
+                        publishProgress(progress.incrementAndGet(), max.get());
+                    }
+                    Collections.sort(certHolders);
+                    return new ProfileCerts(profileId, keyChainConnection, certHolders);
+                } catch (RemoteException | RuntimeException e) {
+                    if (pendingConnections.remove(keyChainConnection)) {
+                        keyChainConnection.close();
+                    }
+                    throw e;
                 }
             }
             @Override protected void onProgressUpdate(Integer... progressAndMax) {
@@ -822,33 +864,88 @@ public class TrustedCredentialsSettings extends InstrumentedFragment
         }
     }
 
-    /* package */ static class CertHolder implements Comparable<CertHolder> {
-        public int mProfileId;
-        private final IKeyChainService mService;
-        private final GroupAdapter mAdapter;
-        private final Tab mTab;
-        private final String mAlias;
-        private final X509Certificate mX509Cert;
+    /**
+     * Returns the parsed {@code encodedCertificate} of {@code alias}, parsing it only if it is
+     * not cached yet.
+     */
+    @VisibleForTesting
+    static ParsedCert getParsedCert(String alias, byte[] encodedCertificate) {
+        final String key = alias + "/" + Arrays.hashCode(encodedCertificate);
+        ParsedCert parsedCert = sParsedCerts.get(key);
+        if (parsedCert == null || !Arrays.equals(parsedCert.mEncoded, encodedCertificate)) {
+            parsedCert = new ParsedCert(encodedCertificate);
+            sParsedCerts.put(key, parsedCert);
+        }
+        return parsedCert;
+    }
+
+    /**
+     * Certificates of one profile and the connection they were loaded with.
+     */
+    private static class ProfileCerts {
+        private final int mProfileId;
+        private final KeyChainConnection mConnection;
+        private final List<CertHolder> mCertHolders;
+
+        private ProfileCerts(int profileId, KeyChainConnection connection,
+                List<CertHolder> certHolders) {
+            mProfileId = profileId;
+            mConnection = connection;
+            mCertHolders = certHolders;
+        }
+    }
+
+    /**
+     * Connections bound by the profile loaders that are not saved in
+     * {@link #mKeyChainConnectionByProfileId} yet, so they can be closed if loading is interrupted.
+     */
+    private static class PendingConnections {
+        private final List<KeyChainConnection> mConnections = new ArrayList<>();
+        private boolean mClosed;
+
+        /**
+         * Tracks {@code connection}. Returns false and closes it if loading was interrupted.
+         */
+        synchronized boolean add(KeyChainConnection connection) {
+            if (mClosed) {
+                connection.close();
+                return false;
+            }
+            mConnections.add(connection);
+            return true;
+        }
+
+        /**
+         * Stops tracking {@code connection}. Returns false if it was already closed.
+         */
+        synchronized boolean remove(KeyChainConnection connection) {
+            return mConnections.remove(connection);
+        }
+
+        synchronized void closeAll() {
+            mClosed = true;
+            for (KeyChainConnection connection : mConnections) {
+                connection.close();
+            }
+            mConnections.clear();
+        }
+    }
 
+    /**
+     * A certificate and the subject shown for it, which only depend on the encoded certificate.
+     */
+    @VisibleForTesting
+    static class ParsedCert {
+        private final byte[] mEncoded;
+        private final X509Certificate mX509Cert;
         private final SslCertificate mSslCert;
         private final String mSubjectPrimary;
         private final String mSubjectSecondary;
-        private boolean mDeleted;
 
-        private CertHolder(IKeyChainService service,
-                           GroupAdapter adapter,
-                           Tab tab,
-                           String alias,
-                           X509Certificate x509Cert,
-                           int profileId) {
-            mProfileId = profileId;
-            mService = service;
-            mAdapter = adapter;
-            mTab = tab;
-            mAlias = alias;
-            mX509Cert = x509Cert;
-
-            mSslCert = new SslCertificate(x509Cert);
+        private ParsedCert(byte[] encoded) {
+            mEncoded = encoded;
+            mX509Cert = KeyChain.toCertificate(encoded);
+            mSslCert = new SslCertificate(mX509Cert);
 
             String cn = mSslCert.getIssuedTo().getCName();
             String o = mSslCert.getIssuedTo().getOName();
@@ -873,6 +970,39 @@ public class TrustedCredentialsSettings extends InstrumentedFragment
                     mSubjectSecondary = "";
                 }
             }
+        }
+    }
+
+    /* package */ static class CertHolder implements Comparable<CertHolder> {
+        public int mProfileId;
+        private final IKeyChainService mService;
+        private final GroupAdapter mAdapter;
+        private final Tab mTab;
+        private final String mAlias;
+        private final X509Certificate mX509Cert;
+
+        private final SslCertificate mSslCert;
+        private final String mSubjectPrimary;
+        private final String mSubjectSecondary;
+        private boolean mDeleted;
+
+        @VisibleForTesting
+        CertHolder(IKeyChainService service,
+                   GroupAdapter adapter,
+                   Tab tab,
+                   String alias,
+                   ParsedCert parsedCert,
+                   int profileId) {
+            mProfileId = profileId;
+            mService = service;
+            mAdapter = adapter;
+            mTab = tab;
+            mAlias = alias;
+            mX509Cert = parsedCert.mX509Cert;
+            mSslCert = parsedCert.mSslCert;
+            mSubjectPrimary = parsedCert.mSubjectPrimary;
+            mSubjectSecondary = parsedCert.mSubjectSecondary;
+
             try {
                 mDeleted = mTab.deleted(mService, mAlias);
             } catch (RemoteException e) {
@@ -987,10 +1117,13 @@ public class TrustedCredentialsSettings extends InstrumentedFragment
         return result;
     }
 
-    private class AliasOperation extends AsyncTask<Void, Void, Boolean> {
+    @VisibleForTesting
+    class AliasOperation extends AsyncTask<Void, Void, Boolean> {
         private final CertHolder mCertHolder;
+        // Whether the certificate is deleted after a failed operation, null if unknown.
+        private Boolean mDeletedAfterFailure;
 
-        private AliasOperation(CertHolder certHolder) {
+        AliasOperation(CertHolder certHolder) {
             mCertHolder = certHolder;
             mAliasOperation = this;
         }
@@ -1013,10 +1146,31 @@ public class TrustedCredentialsSettings extends InstrumentedFragment
             } catch (CertificateEncodingException | SecurityException | IllegalStateException
                     | RemoteException e) {
                 Log.w(TAG, "Error while toggling alias " + mCertHolder.mAlias, e);
+                mDeletedAfterFailure = queryDeleted();
                 return false;
             }
         }
 
+        /**
+         * Returns whether the certificate is currently deleted, or {@code null} if unknown.
+         */
+        private Boolean queryDeleted() {
+            try {
+                synchronized (mKeyChainConnectionByProfileId) {
+                    KeyChainConnection keyChainConnection = mKeyChainConnectionByProfileId.get(
+                            mCertHolder.mProfileId);
+                    if (keyChainConnection == null) {
+                        return null;
+                    }
+                    return mCertHolder.mTab.deleted(keyChainConnection.getService(),
+                            mCertHolder.mAlias);
+                }
+            } catch (SecurityException | IllegalStateException | RemoteException e) {
+                Log.w(TAG, "Error while checking alias " + mCertHolder.mAlias, e);
+                return null;
+            }
+        }
+
         @Override
         protected void onPostExecute(Boolean ok) {
             if (ok) {
@@ -1026,6 +1180,10 @@ public class TrustedCredentialsSettings extends InstrumentedFragment
                     mCertHolder.mAdapter.remove(mCertHolder);
                 }
                 mCertHolder.mAdapter.notifyDataSetChanged();
+            } else if (mDeletedAfterFailure != null) {
+                // only this certificate may be out of date, refresh it
+                mCertHolder.mDeleted = mDeletedAfterFailure;
+                mCertHolder.mAdapter.notifyDataSetChanged();
             } else {
                 // bail, reload to reset to known state
                 mCertHolder.mAdapter.load();
@@ -37,6 +37,8 @@ import android.widget.ListView;
 import android.widget.Spinner;
 import android.widget.TextView;
 
+import com.android.settings.applications.UsageStatsAggregator;
+
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -103,6 +105,7 @@ public class UsageStatsActivity extends Activity implements OnItemSelectedListen
         private LastTimeUsedComparator mLastTimeUsedComparator = new LastTimeUsedComparator();
         private UsageTimeComparator mUsageTimeComparator = new UsageTimeComparator();
         private AppNameComparator mAppLabelComparator;
+        private final ArrayMap<String, ApplicationInfo> mAppInfoMap = new ArrayMap<>();
         private final ArrayMap<String, String> mAppLabelMap = new ArrayMap<>();
         private final ArrayList<UsageStats> mPackageStats = new ArrayList<>();
 
@@ -110,37 +113,20 @@ public class UsageStatsActivity extends Activity implements OnItemSelectedListen
             Calendar cal = Calendar.getInstance();
             cal.add(Calendar.DAY_OF_YEAR, -5);
 
-            final List<UsageStats> stats =
-                    mUsageStatsManager.queryUsageStats(UsageStatsManager.INTERVAL_BEST,
-                            cal.getTimeInMillis(), System.currentTimeMillis());
-            if (stats == null) {
-                return;
-            }
+            final List<UsageStats> stats = UsageStatsAggregator.getInstance(
+                    UsageStatsActivity.this).getPackageStats(mUsageStatsManager,
+                    cal.getTimeInMillis());
 
-            ArrayMap<String, UsageStats> map = new ArrayMap<>();
-            final int statCount = stats.size();
-            for (int i = 0; i < statCount; i++) {
-                final android.app.usage.UsageStats pkgStats = stats.get(i);
-
-                // load application labels for each application
+            for (UsageStats pkgStats : stats) {
                 try {
-                    ApplicationInfo appInfo = mPm.getApplicationInfo(pkgStats.getPackageName(), 0);
-                    String label = appInfo.loadLabel(mPm).toString();
-                    mAppLabelMap.put(pkgStats.getPackageName(), label);
-
-                    UsageStats existingStats =
-                            map.get(pkgStats.getPackageName());
-                    if (existingStats == null) {
-                        map.put(pkgStats.getPackageName(), pkgStats);
-                    } else {
-                        existingStats.add(pkgStats);
-                    }
-
+                    // Labels are only loaded when shown or sorted by.
+                    mAppInfoMap.put(pkgStats.getPackageName(),
+                            mPm.getApplicationInfo(pkgStats.getPackageName(), 0));
+                    mPackageStats.add(pkgStats);
                 } catch (NameNotFoundException e) {
                     // This package may be gone.
                 }
             }
-            mPackageStats.addAll(map.values());
 
             // Sort list
             mAppLabelComparator = new AppNameComparator(mAppLabelMap);
@@ -190,7 +176,7 @@ public class UsageStatsActivity extends Activity implements OnItemSelectedListen
             // Bind the data efficiently with the holder
             UsageStats pkgStats = mPackageStats.get(position);
             if (pkgStats != null) {
-                String label = mAppLabelMap.get(pkgStats.getPackageName());
+                String label = getLabel(pkgStats.getPackageName());
                 holder.pkgName.setText(label);
                 holder.lastTimeUsed.setText(DateUtils.formatSameDayTime(pkgStats.getLastTimeUsed(),
                         System.currentTimeMillis(), DateFormat.MEDIUM, DateFormat.MEDIUM));
@@ -202,6 +188,15 @@ public class UsageStatsActivity extends Activity implements OnItemSelectedListen
             return convertView;
         }
 
+        private String getLabel(String packageName) {
+            String label = mAppLabelMap.get(packageName);
+            if (label == null) {
+                label = mAppInfoMap.get(packageName).loadLabel(mPm).toString();
+                mAppLabelMap.put(packageName, label);
+            }
+            return label;
+        }
+
         void sortList(int sortOrder) {
             if (mDisplayOrder == sortOrder) {
                 // do nothing
@@ -219,6 +214,9 @@ public class UsageStatsActivity extends Activity implements OnItemSelectedListen
                 Collections.sort(mPackageStats, mLastTimeUsedComparator);
             } else if (mDisplayOrder == _DISPLAY_ORDER_APP_NAME) {
                 if (localLOGV) Log.i(TAG, "Sorting by application name");
+                for (UsageStats pkgStats : mPackageStats) {
+                    getLabel(pkgStats.getPackageName());
+                }
                 Collections.sort(mPackageStats, mAppLabelComparator);
             }
             notifyDataSetChanged();
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.accessibility;
+
+import android.accessibilityservice.AccessibilityServiceInfo;
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.pm.ServiceInfo;
+import android.content.res.Configuration;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.VectorDrawable;
+import android.net.Uri;
+import android.util.ArrayMap;
+import android.view.accessibility.AccessibilityManager;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-process cache of the installed accessibility services and of their label, icon and
+ * description.
+ *
+ * The installed services are queried again only after a package changes, and the resources of a
+ * service only after its own package changes or the configuration changes. Callers listening to
+ * package changes themselves call {@link #invalidate(String)} before reloading, since the order
+ * in which listeners are called is not defined.
+ */
+class AccessibilityServiceCache {
+
+    // Same bounds as Utils#setSafeIcon.
+    private static final int MAX_ICON_SIZE = 500;
+
+    private static AccessibilityServiceCache sInstance;
+
+    private final Context mContext;
+    private final PackageManager mPm;
+
+    private AccessibilityManager mAccessibilityManager;
+    private List<AccessibilityServiceInfo> mInstalledServices;
+    private final ArrayMap<ComponentName, ServiceResources> mResources = new ArrayMap<>();
+
+    @VisibleForTesting
+    final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            invalidate(data != null ? data.getSchemeSpecificPart() : null);
+        }
+    };
+
+    private final ComponentCallbacks mComponentCallbacks = new ComponentCallbacks() {
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            // Labels and descriptions may be localized.
+            clearResources();
+        }
+
+        @Override
+        public void onLowMemory() {
+            clearResources();
+        }
+    };
+
+    static synchronized AccessibilityServiceCache getInstance(Context context) {
+        final Context appContext = context.getApplicationContext() != null
+                ? context.getApplicationContext() : context;
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new AccessibilityServiceCache(appContext);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AccessibilityServiceCache(Context context) {
+        mContext = context;
+        mPm = context.getPackageManager();
+
+        final IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addDataScheme("package");
+        mContext.registerReceiver(mPackageReceiver, packageFilter);
+
+        final IntentFilter storageFilter = new IntentFilter();
+        storageFilter.addAction(Intent.ACTION_EXTERNAL_APPLICATIONS_AVAILABLE);
+        storageFilter.addAction(Intent.ACTION_EXTERNAL_APPLICATIONS_UNAVAILABLE);
+        mContext.registerReceiver(mPackageReceiver, storageFilter);
+
+        mContext.registerComponentCallbacks(mComponentCallbacks);
+    }
+
+    /**
+     * Same as {@link AccessibilityManager#getInstalledAccessibilityServiceList()}, but only
+     * queried again after a package changed.
+     */
+    synchronized List<AccessibilityServiceInfo> getInstalledServiceList(
+            AccessibilityManager manager) {
+        if (manager != mAccessibilityManager || mInstalledServices == null) {
+            mAccessibilityManager = manager;
+            mInstalledServices = new ArrayList<>(manager.getInstalledAccessibilityServiceList());
+        }
+        return new ArrayList<>(mInstalledServices);
+    }
+
+    /**
+     * Returns the label, icon and description of {@code info}, loading them if needed.
+     */
+    synchronized ServiceResources getResources(AccessibilityServiceInfo info) {
+        final ResolveInfo resolveInfo = info.getResolveInfo();
+        final ServiceInfo serviceInfo = resolveInfo.serviceInfo;
+        final ComponentName componentName =
+                new ComponentName(serviceInfo.packageName, serviceInfo.name);
+        ServiceResources resources = mResources.get(componentName);
+        if (resources == null) {
+            resources = new ServiceResources(info, mPm);
+            mResources.put(componentName, resources);
+        }
+        return resources;
+    }
+
+    /**
+     * Drops what is cached about {@code packageName}, or about every package if {@code null}.
+     */
+    synchronized void invalidate(String packageName) {
+        // The package may have added or removed a service.
+        mInstalledServices = null;
+        if (packageName == null) {
+            mResources.clear();
+            return;
+        }
+        for (int i = mResources.size() - 1; i >= 0; i--) {
+            if (packageName.equals(mResources.keyAt(i).getPackageName())) {
+                mResources.removeAt(i);
+            }
+        }
+    }
+
+    private synchronized void clearResources() {
+        mResources.clear();
+    }
+
+    /**
+     * Label, icon and description of one service.
+     */
+    static class ServiceResources {
+        final String mLabel;
+        final String mDescription;
+        // Null if the service has no icon of its own.
+        private final Drawable.ConstantState mIcon;
+
+        private ServiceResources(AccessibilityServiceInfo info, PackageManager pm) {
+            final ResolveInfo resolveInfo = info.getResolveInfo();
+            mLabel = resolveInfo.loadLabel(pm).toString();
+            mDescription = info.loadDescription(pm);
+            if (resolveInfo.getIconResource() == 0) {
+                mIcon = null;
+            } else {
+                Drawable icon = resolveInfo.loadIcon(pm);
+                if (icon != null && !(icon instanceof VectorDrawable)) {
+                    icon = Utils.getSafeDrawable(icon, MAX_ICON_SIZE, MAX_ICON_SIZE);
+                }
+                mIcon = icon != null ? icon.getConstantState() : null;
+            }
+        }
+
+        /**
+         * Returns a new drawable of the service icon, or {@code null} if it has none.
+         */
+        Drawable newIcon() {
+            return mIcon != null ? mIcon.newDrawable() : null;
+        }
+    }
+}
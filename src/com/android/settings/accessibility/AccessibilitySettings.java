@@ -187,25 +187,26 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
     private final PackageMonitor mSettingsPackageMonitor = new PackageMonitor() {
         @Override
         public void onPackageAdded(String packageName, int uid) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageAppeared(String packageName, int reason) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageDisappeared(String packageName, int reason) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageRemoved(String packageName, int uid) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
-        private void sendUpdate() {
+        private void sendUpdate(String packageName) {
+            mServiceCache.invalidate(packageName);
             mHandler.postDelayed(mUpdateRunnable, DELAY_UPDATE_SERVICES_MILLIS);
         }
     };
@@ -225,6 +226,11 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
             new ArrayMap<>();
     private final Map<ComponentName, PreferenceCategory> mPreBundledServiceComponentToCategoryMap =
             new ArrayMap<>();
+    // Order of the preferences listed in the order array of a category, by category.
+    private final Map<String, Map<String, Integer>> mCategoryToPreferenceOrderMap =
+            new ArrayMap<>();
+
+    private AccessibilityServiceCache mServiceCache;
 
     private SwitchPreference mToggleHighTextContrastPreference;
     private SwitchPreference mTogglePowerButtonEndsCallPreference;
@@ -297,6 +303,7 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
         initializeAllPreferences();
         mDpm = (DevicePolicyManager) (getActivity()
                 .getSystemService(Context.DEVICE_POLICY_SERVICE));
+        mServiceCache = AccessibilityServiceCache.getInstance(getActivity());
     }
 
     @Override
@@ -445,6 +452,24 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
             mCategoryToPrefCategoryMap.put(CATEGORIES[i], prefCategory);
         }
 
+        initializePreBundledServicesMapFromArray(CATEGORY_SCREEN_READER,
+                R.array.config_preinstalled_screen_reader_services);
+        initializePreBundledServicesMapFromArray(CATEGORY_AUDIO_AND_CAPTIONS,
+                R.array.config_preinstalled_audio_and_caption_services);
+        initializePreBundledServicesMapFromArray(CATEGORY_DISPLAY,
+                R.array.config_preinstalled_display_services);
+        initializePreBundledServicesMapFromArray(CATEGORY_INTERACTION_CONTROL,
+                R.array.config_preinstalled_interaction_control_services);
+
+        initializePreferenceOrderMapFromArray(CATEGORY_SCREEN_READER,
+                R.array.config_order_screen_reader_services);
+        initializePreferenceOrderMapFromArray(CATEGORY_AUDIO_AND_CAPTIONS,
+                R.array.config_order_audio_and_caption_services);
+        initializePreferenceOrderMapFromArray(CATEGORY_INTERACTION_CONTROL,
+                R.array.config_order_interaction_control_services);
+        initializePreferenceOrderMapFromArray(CATEGORY_DISPLAY,
+                R.array.config_order_display_services);
+
         // Text contrast.
         mToggleHighTextContrastPreference =
                 (SwitchPreference) findPreference(TOGGLE_HIGH_TEXT_CONTRAST_PREFERENCE);
@@ -548,28 +573,16 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
         // to generate it since services can come and go and then based on
         // the global accessibility state to decided whether it is enabled.
 
-        // Generate.
-        ArrayList<Preference> servicePreferences =
-                new ArrayList<>(mServicePreferenceToPreferenceCategoryMap.keySet());
-        for (int i = 0; i < servicePreferences.size(); i++) {
-            Preference service = servicePreferences.get(i);
-            PreferenceCategory category = mServicePreferenceToPreferenceCategoryMap.get(service);
-            category.removePreference(service);
+        // Preferences of services that are still installed are updated in place.
+        final Map<String, Preference> previousPreferences = new ArrayMap<>();
+        for (Preference service : mServicePreferenceToPreferenceCategoryMap.keySet()) {
+            previousPreferences.put(service.getKey(), service);
         }
 
-        initializePreBundledServicesMapFromArray(CATEGORY_SCREEN_READER,
-                R.array.config_preinstalled_screen_reader_services);
-        initializePreBundledServicesMapFromArray(CATEGORY_AUDIO_AND_CAPTIONS,
-                R.array.config_preinstalled_audio_and_caption_services);
-        initializePreBundledServicesMapFromArray(CATEGORY_DISPLAY,
-                R.array.config_preinstalled_display_services);
-        initializePreBundledServicesMapFromArray(CATEGORY_INTERACTION_CONTROL,
-                R.array.config_preinstalled_interaction_control_services);
-
         AccessibilityManager accessibilityManager = AccessibilityManager.getInstance(getActivity());
 
         List<AccessibilityServiceInfo> installedServices =
-                accessibilityManager.getInstalledAccessibilityServiceList();
+                mServiceCache.getInstalledServiceList(accessibilityManager);
         List<AccessibilityServiceInfo> enabledServiceInfos = accessibilityManager
                 .getEnabledAccessibilityServiceList(AccessibilityServiceInfo.FEEDBACK_ALL_MASK);
         Set<ComponentName> enabledServices = AccessibilityUtils.getEnabledServicesFromSettings(
@@ -588,28 +601,33 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
             final AccessibilityServiceInfo info = installedServices.get(i);
             final ResolveInfo resolveInfo = info.getResolveInfo();
 
-            final RestrictedPreference preference =
-                    new RestrictedPreference(downloadedServicesCategory.getContext());
-            final String title = resolveInfo.loadLabel(getPackageManager()).toString();
+            final AccessibilityServiceCache.ServiceResources resources =
+                    mServiceCache.getResources(info);
+            final String title = resources.mLabel;
 
-            Drawable icon;
-            if (resolveInfo.getIconResource() == 0) {
+            Drawable icon = resources.newIcon();
+            if (icon == null) {
                 icon = ContextCompat.getDrawable(getContext(), R.drawable.ic_accessibility_generic);
-            } else {
-                icon = resolveInfo.loadIcon(getPackageManager());
             }
 
             final ServiceInfo serviceInfo = resolveInfo.serviceInfo;
             final String packageName = serviceInfo.packageName;
             final ComponentName componentName = new ComponentName(packageName, serviceInfo.name);
+            final String key = componentName.flattenToString();
 
-            preference.setKey(componentName.flattenToString());
+            RestrictedPreference preference = (RestrictedPreference) previousPreferences.remove(key);
+            final boolean isNewPreference = preference == null;
+            if (isNewPreference) {
+                preference = new RestrictedPreference(downloadedServicesCategory.getContext());
+                preference.setKey(key);
+            }
 
             preference.setTitle(title);
             preference.setIconSize(ICON_SIZE_MEDIUM);
-            Utils.setSafeIcon(preference, icon);
+            // Cached icons are already bounded.
+            preference.setIcon(icon);
             final boolean serviceEnabled = enabledServices.contains(componentName);
-            String description = info.loadDescription(getPackageManager());
+            String description = resources.mDescription;
             if (TextUtils.isEmpty(description)) {
                 description = getString(R.string.accessibility_service_default_description);
             }
@@ -635,6 +653,7 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
                 if (admin != null) {
                     preference.setDisabledByAdmin(admin);
                 } else {
+                    preference.setDisabledByAdmin(null);
                     preference.setEnabled(false);
                 }
             } else {
@@ -657,6 +676,9 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
                         getString(R.string.accessibility_menu_item_settings));
                 extras.putString(EXTRA_SETTINGS_COMPONENT_NAME,
                         new ComponentName(packageName, settingsClassName).flattenToString());
+            } else {
+                extras.remove(EXTRA_SETTINGS_TITLE);
+                extras.remove(EXTRA_SETTINGS_COMPONENT_NAME);
             }
             extras.putParcelable(EXTRA_COMPONENT_NAME, componentName);
 
@@ -665,20 +687,27 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
             if (mPreBundledServiceComponentToCategoryMap.containsKey(componentName)) {
                 prefCategory = mPreBundledServiceComponentToCategoryMap.get(componentName);
             }
-            preference.setOrder(FIRST_PREFERENCE_IN_CATEGORY_INDEX);
-            prefCategory.addPreference(preference);
-            mServicePreferenceToPreferenceCategoryMap.put(preference, prefCategory);
+            // Set the final order right away, so kept preferences don't move back and forth.
+            final Map<String, Integer> preferenceOrderMap =
+                    mCategoryToPreferenceOrderMap.get(prefCategory.getKey());
+            final Integer order = preferenceOrderMap != null ? preferenceOrderMap.get(key) : null;
+            preference.setOrder(order != null ? order : FIRST_PREFERENCE_IN_CATEGORY_INDEX);
+            if (isNewPreference) {
+                prefCategory.addPreference(preference);
+                mServicePreferenceToPreferenceCategoryMap.put(preference, prefCategory);
+            }
+        }
+
+        // Remove the preferences of services that are gone.
+        for (Preference service : previousPreferences.values()) {
+            mServicePreferenceToPreferenceCategoryMap.remove(service).removePreference(service);
         }
 
         // Update the order of all the category according to the order defined in xml file.
-        updateCategoryOrderFromArray(CATEGORY_SCREEN_READER,
-            R.array.config_order_screen_reader_services);
-        updateCategoryOrderFromArray(CATEGORY_AUDIO_AND_CAPTIONS,
-            R.array.config_order_audio_and_caption_services);
-        updateCategoryOrderFromArray(CATEGORY_INTERACTION_CONTROL,
-            R.array.config_order_interaction_control_services);
-        updateCategoryOrderFromArray(CATEGORY_DISPLAY,
-            R.array.config_order_display_services);
+        updateCategoryOrder(CATEGORY_SCREEN_READER);
+        updateCategoryOrder(CATEGORY_AUDIO_AND_CAPTIONS);
+        updateCategoryOrder(CATEGORY_INTERACTION_CONTROL);
+        updateCategoryOrder(CATEGORY_DISPLAY);
 
         // If the user has not installed any additional services, hide the category.
         if (downloadedServicesCategory.getPreferenceCount() == 0) {
@@ -696,25 +725,33 @@ public class AccessibilitySettings extends SettingsPreferenceFragment implements
         }
     }
 
+    private void initializePreferenceOrderMapFromArray(String categoryKey, int key) {
+        String[] services = getResources().getStringArray(key);
+        Map<String, Integer> preferenceOrderMap = new ArrayMap<>(services.length);
+        for (int i = 0; i < services.length; i++) {
+            // The first occurrence wins, as it did when scanning the array.
+            if (!preferenceOrderMap.containsKey(services[i])) {
+                preferenceOrderMap.put(services[i], i);
+            }
+        }
+        mCategoryToPreferenceOrderMap.put(categoryKey, preferenceOrderMap);
+    }
+
     /**
      * Update the order of perferences in the category by matching their preference
      * key with the string array of preference order which is defined in the xml.
      *
      * @param categoryKey The key of the category need to update the order
-     * @param key The key of the string array which defines the order of category
      */
-    private void updateCategoryOrderFromArray(String categoryKey, int key) {
-        String[] services = getResources().getStringArray(key);
+    private void updateCategoryOrder(String categoryKey) {
+        Map<String, Integer> preferenceOrderMap = mCategoryToPreferenceOrderMap.get(categoryKey);
         PreferenceCategory category = mCategoryToPrefCategoryMap.get(categoryKey);
         int preferenceCount = category.getPreferenceCount();
-        int serviceLength = services.length;
         for (int preferenceIndex = 0; preferenceIndex < preferenceCount; preferenceIndex++) {
-            for (int serviceIndex = 0; serviceIndex < serviceLength; serviceIndex++) {
-                if (category.getPreference(preferenceIndex).getKey()
-                        .equals(services[serviceIndex])) {
-                    category.getPreference(preferenceIndex).setOrder(serviceIndex);
-                    break;
-                }
+            Preference preference = category.getPreference(preferenceIndex);
+            Integer order = preferenceOrderMap.get(preference.getKey());
+            if (order != null) {
+                preference.setOrder(order);
             }
         }
     }
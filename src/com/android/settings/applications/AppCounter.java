@@ -22,8 +22,6 @@ import android.os.AsyncTask;
 import android.os.UserHandle;
 import android.os.UserManager;
 
-import java.util.List;
-
 public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
 
     protected final PackageManager mPm;
@@ -37,17 +35,17 @@ public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
     @Override
     protected Integer doInBackground(Void... params) {
         int count = 0;
-        for (UserInfo user : mUm.getProfiles(UserHandle.myUserId())) {
-            final List<ApplicationInfo> list =
-                    mPm.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
-                            | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
-                            | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0),
-                            user.id);
-            for (ApplicationInfo info : list) {
-                if (includeInCount(info)) {
-                    count++;
+        final InstalledAppsSnapshot snapshot = InstalledAppsSnapshot.acquire();
+        try {
+            for (UserInfo user : mUm.getProfiles(UserHandle.myUserId())) {
+                for (ApplicationInfo info : snapshot.getInstalledApplications(user, mPm)) {
+                    if (includeInCount(info)) {
+                        count++;
+                    }
                 }
             }
+        } finally {
+            snapshot.release();
         }
         return count;
     }
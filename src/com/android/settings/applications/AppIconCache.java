@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.UserHandle;
+import android.util.IconDrawableFactory;
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.instrumentation.SettingsMetricsFeatureProvider;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.Objects;
+
+/**
+ * Process-wide cache of application icons and labels, keyed by package, user, density and badge.
+ *
+ * Icons are kept as {@link Drawable.ConstantState}, so every screen gets its own drawable backed
+ * by the same bitmap. Entries of a package are dropped on any package broadcast for its user,
+ * labels on configuration changes, and icons are trimmed when the system asks to release memory.
+ */
+public class AppIconCache {
+
+    @VisibleForTesting
+    static final int MAX_ICONS = 200;
+    @VisibleForTesting
+    static final int MAX_LABELS = 500;
+
+    private static final String COUNTER_HIT = "app_icon_cache_hit";
+    private static final String COUNTER_MISS = "app_icon_cache_miss";
+
+    private static AppIconCache sInstance;
+
+    private final Context mContext;
+    private final IconDrawableFactory mIconDrawableFactory;
+    private final LruCache<Key, Drawable.ConstantState> mIcons = new LruCache<>(MAX_ICONS);
+    private final LruCache<Key, CharSequence> mLabels = new LruCache<>(MAX_LABELS);
+
+    @VisibleForTesting
+    final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            final String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (packageName == null) {
+                return;
+            }
+            final int uid = intent.getIntExtra(Intent.EXTRA_UID, -1);
+            invalidate(packageName, uid == -1 ? UserHandle.USER_ALL : UserHandle.getUserId(uid));
+        }
+    };
+
+    @VisibleForTesting
+    final ComponentCallbacks2 mComponentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trimMemory(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            // Labels may be localized, icons are keyed by density already.
+            mLabels.evictAll();
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+    };
+
+    /**
+     * Callback for {@link #loadBadgedIcon}, invoked on the main thread.
+     */
+    public interface OnIconLoadedListener {
+        void onIconLoaded(Drawable icon);
+    }
+
+    public static synchronized AppIconCache getInstance(Context context) {
+        final Context appContext = context.getApplicationContext() != null
+                ? context.getApplicationContext() : context;
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new AppIconCache(appContext);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AppIconCache(Context context) {
+        this(context, IconDrawableFactory.newInstance(context));
+    }
+
+    @VisibleForTesting
+    AppIconCache(Context context, IconDrawableFactory iconDrawableFactory) {
+        mContext = context;
+        mIconDrawableFactory = iconDrawableFactory;
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        mContext.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, filter,
+                null /* broadcastPermission */, null /* scheduler */);
+        mContext.registerComponentCallbacks(mComponentCallbacks);
+    }
+
+    /**
+     * Returns the icon of {@code info}, badged for the user owning it.
+     */
+    public Drawable getBadgedIcon(ApplicationInfo info) {
+        return getBadgedIcon(info, UserHandle.getUserId(info.uid));
+    }
+
+    /**
+     * Returns the icon of {@code info}, badged for {@code userId}.
+     */
+    public Drawable getBadgedIcon(ApplicationInfo info, int userId) {
+        final Key key = new Key(info.packageName, userId, getDensity(), true /* badged */);
+        final Drawable.ConstantState state = mIcons.get(key);
+        final SettingsMetricsFeatureProvider metricsFeatureProvider =
+                SettingsMetricsFeatureProvider.get(mContext);
+        if (state != null) {
+            if (metricsFeatureProvider != null) {
+                metricsFeatureProvider.logCount(COUNTER_HIT);
+            }
+            return state.newDrawable(mContext.getResources());
+        }
+        if (metricsFeatureProvider != null) {
+            metricsFeatureProvider.logCount(COUNTER_MISS);
+        }
+        final Drawable icon = mIconDrawableFactory.getBadgedIcon(info, userId);
+        final Drawable.ConstantState loadedState = icon != null ? icon.getConstantState() : null;
+        if (loadedState == null) {
+            return icon;
+        }
+        mIcons.put(key, loadedState);
+        // Hand out a copy, so a caller mutating its drawable doesn't affect later ones.
+        return loadedState.newDrawable(mContext.getResources());
+    }
+
+    /**
+     * Returns the badged icon of {@code info} right away if it is cached, otherwise decodes it on
+     * a background thread. {@code listener} is called on the main thread in both cases.
+     */
+    public void loadBadgedIcon(ApplicationInfo info, OnIconLoadedListener listener) {
+        final Key key = new Key(info.packageName, UserHandle.getUserId(info.uid), getDensity(),
+                true /* badged */);
+        if (mIcons.get(key) != null) {
+            final Drawable icon = getBadgedIcon(info);
+            ThreadUtils.postOnMainThread(() -> listener.onIconLoaded(icon));
+            return;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final Drawable icon = getBadgedIcon(info);
+            ThreadUtils.postOnMainThread(() -> listener.onIconLoaded(icon));
+        });
+    }
+
+    /**
+     * Returns the label of {@code info}, loaded through the application context.
+     */
+    public CharSequence getLabel(ApplicationInfo info) {
+        final Key key = new Key(info.packageName, UserHandle.getUserId(info.uid), 0 /* density */,
+                false /* badged */);
+        CharSequence label = mLabels.get(key);
+        if (label == null) {
+            label = info.loadLabel(mContext.getPackageManager());
+            if (label != null) {
+                mLabels.put(key, label);
+            }
+        }
+        return label;
+    }
+
+    /**
+     * Drops icons and labels of {@code packageName} for {@code userId}, or for every user if it
+     * is {@link UserHandle#USER_ALL}.
+     */
+    @VisibleForTesting
+    void invalidate(String packageName, int userId) {
+        for (Key key : mIcons.snapshot().keySet()) {
+            if (key.matches(packageName, userId)) {
+                mIcons.remove(key);
+            }
+        }
+        for (Key key : mLabels.snapshot().keySet()) {
+            if (key.matches(packageName, userId)) {
+                mLabels.remove(key);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            // Settings is in the background and likely to be killed next, keep nothing.
+            mIcons.evictAll();
+            mLabels.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mIcons.trimToSize(MAX_ICONS / 2);
+        }
+    }
+
+    @VisibleForTesting
+    int getIconCount() {
+        return mIcons.size();
+    }
+
+    private int getDensity() {
+        return mContext.getResources().getDisplayMetrics().densityDpi;
+    }
+
+    private static final class Key {
+        final String mPackageName;
+        final int mUserId;
+        final int mDensity;
+        final boolean mBadged;
+
+        Key(String packageName, int userId, int density, boolean badged) {
+            mPackageName = packageName;
+            mUserId = userId;
+            mDensity = density;
+            mBadged = badged;
+        }
+
+        boolean matches(String packageName, int userId) {
+            return Objects.equals(mPackageName, packageName)
+                    && (userId == UserHandle.USER_ALL || mUserId == userId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mUserId == other.mUserId && mDensity == other.mDensity
+                    && mBadged == other.mBadged && Objects.equals(mPackageName, other.mPackageName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mPackageName, mUserId, mDensity, mBadged);
+        }
+    }
+}
@@ -44,17 +44,17 @@ public abstract class AppLister extends AsyncTask<Void, Void, List<UserAppInfo>>
     @Override
     protected List<UserAppInfo> doInBackground(Void... params) {
         final List<UserAppInfo> result = new ArrayList<>();
-        for (UserInfo user : mUm.getProfiles(UserHandle.myUserId())) {
-            final List<ApplicationInfo> list =
-                    mPm.getInstalledApplicationsAsUser(PackageManager.GET_DISABLED_COMPONENTS
-                            | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
-                            | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0),
-                            user.id);
-            for (ApplicationInfo info : list) {
-                if (includeInCount(info)) {
-                    result.add(new UserAppInfo(user, info));
+        final InstalledAppsSnapshot snapshot = InstalledAppsSnapshot.acquire();
+        try {
+            for (UserInfo user : mUm.getProfiles(UserHandle.myUserId())) {
+                for (ApplicationInfo info : snapshot.getInstalledApplications(user, mPm)) {
+                    if (includeInCount(info)) {
+                        result.add(new UserAppInfo(user, info));
+                    }
                 }
             }
+        } finally {
+            snapshot.release();
         }
         return result;
     }
@@ -81,11 +81,13 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         }
 
         final Map<String, NotificationsSentState> map = getAggregatedUsageEvents();
+        final NotificationBackend.BlockableLookup lookup =
+                mBackend.createBlockableLookup(mContext);
         for (AppEntry entry : apps) {
             NotificationsSentState stats =
                     map.get(getKey(UserHandle.getUserId(entry.info.uid), entry.info.packageName));
             calculateAvgSentCounts(stats);
-            addBlockStatus(entry, stats);
+            addBlockStatus(entry, stats, lookup);
             entry.extraInfo = stats;
         }
     }
@@ -95,7 +97,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         NotificationsSentState stats = getAggregatedUsageEvents(
                 UserHandle.getUserId(entry.info.uid), entry.info.packageName);
         calculateAvgSentCounts(stats);
-        addBlockStatus(entry, stats);
+        addBlockStatus(entry, stats, null /* lookup */);
         entry.extraInfo = stats;
     }
 
@@ -119,10 +121,13 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         }
     }
 
-    private void addBlockStatus(AppEntry entry, NotificationsSentState stats) {
+    private void addBlockStatus(AppEntry entry, NotificationsSentState stats,
+            NotificationBackend.BlockableLookup lookup) {
         if (stats != null) {
             stats.blocked = mBackend.getNotificationsBanned(entry.info.packageName, entry.info.uid);
-            stats.systemApp = mBackend.isSystemApp(mContext, entry.info);
+            stats.systemApp = lookup != null
+                    ? mBackend.isSystemApp(mContext, entry.info, lookup)
+                    : mBackend.isSystemApp(mContext, entry.info);
             stats.blockable = !stats.systemApp || (stats.systemApp && stats.blocked);
         }
     }
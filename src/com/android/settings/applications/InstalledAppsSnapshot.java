@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.UserInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.UserHandle;
+import android.text.format.DateUtils;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.overlay.FeatureFactory;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Installed applications of each profile, shared by {@link AppCounter} and {@link AppLister}.
+ *
+ * The Apps and Enterprise privacy pages start several counters and listers, each of which used to
+ * fetch the full application list of every profile. They now {@link #acquire} this snapshot,
+ * filter over it and {@link #release} it. The lists are dropped on any package broadcast, and
+ * the snapshot is kept for {@link #RETAIN_MILLIS} after the last release so that tasks started
+ * one after another still share it.
+ *
+ * The snapshot is keyed by user only, so callers holding different {@link PackageManager}s still
+ * share it. The package manager is only used to fill a missing list and is not kept, so the
+ * snapshot does not hold on to the calling activity.
+ */
+class InstalledAppsSnapshot {
+
+    @VisibleForTesting
+    static final long RETAIN_MILLIS = DateUtils.MINUTE_IN_MILLIS;
+
+    private static InstalledAppsSnapshot sInstance;
+
+    // Null if no application context is available, then nothing is kept after the last release.
+    private final Context mContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final SparseArray<List<ApplicationInfo>> mApplications = new SparseArray<>();
+    private final Runnable mDropRunnable = this::drop;
+    private int mRefCount;
+    private boolean mDropped;
+
+    @VisibleForTesting
+    final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    /**
+     * Returns the shared snapshot, which must be released once the caller is done with it.
+     */
+    static synchronized InstalledAppsSnapshot acquire() {
+        if (sInstance == null || !sInstance.retain()) {
+            sInstance = new InstalledAppsSnapshot(FeatureFactory.getAppContext());
+            sInstance.retain();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Drops the shared snapshot even if it is still referenced, unregistering its receiver.
+     */
+    @VisibleForTesting
+    static synchronized void reset() {
+        if (sInstance == null) {
+            return;
+        }
+        synchronized (sInstance) {
+            sInstance.mRefCount = 0;
+            sInstance.mHandler.removeCallbacks(sInstance.mDropRunnable);
+            sInstance.drop();
+        }
+        sInstance = null;
+    }
+
+    @VisibleForTesting
+    InstalledAppsSnapshot(Context context) {
+        mContext = context;
+        if (mContext != null) {
+            final IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+            filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+            filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+            filter.addDataScheme("package");
+            mContext.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, filter,
+                    null /* broadcastPermission */, null /* scheduler */);
+        }
+    }
+
+    /**
+     * Returns the applications installed for {@code user}, including the ones installed for any
+     * user if {@code user} is an admin. {@code packageManager} is used to query the list if it
+     * is not in the snapshot yet. The list must not be modified.
+     */
+    synchronized List<ApplicationInfo> getInstalledApplications(UserInfo user,
+            PackageManager packageManager) {
+        List<ApplicationInfo> applications = mApplications.get(user.id);
+        if (applications == null) {
+            applications = Collections.unmodifiableList(
+                    packageManager.getInstalledApplicationsAsUser(
+                            PackageManager.GET_DISABLED_COMPONENTS
+                                    | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
+                                    | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0),
+                            user.id));
+            mApplications.put(user.id, applications);
+        }
+        return applications;
+    }
+
+    synchronized void release() {
+        if (--mRefCount > 0) {
+            return;
+        }
+        if (mContext != null) {
+            mHandler.postDelayed(mDropRunnable, RETAIN_MILLIS);
+        } else {
+            drop();
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void invalidate() {
+        mApplications.clear();
+    }
+
+    /**
+     * Adds a reference, unless the snapshot was already dropped.
+     */
+    @VisibleForTesting
+    synchronized boolean retain() {
+        if (mDropped) {
+            return false;
+        }
+        mRefCount++;
+        mHandler.removeCallbacks(mDropRunnable);
+        return true;
+    }
+
+    @VisibleForTesting
+    synchronized void drop() {
+        if (mRefCount > 0 || mDropped) {
+            return;
+        }
+        mDropped = true;
+        mApplications.clear();
+        if (mContext != null) {
+            mContext.unregisterReceiver(mPackageReceiver);
+        }
+    }
+}
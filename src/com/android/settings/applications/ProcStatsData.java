@@ -23,6 +23,7 @@ import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.os.SystemClock;
+import android.text.format.DateUtils;
 import android.text.format.Formatter;
 import android.util.ArrayMap;
 import android.util.Log;
@@ -44,6 +45,7 @@ import com.android.settings.Utils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -53,6 +55,10 @@ public class ProcStatsData {
 
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
+    // How long a loaded snapshot, and anything aggregated from it, is reused before the stats
+    // are read from the service again.
+    private static final long SNAPSHOT_MAX_AGE_MS = DateUtils.MINUTE_IN_MILLIS;
+
     private static ProcessStats sStatsXfer;
 
     private PackageManager mPm;
@@ -73,6 +79,11 @@ public class ProcStatsData {
 
     private ArrayList<ProcStatsPackageEntry> pkgEntries;
 
+    // Snapshots loaded so far, keyed by duration, so switching back to a view that was shown
+    // recently only re-projects its cached aggregate.
+    private final LongSparseArray<Snapshot> mSnapshots = new LongSparseArray<>();
+    private Snapshot mSnapshot;
+
     public ProcStatsData(Context context, boolean useXfer) {
         mContext = context;
         mPm = context.getPackageManager();
@@ -80,8 +91,9 @@ public class ProcStatsData {
                 ServiceManager.getService(ProcessStats.SERVICE_NAME));
         mMemStates = ProcessStats.ALL_MEM_ADJ;
         mStates = ProcessStats.BACKGROUND_PROC_STATES;
-        if (useXfer) {
+        if (useXfer && sStatsXfer != null) {
             mStats = sStatsXfer;
+            mSnapshot = new Snapshot(mStats);
         }
     }
 
@@ -125,7 +137,14 @@ public class ProcStatsData {
     public void setDuration(long duration) {
         if (duration != mDuration) {
             mDuration = duration;
-            refreshStats(true);
+            final Snapshot snapshot = mSnapshots.get(duration);
+            if (snapshot != null && !snapshot.isExpired()) {
+                mSnapshot = snapshot;
+                mStats = snapshot.mStats;
+                refreshStats(false);
+            } else {
+                refreshStats(true);
+            }
         }
     }
 
@@ -141,7 +160,22 @@ public class ProcStatsData {
         if (mStats == null || forceLoad) {
             load();
         }
+        if (mSnapshot == null || mSnapshot.mStats != mStats) {
+            mSnapshot = new Snapshot(mStats);
+        }
 
+        Aggregate aggregate = mSnapshot.isExpired() ? null
+                : mSnapshot.getAggregate(mMemStates, mStates);
+        if (aggregate == null) {
+            aggregate = aggregate();
+            mSnapshot.putAggregate(aggregate);
+        }
+        memTotalTime = aggregate.mMemTotalTime;
+        mMemInfo = aggregate.mMemInfo;
+        pkgEntries = aggregate.mEntries;
+    }
+
+    private Aggregate aggregate() {
         pkgEntries = new ArrayList<>();
 
         long now = SystemClock.uptimeMillis();
@@ -168,6 +202,7 @@ public class ProcStatsData {
         ProcStatsPackageEntry osPkg = createOsEntry(bgTotals, runTotals, totalMem,
                 mMemInfo.baseCacheRam);
         pkgEntries.add(osPkg);
+        return new Aggregate(mMemStates, mStates, memTotalTime, mMemInfo, pkgEntries);
     }
 
     private void createPkgMap(ArrayList<ProcStatsEntry> procEntries, ProcessDataCollection bgTotals,
@@ -195,24 +230,25 @@ public class ProcStatsData {
 
         long zramMem = (long) (zramWeight / memTotalTime);
         long totalTime = 0;
-        for (int i = pkgEntries.size() - 1; i >= 0; i--) {
+        // Sum the run times of each package once, rather than again while distributing.
+        final int numPkgs = pkgEntries.size();
+        final long[] pkgRunTimes = new long[numPkgs];
+        final long[] maxRunTimes = new long[numPkgs];
+        for (int i = numPkgs - 1; i >= 0; i--) {
             ProcStatsPackageEntry entry = pkgEntries.get(i);
             for (int j = entry.mEntries.size() - 1; j >= 0; j--) {
                 ProcStatsEntry proc = entry.mEntries.get(j);
-                totalTime += proc.mRunDuration;
+                pkgRunTimes[i] += proc.mRunDuration;
+                if (proc.mRunDuration > maxRunTimes[i]) {
+                    maxRunTimes[i] = proc.mRunDuration;
+                }
             }
+            totalTime += pkgRunTimes[i];
         }
-        for (int i = pkgEntries.size() - 1; i >= 0 && totalTime > 0; i--) {
+        for (int i = numPkgs - 1; i >= 0 && totalTime > 0; i--) {
             ProcStatsPackageEntry entry = pkgEntries.get(i);
-            long pkgRunTime = 0;
-            long maxRunTime = 0;
-            for (int j = entry.mEntries.size() - 1; j >= 0; j--) {
-                ProcStatsEntry proc = entry.mEntries.get(j);
-                pkgRunTime += proc.mRunDuration;
-                if (proc.mRunDuration > maxRunTime) {
-                    maxRunTime = proc.mRunDuration;
-                }
-            }
+            final long pkgRunTime = pkgRunTimes[i];
+            final long maxRunTime = maxRunTimes[i];
             long pkgZRam = (zramMem*pkgRunTime)/totalTime;
             if (pkgZRam > 0) {
                 zramMem -= pkgZRam;
@@ -354,11 +390,80 @@ public class ProcStatsData {
             if (mStats.mReadError != null) {
                 Log.w(TAG, "Failure reading process stats: " + mStats.mReadError);
             }
+            mSnapshot = new Snapshot(mStats);
+            removeExpiredSnapshots();
+            mSnapshots.put(mDuration, mSnapshot);
         } catch (RemoteException e) {
             Log.e(TAG, "RemoteException:", e);
         }
     }
 
+    private void removeExpiredSnapshots() {
+        for (int i = mSnapshots.size() - 1; i >= 0; i--) {
+            if (mSnapshots.valueAt(i).isExpired()) {
+                mSnapshots.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * A loaded {@link ProcessStats} with the aggregates computed from it, one per memory state
+     * and process state filter.
+     */
+    private static class Snapshot {
+        final ProcessStats mStats;
+        final long mLoadTime;
+        final ArrayList<Aggregate> mAggregates = new ArrayList<>();
+
+        Snapshot(ProcessStats stats) {
+            mStats = stats;
+            mLoadTime = SystemClock.elapsedRealtime();
+        }
+
+        boolean isExpired() {
+            return SystemClock.elapsedRealtime() - mLoadTime >= SNAPSHOT_MAX_AGE_MS;
+        }
+
+        Aggregate getAggregate(int[] memStates, int[] states) {
+            for (int i = mAggregates.size() - 1; i >= 0; i--) {
+                final Aggregate aggregate = mAggregates.get(i);
+                if (Arrays.equals(aggregate.mMemStates, memStates)
+                        && Arrays.equals(aggregate.mStates, states)) {
+                    return aggregate;
+                }
+            }
+            return null;
+        }
+
+        void putAggregate(Aggregate aggregate) {
+            for (int i = mAggregates.size() - 1; i >= 0; i--) {
+                final Aggregate old = mAggregates.get(i);
+                if (Arrays.equals(old.mMemStates, aggregate.mMemStates)
+                        && Arrays.equals(old.mStates, aggregate.mStates)) {
+                    mAggregates.remove(i);
+                }
+            }
+            mAggregates.add(aggregate);
+        }
+    }
+
+    private static class Aggregate {
+        final int[] mMemStates;
+        final int[] mStates;
+        final long mMemTotalTime;
+        final MemInfo mMemInfo;
+        final ArrayList<ProcStatsPackageEntry> mEntries;
+
+        Aggregate(int[] memStates, int[] states, long memTotalTime, MemInfo memInfo,
+                ArrayList<ProcStatsPackageEntry> entries) {
+            mMemStates = memStates;
+            mStates = states;
+            mMemTotalTime = memTotalTime;
+            mMemInfo = memInfo;
+            mEntries = entries;
+        }
+    }
+
     public static class MemInfo {
         public double realUsedRam;
         public double realFreeRam;
@@ -26,7 +26,6 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.PowerManager;
 import android.os.UserHandle;
-import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 
@@ -42,10 +41,8 @@ import com.android.settingslib.utils.ThreadUtils;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 
@@ -62,6 +59,7 @@ public class RecentAppStatsMixin implements Comparator<UsageStats>, LifecycleObs
     private final PackageManager mPm;
     private final PowerManager mPowerManager;;
     private final UsageStatsManager mUsageStatsManager;
+    private final UsageStatsAggregator mUsageStatsAggregator;
     private final ApplicationsState mApplicationsState;
     private final List<RecentAppStatsListener> mAppStatsListeners;
     private Calendar mCalendar;
@@ -84,6 +82,7 @@ public class RecentAppStatsMixin implements Comparator<UsageStats>, LifecycleObs
         mPm = mContext.getPackageManager();
         mPowerManager = mContext.getSystemService(PowerManager.class);
         mUsageStatsManager = mContext.getSystemService(UsageStatsManager.class);
+        mUsageStatsAggregator = UsageStatsAggregator.getInstance(mContext);
         mApplicationsState = ApplicationsState.getInstance(
                 (Application) mContext.getApplicationContext());
         mRecentApps = new ArrayList<>();
@@ -115,43 +114,14 @@ public class RecentAppStatsMixin implements Comparator<UsageStats>, LifecycleObs
         mRecentApps.clear();
         mCalendar = Calendar.getInstance();
         mCalendar.add(Calendar.DAY_OF_YEAR, -1);
-        final List<UsageStats> mStats = mPowerManager.isPowerSaveMode()
-                ? new ArrayList<>()
-                : mUsageStatsManager.queryUsageStats(
-                        UsageStatsManager.INTERVAL_BEST, mCalendar.getTimeInMillis(),
-                        System.currentTimeMillis());
-
-        final Map<String, UsageStats> map = new ArrayMap<>();
-        final int statCount = mStats.size();
-        for (int i = 0; i < statCount; i++) {
-            final UsageStats pkgStats = mStats.get(i);
-            if (!shouldIncludePkgInRecents(pkgStats)) {
-                continue;
-            }
-            final String pkgName = pkgStats.getPackageName();
-            final UsageStats existingStats = map.get(pkgName);
-            if (existingStats == null) {
-                map.put(pkgName, pkgStats);
-            } else {
-                existingStats.add(pkgStats);
-            }
-        }
-        final List<UsageStats> packageStats = new ArrayList<>();
-        packageStats.addAll(map.values());
-        Collections.sort(packageStats, this /* comparator */);
-        int count = 0;
-        for (UsageStats stat : packageStats) {
-            final ApplicationsState.AppEntry appEntry = mApplicationsState.getEntry(
-                    stat.getPackageName(), mUserId);
-            if (appEntry == null) {
-                continue;
-            }
-            mRecentApps.add(stat);
-            count++;
-            if (count >= number) {
-                break;
-            }
+        if (mPowerManager.isPowerSaveMode()) {
+            return;
         }
+        // Only the most recent packages are checked, until enough of them are shown.
+        mRecentApps.addAll(mUsageStatsAggregator.getRecentPackageStats(mUsageStatsManager,
+                mCalendar.getTimeInMillis(), number,
+                stat -> shouldIncludePkgInRecents(stat)
+                        && mApplicationsState.getEntry(stat.getPackageName(), mUserId) != null));
     }
 
     /**
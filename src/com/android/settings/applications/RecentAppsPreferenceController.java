@@ -20,9 +20,9 @@ import android.app.Application;
 import android.app.settings.SettingsEnums;
 import android.app.usage.UsageStats;
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.icu.text.RelativeDateTimeFormatter;
 import android.os.UserHandle;
-import android.util.IconDrawableFactory;
 import android.util.Log;
 import android.view.View;
 
@@ -64,7 +64,7 @@ public class RecentAppsPreferenceController extends BasePreferenceController
 
     private final ApplicationsState mApplicationsState;
     private final int mUserId;
-    private final IconDrawableFactory mIconDrawableFactory;
+    private final AppIconCache mIconCache;
 
     private Fragment mHost;
     private List<UsageStats> mRecentApps;
@@ -74,7 +74,7 @@ public class RecentAppsPreferenceController extends BasePreferenceController
         mApplicationsState = ApplicationsState.getInstance(
                 (Application) mContext.getApplicationContext());
         mUserId = UserHandle.myUserId();
-        mIconDrawableFactory = IconDrawableFactory.newInstance(mContext);
+        mIconCache = AppIconCache.getInstance(mContext);
     }
 
     public void setFragment(Fragment fragment) {
@@ -133,13 +133,25 @@ public class RecentAppsPreferenceController extends BasePreferenceController
     }
 
     private void displayRecentApps() {
+        final List<UsageStats> recentApps = mRecentApps;
         int showAppsCount = 0;
 
-        for (UsageStats stat : mRecentApps) {
-            final AppEntityInfo appEntityInfoInfo = createAppEntity(stat);
-            if (appEntityInfoInfo != null) {
-                mAppEntitiesController.setAppEntity(showAppsCount++, appEntityInfoInfo);
+        for (UsageStats stat : recentApps) {
+            final ApplicationsState.AppEntry appEntry =
+                    mApplicationsState.getEntry(stat.getPackageName(), mUserId);
+            if (appEntry == null) {
+                continue;
             }
+            final int index = showAppsCount++;
+            // Icons that are not cached yet are decoded off the main thread.
+            mIconCache.loadBadgedIcon(appEntry.info, icon -> {
+                if (recentApps != mRecentApps) {
+                    // Reloaded meanwhile, the newer list owns this slot.
+                    return;
+                }
+                mAppEntitiesController.setAppEntity(index, createAppEntity(stat, appEntry, icon));
+                mAppEntitiesController.apply();
+            });
 
             if (showAppsCount == AppEntitiesHeaderController.MAXIMUM_APPS) {
                 break;
@@ -147,16 +159,11 @@ public class RecentAppsPreferenceController extends BasePreferenceController
         }
     }
 
-    private AppEntityInfo createAppEntity(UsageStats stat) {
+    private AppEntityInfo createAppEntity(UsageStats stat, ApplicationsState.AppEntry appEntry,
+            Drawable icon) {
         final String pkgName = stat.getPackageName();
-        final ApplicationsState.AppEntry appEntry =
-                mApplicationsState.getEntry(pkgName, mUserId);
-        if (appEntry == null) {
-            return null;
-        }
-
         return new AppEntityInfo.Builder()
-                .setIcon(mIconDrawableFactory.getBadgedIcon(appEntry.info))
+                .setIcon(icon)
                 .setTitle(appEntry.label)
                 .setSummary(StringUtil.formatRelativeTime(mContext,
                         System.currentTimeMillis() - stat.getLastTimeUsed(), false,
@@ -72,6 +72,8 @@ public class RunningState {
 
     static final long TIME_UPDATE_DELAY = 1000;
     static final long CONTENTS_UPDATE_DELAY = 2000;
+    // Upper bound of the update delay, which doubles while nothing changes.
+    static final long MAX_CONTENTS_UPDATE_DELAY = 16000;
 
     static final int MAX_SERVICES = 100;
 
@@ -125,13 +127,21 @@ public class RunningState {
     final SparseArray<MergedItem> mOtherUserBackgroundItems = new SparseArray<MergedItem>();
 
     static class AppProcessInfo {
-        final ActivityManager.RunningAppProcessInfo info;
+        ActivityManager.RunningAppProcessInfo info;
         boolean hasServices;
         boolean hasForegroundServices;
+        int seq;
 
         AppProcessInfo(ActivityManager.RunningAppProcessInfo _info) {
             info = _info;
         }
+
+        void reset(ActivityManager.RunningAppProcessInfo _info, int _seq) {
+            info = _info;
+            hasServices = false;
+            hasForegroundServices = false;
+            seq = _seq;
+        }
     }
 
     // Temporary structure used when updating above information.
@@ -205,6 +215,7 @@ public class RunningState {
     boolean mResumed;
     boolean mHaveData;
     boolean mWatchingBackgroundItems;
+    long mContentsUpdateDelay = CONTENTS_UPDATE_DELAY;
 
     ArrayList<BaseItem> mItems = new ArrayList<BaseItem>();
     ArrayList<MergedItem> mMergedItems = new ArrayList<MergedItem>();
@@ -238,12 +249,23 @@ public class RunningState {
                             return;
                         }
                     }
-                    Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
-                    cmd.arg1 = update(mApplicationContext, mAm) ? 1 : 0;
-                    mHandler.sendMessage(cmd);
+                    final int refresh = update(mApplicationContext, mAm);
+                    final long delay;
+                    synchronized (mLock) {
+                        // Back off while nothing changes, the UI only needs to tick the times.
+                        mContentsUpdateDelay = refresh == OnRefreshUiListener.REFRESH_TIME
+                                ? Math.min(mContentsUpdateDelay * 2, MAX_CONTENTS_UPDATE_DELAY)
+                                : CONTENTS_UPDATE_DELAY;
+                        delay = mContentsUpdateDelay;
+                    }
+                    if (refresh != OnRefreshUiListener.REFRESH_TIME) {
+                        Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
+                        cmd.arg1 = refresh;
+                        mHandler.sendMessage(cmd);
+                    }
                     removeMessages(MSG_UPDATE_CONTENTS);
                     msg = obtainMessage(MSG_UPDATE_CONTENTS);
-                    sendMessageDelayed(msg, CONTENTS_UPDATE_DELAY);
+                    sendMessageDelayed(msg, delay);
                     break;
             }
         }
@@ -258,9 +280,8 @@ public class RunningState {
         public void handleMessage(Message msg) {
             switch (msg.what) {
                 case MSG_REFRESH_UI:
-                    mNextUpdate = msg.arg1 != 0
-                            ? OnRefreshUiListener.REFRESH_STRUCTURE
-                            : OnRefreshUiListener.REFRESH_DATA;
+                    // Keep a pending structure refresh until the UI has picked it up.
+                    mNextUpdate = Math.max(mNextUpdate, msg.arg1);
                     break;
                 case MSG_UPDATE_TIME:
                     synchronized (mLock) {
@@ -350,6 +371,8 @@ public class RunningState {
         long mSize;
         String mSizeStr;
         String mCurSizeStr;
+        // Size mSizeStr was formatted from, to skip formatting an unchanged size.
+        long mLastFormattedSize = -1;
         boolean mNeedDivider;
         boolean mBackground;
 
@@ -372,6 +395,9 @@ public class RunningState {
         ActivityManager.RunningServiceInfo mRunningService;
         ServiceInfo mServiceInfo;
         boolean mShownAsStarted;
+        // Client the description was built for, so it is only rebuilt when that changes.
+        String mClientPackage;
+        int mClientLabel;
         
         MergedItem mMergedItem;
         
@@ -528,37 +554,46 @@ public class RunningState {
                     si.mShownAsStarted = false;
                     changed = true;
                 }
-                try {
-                    Resources clientr = pm.getResourcesForApplication(service.clientPackage);
-                    String label = clientr.getString(service.clientLabel);
-                    si.mDescription = context.getResources().getString(
-                            R.string.service_client_name, label);
-                } catch (PackageManager.NameNotFoundException e) {
-                    si.mDescription = null;
+                if (!service.clientPackage.equals(si.mClientPackage)
+                        || service.clientLabel != si.mClientLabel) {
+                    si.mClientPackage = service.clientPackage;
+                    si.mClientLabel = service.clientLabel;
+                    try {
+                        Resources clientr = pm.getResourcesForApplication(service.clientPackage);
+                        String label = clientr.getString(service.clientLabel);
+                        si.mDescription = context.getResources().getString(
+                                R.string.service_client_name, label);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        si.mDescription = null;
+                    }
                 }
             } else {
                 if (!si.mShownAsStarted) {
                     si.mShownAsStarted = true;
                     changed = true;
+                    si.mClientPackage = null;
+                    si.mClientLabel = 0;
+                    si.mDescription = context.getResources().getString(
+                            R.string.service_started_by_app);
                 }
-                si.mDescription = context.getResources().getString(
-                        R.string.service_started_by_app);
             }
             
             return changed;
         }
         
+        /**
+         * Updates the size of the process. Returns true if its displayed size changed, which
+         * only needs the text of the current items to be updated.
+         */
         boolean updateSize(Context context, long pss, int curSeq) {
             mSize = pss * 1024;
-            if (mCurSeq == curSeq) {
+            if (mCurSeq == curSeq && (mSize != mLastFormattedSize || mSizeStr == null)) {
+                mLastFormattedSize = mSize;
                 String sizeStr = Formatter.formatShortFileSize(
                         context, mSize);
                 if (!sizeStr.equals(mSizeStr)){
                     mSizeStr = sizeStr;
-                    // We update this on the second tick where we update just
-                    // the text in the current items, so no need to say we
-                    // changed here.
-                    return false;
+                    return true;
                 }
             }
             return false;
@@ -694,14 +729,16 @@ public class RunningState {
                 }
             }
             
+            if (mSize == mLastFormattedSize && mSizeStr != null) {
+                return false;
+            }
+            mLastFormattedSize = mSize;
             String sizeStr = Formatter.formatShortFileSize(
                     context, mSize);
             if (!sizeStr.equals(mSizeStr)){
                 mSizeStr = sizeStr;
-                // We update this on the second tick where we update just
-                // the text in the current items, so no need to say we
-                // changed here.
-                return false;
+                // Only the text of the current items needs to be updated.
+                return true;
             }
             return false;
         }
@@ -793,6 +830,7 @@ public class RunningState {
         synchronized (mLock) {
             mResumed = true;
             mRefreshUiListener = listener;
+            mContentsUpdateDelay = CONTENTS_UPDATE_DELAY;
             boolean usersChanged = mUmBroadcastReceiver.checkUsersChangedLocked();
             boolean configChanged =
                     mInterestingConfigChanges.applyNewConfig(mApplicationContext.getResources());
@@ -811,6 +849,7 @@ public class RunningState {
 
     void updateNow() {
         synchronized (mLock) {
+            mContentsUpdateDelay = CONTENTS_UPDATE_DELAY;
             mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
             mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
         }
@@ -893,12 +932,20 @@ public class RunningState {
         userItem.mChildren.add(newItem);
     }
 
-    private boolean update(Context context, ActivityManager am) {
+    /**
+     * Reconciles the items with the running services and processes, reusing existing items.
+     *
+     * @return {@link OnRefreshUiListener#REFRESH_STRUCTURE} if the items changed,
+     * {@link OnRefreshUiListener#REFRESH_DATA} if only sizes or totals changed, or
+     * {@link OnRefreshUiListener#REFRESH_TIME} if nothing changed.
+     */
+    private int update(Context context, ActivityManager am) {
         final PackageManager pm = context.getPackageManager();
 
         mSequence++;
         
         boolean changed = false;
+        boolean dataChanged = false;
 
         // Retrieve list of services, filtering out anything that definitely
         // won't be shown in the UI.
@@ -932,10 +979,19 @@ public class RunningState {
         List<ActivityManager.RunningAppProcessInfo> processes
                 = am.getRunningAppProcesses();
         final int NP = processes != null ? processes.size() : 0;
-        mTmpAppProcesses.clear();
         for (int i=0; i<NP; i++) {
             ActivityManager.RunningAppProcessInfo pi = processes.get(i);
-            mTmpAppProcesses.put(pi.pid, new AppProcessInfo(pi));
+            AppProcessInfo ainfo = mTmpAppProcesses.get(pi.pid);
+            if (ainfo == null) {
+                ainfo = new AppProcessInfo(pi);
+                mTmpAppProcesses.put(pi.pid, ainfo);
+            }
+            ainfo.reset(pi, mSequence);
+        }
+        for (int i = mTmpAppProcesses.size() - 1; i >= 0; i--) {
+            if (mTmpAppProcesses.valueAt(i).seq != mSequence) {
+                mTmpAppProcesses.removeAt(i);
+            }
         }
 
         // Initial iteration through running services to collect per-process
@@ -1324,7 +1380,7 @@ public class RunningState {
             int bgIndex = 0;
             for (int i=0; i<pids.length; i++) {
                 ProcessItem proc = mAllProcessItems.get(i);
-                changed |= proc.updateSize(context, pss[i], mSequence);
+                dataChanged |= proc.updateSize(context, pss[i], mSequence);
                 if (proc.mCurSeq == mSequence) {
                     serviceProcessMemory += proc.mSize;
                 } else if (proc.mRunningProcessInfo.importance >=
@@ -1332,8 +1388,7 @@ public class RunningState {
                     backgroundProcessMemory += proc.mSize;
                     MergedItem mergedItem;
                     if (newBackgroundItems != null) {
-                        mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
-                        proc.mMergedItem.mProcess = proc;
+                        mergedItem = getBackgroundMergedItem(proc);
                         diffUsers |= mergedItem.mUserId != mMyUserId;
                         newBackgroundItems.add(mergedItem);
                     } else {
@@ -1345,8 +1400,7 @@ public class RunningState {
                                 diffUsers |= mergedItem.mUserId != mMyUserId;
                                 newBackgroundItems.add(mergedItem);
                             }
-                            mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
-                            proc.mMergedItem.mProcess = proc;
+                            mergedItem = getBackgroundMergedItem(proc);
                             diffUsers |= mergedItem.mUserId != mMyUserId;
                             newBackgroundItems.add(mergedItem);
                         } else {
@@ -1354,7 +1408,7 @@ public class RunningState {
                         }
                     }
                     mergedItem.update(context, true);
-                    mergedItem.updateSize(context);
+                    dataChanged |= mergedItem.updateSize(context);
                     bgIndex++;
                 } else if (proc.mRunningProcessInfo.importance <=
                         ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE) {
@@ -1403,17 +1457,26 @@ public class RunningState {
                     MergedItem user = mOtherUserBackgroundItems.valueAt(i);
                     if (user.mCurSeq == mSequence) {
                         user.update(context, true);
-                        user.updateSize(context);
+                        dataChanged |= user.updateSize(context);
                     }
                 }
             }
         }
 
         for (int i=0; i<mMergedItems.size(); i++) {
-            mMergedItems.get(i).updateSize(context);
+            dataChanged |= mMergedItems.get(i).updateSize(context);
         }
         
         synchronized (mLock) {
+            dataChanged |= mNumBackgroundProcesses != numBackgroundProcesses
+                    || mNumForegroundProcesses != numForegroundProcesses
+                    || mNumServiceProcesses != numServiceProcesses
+                    || !isSameDisplayedSize(context, mBackgroundProcessMemory,
+                            backgroundProcessMemory)
+                    || !isSameDisplayedSize(context, mForegroundProcessMemory,
+                            foregroundProcessMemory)
+                    || !isSameDisplayedSize(context, mServiceProcessMemory,
+                            serviceProcessMemory);
             mNumBackgroundProcesses = numBackgroundProcesses;
             mNumForegroundProcesses = numForegroundProcesses;
             mNumServiceProcesses = numServiceProcesses;
@@ -1433,7 +1496,30 @@ public class RunningState {
             }
         }
         
-        return changed;
+        if (changed) {
+            return OnRefreshUiListener.REFRESH_STRUCTURE;
+        }
+        return dataChanged ? OnRefreshUiListener.REFRESH_DATA : OnRefreshUiListener.REFRESH_TIME;
+    }
+
+    private static boolean isSameDisplayedSize(Context context, long oldSize, long newSize) {
+        return oldSize == newSize || Formatter.formatShortFileSize(context, oldSize).equals(
+                Formatter.formatShortFileSize(context, newSize));
+    }
+
+    /**
+     * Returns the merged item showing {@code proc} in the background list, reusing the one
+     * built in a previous update if there is one.
+     */
+    private MergedItem getBackgroundMergedItem(ProcessItem proc) {
+        final MergedItem existing = proc.mMergedItem;
+        if (existing != null && existing.mProcess == proc && existing.mServices.isEmpty()
+                && existing.mOtherProcesses.isEmpty()) {
+            return existing;
+        }
+        proc.mMergedItem = new MergedItem(proc.mUserId);
+        proc.mMergedItem.mProcess = proc;
+        return proc.mMergedItem;
     }
     
     void setWatchingBackgroundItems(boolean watching) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.usage.UsageStats;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Per-process aggregation of {@link UsageStats} by package, shared by the recent apps of the Apps
+ * page and {@link com.android.settings.UsageStatsActivity}.
+ *
+ * Daily buckets of the last requested window are kept, so the next request only queries the
+ * bucket that is still open and any newer one, replacing what it had of them. Requests for a
+ * window starting earlier than the kept one query the whole window again.
+ *
+ * The buckets are shared by all callers, whichever {@link UsageStatsManager} they hold. The
+ * manager is only used for the query and is not kept, so the aggregator does not hold on to the
+ * calling activity.
+ */
+public class UsageStatsAggregator {
+
+    private static UsageStatsAggregator sInstance;
+
+    private final Context mContext;
+
+    // Buckets by package, at most one per begin time.
+    private final ArrayMap<String, List<UsageStats>> mBuckets = new ArrayMap<>();
+    // Start of the window the buckets cover, or -1 if nothing was loaded.
+    private long mLoadedSince = -1;
+    // Begin time of the latest bucket, the one that may still get usage.
+    private long mLatestBucketBegin;
+
+    public static synchronized UsageStatsAggregator getInstance(Context context) {
+        final Context appContext = context.getApplicationContext() != null
+                ? context.getApplicationContext() : context;
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new UsageStatsAggregator(appContext);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    UsageStatsAggregator(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the usage of every package used since {@code beginTime}, one entry per package.
+     * Entries are copies the caller may modify. Queries the usage stats service.
+     */
+    public synchronized List<UsageStats> getPackageStats(UsageStatsManager manager,
+            long beginTime) {
+        update(manager, beginTime);
+        final List<UsageStats> packageStats = new ArrayList<>(mBuckets.size());
+        for (int i = 0; i < mBuckets.size(); i++) {
+            packageStats.add(aggregate(mBuckets.valueAt(i)));
+        }
+        return packageStats;
+    }
+
+    /**
+     * Returns up to {@code count} packages used since {@code beginTime} that match
+     * {@code filter}, most recently used first. {@code filter} is only called on packages until
+     * {@code count} of them matched. Queries the usage stats service.
+     */
+    public synchronized List<UsageStats> getRecentPackageStats(UsageStatsManager manager,
+            long beginTime, int count, Predicate<UsageStats> filter) {
+        update(manager, beginTime);
+        final PriorityQueue<UsageStats> recents = new PriorityQueue<>(
+                Math.max(1, mBuckets.size()),
+                (a, b) -> Long.compare(b.getLastTimeUsed(), a.getLastTimeUsed()));
+        for (int i = 0; i < mBuckets.size(); i++) {
+            recents.add(aggregate(mBuckets.valueAt(i)));
+        }
+        final List<UsageStats> packageStats = new ArrayList<>(count);
+        while (packageStats.size() < count && !recents.isEmpty()) {
+            final UsageStats stats = recents.poll();
+            if (filter.test(stats)) {
+                packageStats.add(stats);
+            }
+        }
+        return packageStats;
+    }
+
+    private void update(UsageStatsManager manager, long beginTime) {
+        final long now = System.currentTimeMillis();
+        if (mLoadedSince < 0 || beginTime < mLoadedSince) {
+            mBuckets.clear();
+            mLatestBucketBegin = beginTime;
+            merge(manager.queryUsageStats(UsageStatsManager.INTERVAL_DAILY, beginTime, now));
+        } else {
+            evictBefore(beginTime);
+            merge(manager.queryUsageStats(UsageStatsManager.INTERVAL_DAILY,
+                    Math.max(beginTime, mLatestBucketBegin), now));
+        }
+        mLoadedSince = beginTime;
+    }
+
+    private void merge(List<UsageStats> stats) {
+        if (stats == null) {
+            return;
+        }
+        final int statCount = stats.size();
+        for (int i = 0; i < statCount; i++) {
+            final UsageStats bucket = stats.get(i);
+            List<UsageStats> buckets = mBuckets.get(bucket.getPackageName());
+            if (buckets == null) {
+                buckets = new ArrayList<>();
+                mBuckets.put(bucket.getPackageName(), buckets);
+            }
+            // A newer query of the same bucket replaces it.
+            for (int j = buckets.size() - 1; j >= 0; j--) {
+                if (buckets.get(j).getFirstTimeStamp() == bucket.getFirstTimeStamp()) {
+                    buckets.remove(j);
+                }
+            }
+            buckets.add(bucket);
+            mLatestBucketBegin = Math.max(mLatestBucketBegin, bucket.getFirstTimeStamp());
+        }
+    }
+
+    private void evictBefore(long beginTime) {
+        for (int i = mBuckets.size() - 1; i >= 0; i--) {
+            final List<UsageStats> buckets = mBuckets.valueAt(i);
+            for (int j = buckets.size() - 1; j >= 0; j--) {
+                final UsageStats bucket = buckets.get(j);
+                if (Math.max(bucket.getLastTimeStamp(), bucket.getLastTimeUsed()) < beginTime) {
+                    buckets.remove(j);
+                }
+            }
+            if (buckets.isEmpty()) {
+                mBuckets.removeAt(i);
+            }
+        }
+    }
+
+    private static UsageStats aggregate(List<UsageStats> buckets) {
+        final UsageStats packageStats = new UsageStats(buckets.get(0));
+        for (int i = 1; i < buckets.size(); i++) {
+            packageStats.add(buckets.get(i));
+        }
+        return packageStats;
+    }
+}
@@ -27,6 +27,7 @@ import android.graphics.drawable.Drawable;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.format.DateUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.util.SparseArray;
 
@@ -514,8 +515,8 @@ public class AppOpsState {
                     return null;
                 }
             }
+            // The label is loaded once the entry is known to be shown.
             appEntry = new AppEntry(this, appInfo);
-            appEntry.loadLabel(context);
             appEntries.put(packageName, appEntry);
         }
         return appEntry;
@@ -532,15 +533,15 @@ public class AppOpsState {
         final HashMap<String, AppEntry> appEntries = new HashMap<String, AppEntry>();
         final List<AppOpEntry> entries = new ArrayList<AppOpEntry>();
 
-        final ArrayList<String> perms = new ArrayList<String>();
-        final ArrayList<Integer> permOps = new ArrayList<Integer>();
+        // Op shown for apps holding a permission, by permission, so requested permissions are
+        // matched with one lookup instead of a scan of the template.
+        final ArrayMap<String, Integer> permToOp = new ArrayMap<String, Integer>();
         final int[] opToOrder = new int[AppOpsManager._NUM_OP];
         for (int i=0; i<tpl.ops.length; i++) {
             if (tpl.showPerms[i]) {
                 String perm = AppOpsManager.opToPermission(tpl.ops[i]);
-                if (perm != null && !perms.contains(perm)) {
-                    perms.add(perm);
-                    permOps.add(tpl.ops[i]);
+                if (perm != null && !permToOp.containsKey(perm)) {
+                    permToOp.put(perm, tpl.ops[i]);
                     opToOrder[tpl.ops[i]] = i;
                 }
             }
@@ -577,8 +578,8 @@ public class AppOpsState {
             } catch (NameNotFoundException e) {
             }
         } else {
-            String[] permsArray = new String[perms.size()];
-            perms.toArray(permsArray);
+            String[] permsArray = new String[permToOp.size()];
+            permToOp.keySet().toArray(permsArray);
             apps = mPm.getPackagesHoldingPermissions(permsArray, 0);
         }
         for (int i=0; i<apps.size(); i++) {
@@ -602,31 +603,37 @@ public class AppOpsState {
                     }
                     if (DEBUG) Log.d(TAG, "Pkg " + appInfo.packageName + ": requested perm "
                             + appInfo.requestedPermissions[j]);
-                    for (int k=0; k<perms.size(); k++) {
-                        if (!perms.get(k).equals(appInfo.requestedPermissions[j])) {
-                            continue;
-                        }
-                        if (DEBUG) Log.d(TAG, "Pkg " + appInfo.packageName + " perm " + perms.get(k)
-                                + " has op " + permOps.get(k) + ": " + appEntry.hasOp(permOps.get(k)));
-                        if (appEntry.hasOp(permOps.get(k))) {
-                            continue;
-                        }
-                        if (dummyOps == null) {
-                            dummyOps = new ArrayList<AppOpsManager.OpEntry>();
-                            pkgOps = new AppOpsManager.PackageOps(
-                                    appInfo.packageName, appInfo.applicationInfo.uid, dummyOps);
+                    final Integer permOp = permToOp.get(appInfo.requestedPermissions[j]);
+                    if (permOp == null) {
+                        continue;
+                    }
+                    final int op = permOp;
+                    if (DEBUG) Log.d(TAG, "Pkg " + appInfo.packageName + " perm "
+                            + appInfo.requestedPermissions[j] + " has op " + op + ": "
+                            + appEntry.hasOp(op));
+                    if (appEntry.hasOp(op)) {
+                        continue;
+                    }
+                    if (dummyOps == null) {
+                        dummyOps = new ArrayList<AppOpsManager.OpEntry>();
+                        pkgOps = new AppOpsManager.PackageOps(
+                                appInfo.packageName, appInfo.applicationInfo.uid, dummyOps);
 
-                        }
-                        AppOpsManager.OpEntry opEntry = new AppOpsManager.OpEntry(
-                                permOps.get(k), AppOpsManager.MODE_ALLOWED);
-                        dummyOps.add(opEntry);
-                        addOp(entries, pkgOps, appEntry, opEntry, packageName == null,
-                                packageName == null ? 0 : opToOrder[opEntry.getOp()]);
                     }
+                    AppOpsManager.OpEntry opEntry = new AppOpsManager.OpEntry(
+                            op, AppOpsManager.MODE_ALLOWED);
+                    dummyOps.add(opEntry);
+                    addOp(entries, pkgOps, appEntry, opEntry, packageName == null,
+                            packageName == null ? 0 : opToOrder[opEntry.getOp()]);
                 }
             }
         }
 
+        // Only load the labels of apps that are shown, the comparators need them.
+        for (int i=0; i<entries.size(); i++) {
+            entries.get(i).getAppEntry().loadLabel(context);
+        }
+
         // Sort the list.
         Collections.sort(entries, comparator);
 
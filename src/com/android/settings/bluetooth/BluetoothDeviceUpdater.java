@@ -19,6 +19,8 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -35,9 +37,13 @@ import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import com.android.settingslib.bluetooth.LocalBluetoothProfileManager;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Update the bluetooth devices. It gets bluetooth event from {@link LocalBluetoothManager} using
@@ -46,6 +52,10 @@ import java.util.Map;
  *
  * In {@link BluetoothDeviceUpdater}, it uses {@link BluetoothDeviceFilter.Filter} to detect
  * whether the {@link CachedBluetoothDevice} is relevant.
+ *
+ * Device state changes are not applied one by one. They are collected and applied together on
+ * the main thread after the events already queued there, so a burst of events during pairing or
+ * discovery adds and removes preferences in one pass, and updates each device only once.
  */
 public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         LocalBluetoothProfileManager.ServiceListener {
@@ -59,6 +69,10 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
     @VisibleForTesting
     protected LocalBluetoothManager mLocalManager;
 
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // Devices whose state changed since the last batch was applied, in arrival order.
+    private final Set<CachedBluetoothDevice> mPendingDevices = new LinkedHashSet<>();
+
     @VisibleForTesting
     final GearPreference.OnGearClickListener mDeviceProfilesListener = pref -> {
         launchDeviceDetails(pref);
@@ -103,6 +117,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         mLocalManager.setForegroundActivity(null);
         mLocalManager.getEventManager().unregisterCallback(this);
         mLocalManager.getProfileManager().removeServiceListener(this);
+        mPendingDevices.clear();
     }
 
     /**
@@ -117,7 +132,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             final Collection<CachedBluetoothDevice> cachedDevices =
                     mLocalManager.getCachedDeviceManager().getCachedDevicesCopy();
             for (CachedBluetoothDevice cachedBluetoothDevice : cachedDevices) {
-                update(cachedBluetoothDevice);
+                scheduleUpdate(cachedBluetoothDevice);
             }
         } else {
           removeAllDevicesFromPreference();
@@ -129,6 +144,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.e(TAG, "removeAllDevicesFromPreference() BT is not supported on this device");
             return;
         }
+        mPendingDevices.clear();
         final Collection<CachedBluetoothDevice> cachedDevices =
                 mLocalManager.getCachedDeviceManager().getCachedDevicesCopy();
         for (CachedBluetoothDevice cachedBluetoothDevice : cachedDevices) {
@@ -147,7 +163,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
 
     @Override
     public void onDeviceAdded(CachedBluetoothDevice cachedDevice) {
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
@@ -155,12 +171,13 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         // Used to combine the hearing aid entries just after pairing. Once both the hearing aids
         // get connected and their hiSyncId gets populated, this gets called for one of the
         // 2 hearing aids so that only one entry in the connected devices list will be seen.
+        mPendingDevices.remove(cachedDevice);
         removePreference(cachedDevice);
     }
 
     @Override
     public void onDeviceBondStateChanged(CachedBluetoothDevice cachedDevice, int bondState) {
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
@@ -170,7 +187,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(TAG, "onProfileConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state + ", bluetoothProfile: " + bluetoothProfile);
         }
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
@@ -179,7 +196,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(TAG, "onAclConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state);
         }
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
@@ -206,6 +223,30 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
      */
     public abstract boolean isFilterMatched(CachedBluetoothDevice cachedBluetoothDevice);
 
+    /**
+     * Queue {@code cachedBluetoothDevice} to be updated with the next batch.
+     */
+    protected void scheduleUpdate(CachedBluetoothDevice cachedBluetoothDevice) {
+        if (mPendingDevices.add(cachedBluetoothDevice) && mPendingDevices.size() == 1) {
+            mHandler.post(this::applyPendingUpdates);
+        }
+    }
+
+    /**
+     * Update all devices queued by {@link #scheduleUpdate(CachedBluetoothDevice)}.
+     */
+    @VisibleForTesting
+    void applyPendingUpdates() {
+        if (mPendingDevices.isEmpty()) {
+            return;
+        }
+        final List<CachedBluetoothDevice> devices = new ArrayList<>(mPendingDevices);
+        mPendingDevices.clear();
+        for (CachedBluetoothDevice cachedBluetoothDevice : devices) {
+            update(cachedBluetoothDevice);
+        }
+    }
+
     /**
      * Update whether to show {@link CachedBluetoothDevice} in the list.
      */
@@ -19,6 +19,8 @@ package com.android.settings.bluetooth;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.SystemProperties;
 import android.text.BidiFormatter;
 import android.util.Log;
@@ -35,8 +37,12 @@ import com.android.settingslib.bluetooth.BluetoothDeviceFilter;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.bluetooth.LocalBluetoothManager;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.WeakHashMap;
 
 /**
@@ -75,6 +81,10 @@ public abstract class DeviceListPreferenceFragment extends
 
     boolean mShowDevicesWithoutNames;
 
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // Devices found since the last batch was applied, in arrival order.
+    private final Set<CachedBluetoothDevice> mPendingDevices = new LinkedHashSet<>();
+
     DeviceListPreferenceFragment(String restrictedKey) {
         super(restrictedKey);
         mFilter = BluetoothDeviceFilter.ALL_FILTER;
@@ -131,6 +141,7 @@ public abstract class DeviceListPreferenceFragment extends
     }
 
     void removeAllDevices() {
+        mPendingDevices.clear();
         mDevicePreferenceMap.clear();
         mDeviceListGroup.removeAll();
     }
@@ -139,7 +150,7 @@ public abstract class DeviceListPreferenceFragment extends
         Collection<CachedBluetoothDevice> cachedDevices =
                 mLocalManager.getCachedDeviceManager().getCachedDevicesCopy();
         for (CachedBluetoothDevice cachedDevice : cachedDevices) {
-            onDeviceAdded(cachedDevice);
+            addDevice(cachedDevice);
         }
     }
 
@@ -167,6 +178,35 @@ public abstract class DeviceListPreferenceFragment extends
 
     @Override
     public void onDeviceAdded(CachedBluetoothDevice cachedDevice) {
+        scheduleUpdate(cachedDevice);
+    }
+
+    /**
+     * Queue {@code cachedDevice} to be added with the next batch, so a discovery finding many
+     * devices at once doesn't update the list once per device.
+     */
+    void scheduleUpdate(CachedBluetoothDevice cachedDevice) {
+        if (mPendingDevices.add(cachedDevice) && mPendingDevices.size() == 1) {
+            mHandler.post(this::applyPendingUpdates);
+        }
+    }
+
+    /**
+     * Add all devices queued by {@link #scheduleUpdate(CachedBluetoothDevice)}.
+     */
+    @VisibleForTesting
+    void applyPendingUpdates() {
+        if (mPendingDevices.isEmpty()) {
+            return;
+        }
+        final List<CachedBluetoothDevice> devices = new ArrayList<>(mPendingDevices);
+        mPendingDevices.clear();
+        for (CachedBluetoothDevice cachedDevice : devices) {
+            addDevice(cachedDevice);
+        }
+    }
+
+    void addDevice(CachedBluetoothDevice cachedDevice) {
         if (mDevicePreferenceMap.get(cachedDevice) != null) {
             return;
         }
@@ -217,6 +257,7 @@ public abstract class DeviceListPreferenceFragment extends
 
     @Override
     public void onDeviceDeleted(CachedBluetoothDevice cachedDevice) {
+        mPendingDevices.remove(cachedDevice);
         BluetoothDevicePreference preference = mDevicePreferenceMap.remove(cachedDevice);
         if (preference != null) {
             mDeviceListGroup.removePreference(preference);
@@ -279,6 +279,30 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
         void onBlockerWorkFinished(BasePreferenceController controller);
     }
 
+    /**
+     * Used for {@link BasePreferenceController} whose state computation is too expensive for
+     * the main thread (i.e. it needs binder calls).
+     *
+     * The host runs {@link #isAvailable()} and {@link #loadState()} for all such controllers in
+     * parallel on background threads, then hands each immutable snapshot back to
+     * {@link #applyState(Preference, Object)} on the main thread. {@link #updateState(Preference)}
+     * is not called by the host for these controllers.
+     *
+     * @param <T> type of the immutable state snapshot
+     */
+    public interface BackgroundStateLoader<T> {
+        /**
+         * Computes the state snapshot. Called on a background thread, so it must not touch any
+         * {@link Preference} or other UI object.
+         */
+        T loadState();
+
+        /**
+         * Applies a snapshot returned by {@link #loadState()}. Called on the main thread.
+         */
+        void applyState(Preference preference, T state);
+    }
+
     /**
      * Used for {@link BasePreferenceController} to decide whether it is ui blocker.
      * If it is, entire UI will be invisible for a certain period until controller
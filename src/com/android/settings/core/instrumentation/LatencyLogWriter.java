@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import com.android.settingslib.core.instrumentation.LogWriter;
+
+/**
+ * A {@link LogWriter} that also receives latencies from {@link SettingsMetricsFeatureProvider}.
+ */
+public interface LatencyLogWriter extends LogWriter {
+
+    /**
+     * Called when {@code name} took {@code latencyMs}.
+     */
+    void latency(String name, long latencyMs);
+
+    /**
+     * Called when page {@code pageId} took {@code latencyMs} from attach until all its
+     * preferences were added.
+     */
+    void pageInteractive(int pageId, long latencyMs);
+
+    /**
+     * Called when event {@code name} happened, e.g. a cache hit.
+     */
+    void count(String name);
+}
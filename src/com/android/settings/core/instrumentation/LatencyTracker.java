@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.performance.PerformanceProto.Counter;
+import com.android.settings.performance.PerformanceProto.LatencyHistogram;
+import com.android.settings.performance.PerformanceProto.SettingsPerformanceDump;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Process-wide latency histograms and event counters, keyed by name.
+ *
+ * Each histogram keeps counts in power-of-two millisecond buckets, so recording is constant time
+ * and memory, and percentiles are reported as the upper bound of the bucket they fall in. Both
+ * cover everything recorded since the process started and are reported by
+ * {@link com.android.settings.SettingsDumpService}.
+ */
+public class LatencyTracker {
+    private static final String TAG = "LatencyTracker";
+
+    // Bounds the number of histograms and counters in case a caller builds names from unbounded
+    // input.
+    @VisibleForTesting
+    static final int MAX_HISTOGRAMS = 512;
+    @VisibleForTesting
+    static final int MAX_COUNTERS = 128;
+
+    private static final String PAGE_INTERACTIVE_PREFIX = "page_interactive/";
+
+    private static LatencyTracker sInstance;
+
+    private final ArrayMap<String, Histogram> mHistograms = new ArrayMap<>();
+    private final ArrayMap<String, long[]> mCounters = new ArrayMap<>();
+
+    public static synchronized LatencyTracker getInstance() {
+        if (sInstance == null) {
+            sInstance = new LatencyTracker();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    LatencyTracker() {
+    }
+
+    /**
+     * Starts timing {@code name}. The latency is recorded when the returned span ends.
+     */
+    public Span startSpan(String name) {
+        return new Span(this::record, name, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Records how long page {@code pageId} took from attach until all its preferences were
+     * added.
+     */
+    public void recordPageInteractive(int pageId, long latencyMs) {
+        record(PAGE_INTERACTIVE_PREFIX + pageId, latencyMs);
+    }
+
+    public synchronized void record(String name, long latencyMs) {
+        Histogram histogram = mHistograms.get(name);
+        if (histogram == null) {
+            if (mHistograms.size() >= MAX_HISTOGRAMS) {
+                Log.w(TAG, "Too many histograms, dropping " + name);
+                return;
+            }
+            histogram = new Histogram();
+            mHistograms.put(name, histogram);
+        }
+        histogram.add(latencyMs);
+    }
+
+    /**
+     * Adds one to the counter {@code name}, i.e. a cache hit or miss.
+     */
+    public synchronized void increment(String name) {
+        long[] counter = mCounters.get(name);
+        if (counter == null) {
+            if (mCounters.size() >= MAX_COUNTERS) {
+                Log.w(TAG, "Too many counters, dropping " + name);
+                return;
+            }
+            counter = new long[1];
+            mCounters.put(name, counter);
+        }
+        counter[0]++;
+    }
+
+    /**
+     * Returns the value of counter {@code name}, 0 if it was never incremented.
+     */
+    public synchronized long getCount(String name) {
+        final long[] counter = mCounters.get(name);
+        return counter != null ? counter[0] : 0;
+    }
+
+    /**
+     * Returns the histogram recorded for {@code name}, or {@code null} if nothing was recorded.
+     */
+    @VisibleForTesting
+    synchronized Histogram getHistogram(String name) {
+        return mHistograms.get(name);
+    }
+
+    /**
+     * Returns count, mean, 50th, 90th and 99th percentile and max of every histogram, in
+     * milliseconds.
+     */
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (int i = 0, size = mHistograms.size(); i < size; i++) {
+            final Histogram histogram = mHistograms.valueAt(i);
+            final JSONObject histogramObj = new JSONObject();
+            histogramObj.put("count", histogram.getCount());
+            histogramObj.put("mean", histogram.getMean());
+            histogramObj.put("p50", histogram.getPercentile(50));
+            histogramObj.put("p90", histogram.getPercentile(90));
+            histogramObj.put("p99", histogram.getPercentile(99));
+            histogramObj.put("max", histogram.getMax());
+            obj.put(mHistograms.keyAt(i), histogramObj);
+        }
+        return obj;
+    }
+
+    /**
+     * Returns the value of every counter.
+     */
+    public synchronized JSONObject dumpCounters() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (int i = 0, size = mCounters.size(); i < size; i++) {
+            obj.put(mCounters.keyAt(i), mCounters.valueAt(i)[0]);
+        }
+        return obj;
+    }
+
+    /**
+     * Adds every histogram and counter to {@code dump}, with the values of {@link #dump()} and
+     * {@link #dumpCounters()}.
+     */
+    public synchronized void dumpProto(SettingsPerformanceDump.Builder dump) {
+        for (int i = 0, size = mHistograms.size(); i < size; i++) {
+            final Histogram histogram = mHistograms.valueAt(i);
+            dump.addLatency(LatencyHistogram.newBuilder()
+                    .setName(mHistograms.keyAt(i))
+                    .setCount(histogram.getCount())
+                    .setMeanMillis(histogram.getMean())
+                    .setP50Millis(histogram.getPercentile(50))
+                    .setP90Millis(histogram.getPercentile(90))
+                    .setP99Millis(histogram.getPercentile(99))
+                    .setMaxMillis(histogram.getMax()));
+        }
+        for (int i = 0, size = mCounters.size(); i < size; i++) {
+            dump.addCounter(Counter.newBuilder()
+                    .setName(mCounters.keyAt(i))
+                    .setValue(mCounters.valueAt(i)[0]));
+        }
+    }
+
+    /**
+     * Receives the latency of a {@link Span} when it ends.
+     */
+    interface Recorder {
+        void record(String name, long latencyMs);
+    }
+
+    /**
+     * A running timing, see {@link #startSpan(String)}.
+     */
+    public static class Span {
+        private final Recorder mRecorder;
+        private final String mName;
+        private final long mStartTime;
+        private boolean mEnded;
+
+        Span(Recorder recorder, String name, long startTime) {
+            mRecorder = recorder;
+            mName = name;
+            mStartTime = startTime;
+        }
+
+        /**
+         * Records the time since the span started and returns it. Only the first call records.
+         */
+        public long end() {
+            final long latencyMs = SystemClock.elapsedRealtime() - mStartTime;
+            if (!mEnded) {
+                mEnded = true;
+                mRecorder.record(mName, latencyMs);
+            }
+            return latencyMs;
+        }
+    }
+
+    /**
+     * Latency counts in buckets of [0, 1], (1, 2], (2, 4] ... (2^(n-2), 2^(n-1)] ms, with the
+     * last bucket holding everything longer.
+     */
+    @VisibleForTesting
+    static class Histogram {
+        @VisibleForTesting
+        static final int BUCKET_COUNT = 18;
+
+        private final int[] mBuckets = new int[BUCKET_COUNT];
+        private int mCount;
+        private long mSum;
+        private long mMax;
+
+        void add(long latencyMs) {
+            final long latency = Math.max(latencyMs, 0);
+            mBuckets[getBucket(latency)]++;
+            mCount++;
+            mSum += latency;
+            mMax = Math.max(mMax, latency);
+        }
+
+        int getCount() {
+            return mCount;
+        }
+
+        long getMean() {
+            return mCount == 0 ? 0 : mSum / mCount;
+        }
+
+        long getMax() {
+            return mMax;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the {@code percentile}th latency, capped
+         * at the max latency.
+         */
+        long getPercentile(int percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            // Rank of the sample, 1 based, rounded up.
+            final long rank = Math.max(1, ((long) mCount * percentile + 99) / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    return Math.min(getUpperBound(i), mMax);
+                }
+            }
+            return mMax;
+        }
+
+        private static int getBucket(long latency) {
+            if (latency <= 1) {
+                return 0;
+            }
+            // Number of bits needed for latency - 1, so powers of two land in their own bucket.
+            final int bucket = 64 - Long.numberOfLeadingZeros(latency - 1);
+            return Math.min(bucket, BUCKET_COUNT - 1);
+        }
+
+        private static long getUpperBound(int bucket) {
+            return 1L << bucket;
+        }
+    }
+}
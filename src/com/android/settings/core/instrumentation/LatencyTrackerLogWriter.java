@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.content.Context;
+import android.util.Pair;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Records latencies in {@link LatencyTracker}, so they are reported by
+ * {@link com.android.settings.SettingsDumpService}. Other events are ignored.
+ */
+public class LatencyTrackerLogWriter implements LatencyLogWriter {
+
+    private final LatencyTracker mTracker;
+
+    public LatencyTrackerLogWriter() {
+        this(LatencyTracker.getInstance());
+    }
+
+    @VisibleForTesting
+    LatencyTrackerLogWriter(LatencyTracker tracker) {
+        mTracker = tracker;
+    }
+
+    @Override
+    public void latency(String name, long latencyMs) {
+        mTracker.record(name, latencyMs);
+    }
+
+    @Override
+    public void pageInteractive(int pageId, long latencyMs) {
+        mTracker.recordPageInteractive(pageId, latencyMs);
+    }
+
+    @Override
+    public void count(String name) {
+        mTracker.increment(name);
+    }
+
+    @Override
+    public void visible(Context context, int attribution, int pageId) {
+    }
+
+    @Override
+    public void hidden(Context context, int pageId) {
+    }
+
+    @Override
+    public void action(Context context, int action, Pair<Integer, Object>... taggedData) {
+    }
+
+    @Override
+    public void action(Context context, int action, int value) {
+    }
+
+    @Override
+    public void action(Context context, int action, boolean value) {
+    }
+
+    @Override
+    public void action(Context context, int action, String pkg) {
+    }
+
+    @Override
+    public void action(int attribution, int action, int pageId, String key, int value) {
+    }
+}
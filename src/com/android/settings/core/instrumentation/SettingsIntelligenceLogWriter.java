@@ -36,12 +36,15 @@ import com.android.settings.intelligence.LogProto.SettingsLog;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.LogWriter;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.IOException;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SettingsIntelligenceLogWriter implements LogWriter {
     private static final String TAG = "IntelligenceLogWriter";
@@ -49,11 +52,25 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
     private static final String LOG = "logs";
     private static final long MESSAGE_DELAY = DateUtils.MINUTE_IN_MILLIS; // 1 minute
 
-    private List<SettingsLog> mSettingsLogList;
-    private SendLogHandler mLogHandler;
+    // Buffered logs are sent before MESSAGE_DELAY once either threshold is reached.
+    @VisibleForTesting
+    static final int FLUSH_LOG_COUNT = 100;
+    @VisibleForTesting
+    static final int FLUSH_BUFFER_SIZE = 12 * 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // Logs posted to the worker thread but not yet buffered. Beyond this, new logs are dropped
+    // instead of queued, so bursts such as slider drags can't grow the message queue unbounded.
+    @VisibleForTesting
+    static final int MAX_PENDING_LOGS = 200;
+
+    private final LogBuffer mLogBuffer;
+    private final SendLogHandler mLogHandler;
+    private final AtomicInteger mPendingLogCount = new AtomicInteger();
+    private final AtomicLong mDroppedLogCount = new AtomicLong();
+    private final AtomicLong mSentLogCount = new AtomicLong();
 
     public SettingsIntelligenceLogWriter() {
-        mSettingsLogList = new LinkedList<>();
+        mLogBuffer = new LogBuffer(BUFFER_SIZE);
         final HandlerThread workerThread = new HandlerThread("SettingsIntelligenceLogWriter",
                 Process.THREAD_PRIORITY_BACKGROUND);
         workerThread.start();
@@ -116,60 +133,74 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
 
     @Override
     public void action(int attribution, int action, int pageId, String key, int value) {
-        final ZonedDateTime now = ZonedDateTime.now(ZoneId.systemDefault());
+        if (mPendingLogCount.incrementAndGet() > MAX_PENDING_LOGS) {
+            mPendingLogCount.decrementAndGet();
+            mDroppedLogCount.incrementAndGet();
+            return;
+        }
+        // Only capture the time here; the log is built and encoded on the worker thread.
+        final long timestamp = System.currentTimeMillis();
+        mLogHandler.post(() -> {
+            mPendingLogCount.decrementAndGet();
+            addLog(attribution, action, pageId, key, value, timestamp);
+        });
+    }
+
+    /**
+     * Returns how many logs were dropped, either because too many were pending or because they
+     * could not be sent.
+     */
+    public long getDroppedLogCount() {
+        return mDroppedLogCount.get();
+    }
+
+    /**
+     * Returns how many logs are waiting for the worker thread.
+     */
+    public int getPendingLogCount() {
+        return mPendingLogCount.get();
+    }
+
+    /**
+     * Returns how many logs were sent to Settings Intelligence.
+     */
+    public long getSentLogCount() {
+        return mSentLogCount.get();
+    }
+
+    private void addLog(int attribution, int action, int pageId, String key, int value,
+            long timestamp) {
         final SettingsLog settingsLog = SettingsLog.newBuilder()
                 .setAttribution(attribution)
                 .setAction(action)
                 .setPageId(pageId)
                 .setChangedPreferenceKey(key != null ? key : "")
                 .setChangedPreferenceIntValue(value)
-                .setTimestamp(now.toString())
+                .setTimestamp(ZonedDateTime.ofInstant(Instant.ofEpochMilli(timestamp),
+                        ZoneId.systemDefault()).toString())
                 .build();
-        mLogHandler.post(() -> {
-            mSettingsLogList.add(settingsLog);
-        });
-        mLogHandler.scheduleSendLog();
-    }
-
-    @VisibleForTesting
-    static byte[] serialize(List<SettingsLog> settingsLogs) {
-        final int size = settingsLogs.size();
-        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        final DataOutputStream output = new DataOutputStream(bout);
-        // Data is "size, length, bytearray, length, bytearray ..."
-        try {
-            output.writeInt(size);
-            for (SettingsLog settingsLog : settingsLogs) {
-                final byte[] data = settingsLog.toByteArray();
-                output.writeInt(data.length);
-                output.write(data);
-            }
-            return bout.toByteArray();
-        } catch (Exception e) {
-            Log.e(TAG, "serialize error", e);
-            return null;
-        } finally {
-            try {
-                output.close();
-            } catch (Exception e) {
-                Log.e(TAG, "close error", e);
+        if (!mLogBuffer.add(settingsLog)) {
+            // Full, send what is buffered to make room. A log that can't be serialized fails again
+            // and is counted as dropped.
+            sendLogs();
+            if (!mLogBuffer.add(settingsLog)) {
+                mDroppedLogCount.incrementAndGet();
+                return;
             }
         }
-    }
-
-    private class SendLogHandler extends Handler {
-
-        public SendLogHandler(Looper looper) {
-            super(looper);
-        }
-
-        public void scheduleSendLog() {
-            removeCallbacks(mSendLogsRunnable);
-            postDelayed(mSendLogsRunnable, MESSAGE_DELAY);
+        if (mLogBuffer.getCount() >= FLUSH_LOG_COUNT
+                || mLogBuffer.getSize() >= FLUSH_BUFFER_SIZE) {
+            mLogHandler.removeCallbacks(mSendLogsRunnable);
+            sendLogs();
+        } else {
+            mLogHandler.scheduleSendLog();
         }
     }
 
-    private final Runnable mSendLogsRunnable = () -> {
+    private void sendLogs() {
+        if (mLogBuffer.getCount() == 0) {
+            return;
+        }
         final Context context = FeatureFactory.getAppContext();
         if (context == null) {
             Log.e(TAG, "context is null");
@@ -177,14 +208,104 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
         }
         final String action = context.getString(R.string
                 .config_settingsintelligence_log_action);
-        if (!TextUtils.isEmpty(action) && !mSettingsLogList.isEmpty()) {
+        if (!TextUtils.isEmpty(action)) {
             final Intent intent = new Intent();
             intent.setPackage(context.getString(R.string
                     .config_settingsintelligence_package_name));
             intent.setAction(action);
-            intent.putExtra(LOG, serialize(mSettingsLogList));
+            intent.putExtra(LOG, mLogBuffer.toByteArray());
             context.sendBroadcastAsUser(intent, UserHandle.CURRENT);
-            mSettingsLogList.clear();
+            mSentLogCount.addAndGet(mLogBuffer.getCount());
+        } else {
+            // Nobody to send to, don't keep the logs around.
+            mDroppedLogCount.addAndGet(mLogBuffer.getCount());
         }
-    };
+        mLogBuffer.clear();
+    }
+
+    private class SendLogHandler extends Handler {
+
+        public SendLogHandler(Looper looper) {
+            super(looper);
+        }
+
+        public void scheduleSendLog() {
+            // Send at most MESSAGE_DELAY after the first buffered log, rather than rescheduling
+            // on every log.
+            if (!hasCallbacks(mSendLogsRunnable)) {
+                postDelayed(mSendLogsRunnable, MESSAGE_DELAY);
+            }
+        }
+    }
+
+    private final Runnable mSendLogsRunnable = this::sendLogs;
+
+    /**
+     * Preallocated buffer holding logs already encoded in the format sent to Settings
+     * Intelligence: "size, length, bytearray, length, bytearray ...". Logs are written straight
+     * into it and it is reused after every send.
+     */
+    @VisibleForTesting
+    static class LogBuffer {
+        private static final int INT_SIZE = 4;
+
+        private final byte[] mBuffer;
+        // The first int is left for the log count, which is only known when sending.
+        private int mSize = INT_SIZE;
+        private int mCount;
+
+        LogBuffer(int capacity) {
+            mBuffer = new byte[capacity];
+        }
+
+        /**
+         * Encodes {@code settingsLog} into the buffer. Returns false if it doesn't fit or can't be
+         * serialized, in which case the buffer is left unchanged.
+         */
+        boolean add(SettingsLog settingsLog) {
+            final int length = settingsLog.getSerializedSize();
+            if (mSize + INT_SIZE + length > mBuffer.length) {
+                return false;
+            }
+            try {
+                final CodedOutputStream output =
+                        CodedOutputStream.newInstance(mBuffer, mSize + INT_SIZE, length);
+                settingsLog.writeTo(output);
+                output.checkNoSpaceLeft();
+            } catch (IOException e) {
+                Log.e(TAG, "serialize error", e);
+                return false;
+            }
+            writeInt(mSize, length);
+            mSize += INT_SIZE + length;
+            mCount++;
+            return true;
+        }
+
+        int getCount() {
+            return mCount;
+        }
+
+        int getSize() {
+            return mSize;
+        }
+
+        byte[] toByteArray() {
+            writeInt(0, mCount);
+            return Arrays.copyOf(mBuffer, mSize);
+        }
+
+        void clear() {
+            mSize = INT_SIZE;
+            mCount = 0;
+        }
+
+        // Big-endian, as DataInputStream.readInt() expects.
+        private void writeInt(int offset, int value) {
+            mBuffer[offset] = (byte) (value >>> 24);
+            mBuffer[offset + 1] = (byte) (value >>> 16);
+            mBuffer[offset + 2] = (byte) (value >>> 8);
+            mBuffer[offset + 3] = (byte) value;
+        }
+    }
 }
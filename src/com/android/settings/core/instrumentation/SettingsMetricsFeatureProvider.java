@@ -17,19 +17,109 @@
 package com.android.settings.core.instrumentation;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.Pair;
 
+import androidx.annotation.Nullable;
+
+import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.performance.PerformanceProto.LogWriterStats;
+import com.android.settingslib.core.instrumentation.LogWriter;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 public class SettingsMetricsFeatureProvider extends MetricsFeatureProvider {
     private static final String TAG = "SettingsMetricsFeature";
 
+    private SettingsIntelligenceLogWriter mIntelligenceLogWriter;
+
+    /**
+     * Returns the metrics feature provider of {@code context}, or {@code null} if it is not a
+     * {@link SettingsMetricsFeatureProvider}.
+     */
+    @Nullable
+    public static SettingsMetricsFeatureProvider get(Context context) {
+        final MetricsFeatureProvider provider =
+                FeatureFactory.getFactory(context).getMetricsFeatureProvider();
+        return provider instanceof SettingsMetricsFeatureProvider
+                ? (SettingsMetricsFeatureProvider) provider : null;
+    }
+
     @Override
     protected void installLogWriters() {
+        mIntelligenceLogWriter = new SettingsIntelligenceLogWriter();
         mLoggerWriters.add(new StatsLogWriter());
         mLoggerWriters.add(new SettingsEventLogWriter());
-        mLoggerWriters.add(new SettingsIntelligenceLogWriter());
+        mLoggerWriters.add(mIntelligenceLogWriter);
+        mLoggerWriters.add(new LatencyTrackerLogWriter());
+    }
+
+    /**
+     * Returns pending, sent and dropped counts of the Settings Intelligence log writer.
+     */
+    public JSONObject dumpLogWriterStats() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("pending", mIntelligenceLogWriter.getPendingLogCount());
+        obj.put("sent", mIntelligenceLogWriter.getSentLogCount());
+        obj.put("dropped", mIntelligenceLogWriter.getDroppedLogCount());
+        return obj;
+    }
+
+    /**
+     * Same as {@link #dumpLogWriterStats()}, as a proto.
+     */
+    public LogWriterStats dumpLogWriterStatsProto() {
+        return LogWriterStats.newBuilder()
+                .setPending(mIntelligenceLogWriter.getPendingLogCount())
+                .setSent(mIntelligenceLogWriter.getSentLogCount())
+                .setDropped(mIntelligenceLogWriter.getDroppedLogCount())
+                .build();
+    }
+
+    /**
+     * Starts timing {@code name}. The latency is sent to all {@link LatencyLogWriter}s when the
+     * returned span ends.
+     */
+    public LatencyTracker.Span startSpan(String name) {
+        return new LatencyTracker.Span(this::logLatency, name, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Sends {@code latencyMs} of {@code name} to all {@link LatencyLogWriter}s.
+     */
+    public void logLatency(String name, long latencyMs) {
+        for (LogWriter writer : mLoggerWriters) {
+            if (writer instanceof LatencyLogWriter) {
+                ((LatencyLogWriter) writer).latency(name, latencyMs);
+            }
+        }
+    }
+
+
+    /**
+     * Sends how long page {@code pageId} took to become interactive to all
+     * {@link LatencyLogWriter}s.
+     */
+    public void logPageInteractive(int pageId, long latencyMs) {
+        for (LogWriter writer : mLoggerWriters) {
+            if (writer instanceof LatencyLogWriter) {
+                ((LatencyLogWriter) writer).pageInteractive(pageId, latencyMs);
+            }
+        }
+    }
+
+    /**
+     * Sends one occurrence of event {@code name} to all {@link LatencyLogWriter}s.
+     */
+    public void logCount(String name) {
+        for (LogWriter writer : mLoggerWriters) {
+            if (writer instanceof LatencyLogWriter) {
+                ((LatencyLogWriter) writer).count(name);
+            }
+        }
     }
 
     /**
@@ -19,6 +19,7 @@ import android.app.Activity;
 import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.ArraySet;
@@ -36,6 +37,7 @@ import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.PreferenceControllerListHelper;
 import com.android.settings.core.SettingsBaseActivity;
+import com.android.settings.core.instrumentation.SettingsMetricsFeatureProvider;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.search.Indexable;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -47,6 +49,7 @@ import com.android.settingslib.drawer.Tile;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -63,18 +66,24 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private final Map<Class, List<AbstractPreferenceController>> mPreferenceControllers =
             new ArrayMap<>();
     private final Set<String> mDashboardTilePrefKeys = new ArraySet<>();
+    private final PreferenceKeyIndex mPreferenceIndex = new PreferenceKeyIndex();
+    private final PreferenceStateLoader mStateLoader =
+            new PreferenceStateLoader(getClass().getSimpleName());
 
     private DashboardFeatureProvider mDashboardFeatureProvider;
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private SummaryLoader mSummaryLoader;
     private List<String> mSuppressInjectedTileKeys;
+    // When the fragment was attached, until it first reports being fully drawn.
+    private long mAttachTime;
     @VisibleForTesting
     UiBlockerController mBlockerController;
 
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
+        mAttachTime = SystemClock.elapsedRealtime();
         mSuppressInjectedTileKeys = Arrays.asList(context.getResources().getStringArray(
                 R.array.config_suppress_injected_tile_keys));
         mDashboardFeatureProvider = FeatureFactory.getFactory(context).
@@ -128,7 +137,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
 
         if (!keys.isEmpty()) {
             mBlockerController = new UiBlockerController(keys);
-            mBlockerController.start(()->updatePreferenceVisibility(mPreferenceControllers));
+            mBlockerController.start(()->updatePreferenceVisibility(mPreferenceControllers),
+                    this::updateBlockerPreferenceVisibility);
         }
     }
 
@@ -182,7 +192,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void notifySummaryChanged(Tile tile) {
         final String key = mDashboardFeatureProvider.getDashboardKeyForTile(tile);
-        final Preference pref = getPreferenceScreen().findPreference(key);
+        final Preference pref = mPreferenceIndex.find(getPreferenceScreen(), key);
         if (pref == null) {
             Log.d(getLogTag(), String.format(
                     "Can't find pref by key %s, skipping update summary %s",
@@ -219,6 +229,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onStop() {
         super.onStop();
+        mStateLoader.cancel();
         if (mSummaryLoader != null) {
             // SummaryLoader can be null when there is no dynamic tiles.
             mSummaryLoader.setListening(false);
@@ -315,32 +326,77 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
 
     /**
      * Update state of each preference managed by PreferenceController.
+     *
+     * Controllers implementing {@link BasePreferenceController.BackgroundStateLoader} are loaded
+     * off the main thread and applied once all of them finish.
      */
     protected void updatePreferenceStates() {
         final PreferenceScreen screen = getPreferenceScreen();
+        final List<AbstractPreferenceController> backgroundControllers = new ArrayList<>();
+        final SettingsMetricsFeatureProvider metricsFeatureProvider =
+                mMetricsFeatureProvider instanceof SettingsMetricsFeatureProvider
+                        ? (SettingsMetricsFeatureProvider) mMetricsFeatureProvider : null;
         Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
         for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
-                if (!controller.isAvailable()) {
+                if (controller instanceof BasePreferenceController.BackgroundStateLoader) {
+                    backgroundControllers.add(controller);
                     continue;
                 }
+                final long startTime = SystemClock.elapsedRealtime();
+                updatePreferenceState(screen, controller);
+                mStateLoader.recordMainThreadCost(metricsFeatureProvider, controller,
+                        SystemClock.elapsedRealtime() - startTime);
+            }
+        }
+        mStateLoader.reportSlowControllers();
+        mStateLoader.load(backgroundControllers, this::applyPreferenceStates);
+    }
 
-                final String key = controller.getPreferenceKey();
-                if (TextUtils.isEmpty(key)) {
-                    Log.d(TAG, String.format("Preference key is %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
-                }
+    private void updatePreferenceState(PreferenceScreen screen,
+            AbstractPreferenceController controller) {
+        if (!controller.isAvailable()) {
+            return;
+        }
 
-                final Preference preference = screen.findPreference(key);
-                if (preference == null) {
-                    Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
-                }
-                controller.updateState(preference);
+        final String key = controller.getPreferenceKey();
+        if (TextUtils.isEmpty(key)) {
+            Log.d(TAG, String.format("Preference key is %s in Controller %s",
+                    key, controller.getClass().getSimpleName()));
+            return;
+        }
+
+        final Preference preference = mPreferenceIndex.find(screen, key);
+        if (preference == null) {
+            Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
+                    key, controller.getClass().getSimpleName()));
+            return;
+        }
+        controller.updateState(preference);
+    }
+
+    @VisibleForTesting
+    void applyPreferenceStates(List<PreferenceStateLoader.StateSnapshot> snapshots) {
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (screen == null) {
+            return;
+        }
+        for (PreferenceStateLoader.StateSnapshot snapshot : snapshots) {
+            if (!snapshot.available) {
+                continue;
             }
+            final String key = snapshot.controller.getPreferenceKey();
+            if (TextUtils.isEmpty(key)) {
+                continue;
+            }
+            final Preference preference = mPreferenceIndex.find(screen, key);
+            if (preference == null) {
+                Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
+                        key, snapshot.controller.getClass().getSimpleName()));
+                continue;
+            }
+            snapshot.apply(preference);
         }
     }
 
@@ -358,6 +414,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
 
         // Add resource based tiles.
         displayResourceTiles();
+        mPreferenceIndex.rebuild(getPreferenceScreen());
 
         refreshDashboardTiles(TAG);
 
@@ -366,6 +423,13 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             Log.d(TAG, "All preferences added, reporting fully drawn");
             activity.reportFullyDrawn();
         }
+        if (mAttachTime > 0) {
+            if (mMetricsFeatureProvider instanceof SettingsMetricsFeatureProvider) {
+                ((SettingsMetricsFeatureProvider) mMetricsFeatureProvider).logPageInteractive(
+                        getMetricsCategory(), SystemClock.elapsedRealtime() - mAttachTime);
+            }
+            mAttachTime = 0;
+        }
 
         updatePreferenceVisibility(mPreferenceControllers);
     }
@@ -378,14 +442,38 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             return;
         }
 
-        final boolean visible = mBlockerController.isBlockerFinished();
         for (List<AbstractPreferenceController> controllerList :
                 preferenceControllers.values()) {
             for (AbstractPreferenceController controller : controllerList) {
                 final String key = controller.getPreferenceKey();
-                final Preference preference = findPreference(key);
+                final Preference preference = mPreferenceIndex.find(screen, key);
                 if (preference != null) {
-                    preference.setVisible(visible && controller.isAvailable());
+                    preference.setVisible(mBlockerController.isBlockerFinished(key)
+                            && controller.isAvailable());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reveals the preference of a single {@link BasePreferenceController.UiBlocker} as soon as
+     * its work is finished, without waiting for other blockers.
+     */
+    @VisibleForTesting
+    void updateBlockerPreferenceVisibility(String key) {
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (screen == null || mBlockerController == null) {
+            return;
+        }
+        final Preference preference = mPreferenceIndex.find(screen, key);
+        if (preference == null) {
+            return;
+        }
+        for (List<AbstractPreferenceController> controllerList : mPreferenceControllers.values()) {
+            for (AbstractPreferenceController controller : controllerList) {
+                if (TextUtils.equals(key, controller.getPreferenceKey())) {
+                    preference.setVisible(controller.isAvailable());
+                    return;
                 }
             }
         }
@@ -409,8 +497,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             Log.d(TAG, "tile list is empty, skipping category " + category.key);
             return;
         }
-        // Create a list to track which tiles are to be removed.
-        final List<String> remove = new ArrayList<>(mDashboardTilePrefKeys);
+        // Create a set to track which tiles are to be removed.
+        final Set<String> remove = new HashSet<>(mDashboardTilePrefKeys);
 
         // There are dashboard tiles, so we need to install SummaryLoader.
         if (mSummaryLoader != null) {
@@ -432,7 +520,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             }
             if (mDashboardTilePrefKeys.contains(key)) {
                 // Have the key already, will rebind.
-                final Preference preference = screen.findPreference(key);
+                final Preference preference = mPreferenceIndex.find(screen, key);
                 mDashboardFeatureProvider.bindPreferenceToTile(getActivity(), forceRoundedIcons,
                         getMetricsCategory(), preference, tile, key,
                         mPlaceholderPreferenceController.getOrder());
@@ -443,6 +531,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                         getMetricsCategory(), pref, tile, key,
                         mPlaceholderPreferenceController.getOrder());
                 screen.addPreference(pref);
+                mPreferenceIndex.put(pref);
                 mDashboardTilePrefKeys.add(key);
             }
             remove.remove(key);
@@ -450,10 +539,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         // Finally remove tiles that are gone.
         for (String key : remove) {
             mDashboardTilePrefKeys.remove(key);
-            final Preference preference = screen.findPreference(key);
+            final Preference preference = mPreferenceIndex.find(screen, key);
             if (preference != null) {
                 screen.removePreference(preference);
             }
+            mPreferenceIndex.remove(key);
         }
         mSummaryLoader.setListening(true);
     }
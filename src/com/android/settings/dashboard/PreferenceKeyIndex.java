@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.text.TextUtils;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceGroup;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Key to {@link Preference} index of a preference hierarchy, so hot loops don't have to walk the
+ * whole tree through {@link PreferenceGroup#findPreference(CharSequence)} for every key.
+ *
+ * Entries are validated on lookup: a preference that is no longer under the root (i.e. removed
+ * by a controller, directly or along with one of its groups) is looked up again from the tree.
+ */
+class PreferenceKeyIndex {
+
+    private final Map<String, Preference> mIndex = new HashMap<>();
+    private PreferenceGroup mRoot;
+
+    /**
+     * Drops all entries and indexes every preference under {@code root}.
+     */
+    void rebuild(PreferenceGroup root) {
+        mIndex.clear();
+        mRoot = root;
+        if (root != null) {
+            addRecursively(root);
+        }
+    }
+
+    /**
+     * Adds {@code preference} to the index. Should be called when a preference is added to the
+     * indexed hierarchy.
+     */
+    void put(Preference preference) {
+        final String key = preference.getKey();
+        if (!TextUtils.isEmpty(key)) {
+            mIndex.put(key, preference);
+        }
+    }
+
+    /**
+     * Removes {@code key} from the index. Should be called when a preference is removed from the
+     * indexed hierarchy.
+     */
+    void remove(String key) {
+        mIndex.remove(key);
+    }
+
+    /**
+     * Returns the preference with {@code key} under {@code root}, or {@code null} if there is
+     * none.
+     */
+    @SuppressWarnings("unchecked")
+    <T extends Preference> T find(PreferenceGroup root, String key) {
+        if (root == null || TextUtils.isEmpty(key)) {
+            return null;
+        }
+        if (root != mRoot) {
+            rebuild(root);
+        }
+        Preference preference = mIndex.get(key);
+        if (preference == null || !isUnder(preference, root)) {
+            preference = root.findPreference(key);
+            if (preference != null) {
+                mIndex.put(key, preference);
+            } else {
+                mIndex.remove(key);
+            }
+        }
+        return (T) preference;
+    }
+
+    private static boolean isUnder(Preference preference, PreferenceGroup root) {
+        for (PreferenceGroup parent = preference.getParent(); parent != null;
+                parent = parent.getParent()) {
+            if (parent == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addRecursively(PreferenceGroup group) {
+        final int count = group.getPreferenceCount();
+        for (int i = 0; i < count; i++) {
+            final Preference preference = group.getPreference(i);
+            put(preference);
+            if (preference instanceof PreferenceGroup) {
+                addRecursively((PreferenceGroup) preference);
+            }
+        }
+    }
+}
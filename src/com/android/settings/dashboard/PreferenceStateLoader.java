@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+
+import com.android.settings.core.BasePreferenceController.BackgroundStateLoader;
+import com.android.settings.core.instrumentation.SettingsMetricsFeatureProvider;
+import com.android.settingslib.core.AbstractPreferenceController;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads state of {@link BackgroundStateLoader} controllers in parallel on background threads and
+ * delivers the snapshots to the main thread in one batch.
+ *
+ * It also keeps a strict-mode style record of controllers that still do their work on the main
+ * thread and exceed {@link #MAIN_THREAD_BUDGET_MILLIS}.
+ */
+public class PreferenceStateLoader {
+    private static final String TAG = "PreferenceStateLoader";
+
+    @VisibleForTesting
+    static final long MAIN_THREAD_BUDGET_MILLIS = 8;
+
+    private final String mLogTag;
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private final Map<String, Long> mSlowControllers = new ArrayMap<>();
+
+    /**
+     * Callback to receive loaded snapshots on the main thread.
+     */
+    public interface Callback {
+        void onStatesLoaded(List<StateSnapshot> snapshots);
+    }
+
+    /**
+     * Immutable result of the background phase for a single controller.
+     */
+    public static final class StateSnapshot {
+        public final AbstractPreferenceController controller;
+        public final boolean available;
+        public final Object state;
+        /**
+         * {@code true} if the background phase threw, and the host should fall back to
+         * {@link AbstractPreferenceController#updateState} on the main thread.
+         */
+        public final boolean failed;
+
+        @VisibleForTesting
+        StateSnapshot(AbstractPreferenceController controller, boolean available, Object state,
+                boolean failed) {
+            this.controller = controller;
+            this.available = available;
+            this.state = state;
+            this.failed = failed;
+        }
+
+        /**
+         * Applies the snapshot to {@code preference} through the controller.
+         */
+        @SuppressWarnings("unchecked")
+        public void apply(Preference preference) {
+            if (failed) {
+                controller.updateState(preference);
+                return;
+            }
+            ((BackgroundStateLoader<Object>) controller).applyState(preference, state);
+        }
+    }
+
+    public PreferenceStateLoader(String logTag) {
+        mLogTag = logTag;
+    }
+
+    /**
+     * Starts loading state for {@code controllers}, which must all implement
+     * {@link BackgroundStateLoader}. Results from any earlier call that is still in flight are
+     * dropped.
+     */
+    public void load(@NonNull List<AbstractPreferenceController> controllers,
+            @NonNull Callback callback) {
+        final int generation = mGeneration.incrementAndGet();
+        if (controllers.isEmpty()) {
+            return;
+        }
+        final int size = controllers.size();
+        final StateSnapshot[] snapshots = new StateSnapshot[size];
+        final AtomicInteger remaining = new AtomicInteger(size);
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            final AbstractPreferenceController controller = controllers.get(i);
+            ThreadUtils.postOnBackgroundThread(() -> {
+                snapshots[index] = loadSnapshot(controller);
+                if (remaining.decrementAndGet() == 0) {
+                    ThreadUtils.postOnMainThread(() -> {
+                        if (generation == mGeneration.get()) {
+                            final List<StateSnapshot> result = new ArrayList<>(size);
+                            Collections.addAll(result, snapshots);
+                            callback.onStatesLoaded(result);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops results of any load that is still in flight.
+     */
+    public void cancel() {
+        mGeneration.incrementAndGet();
+    }
+
+    /**
+     * Records the time a controller spent in {@code isAvailable} and {@code updateState} on the
+     * main thread. The latency is sent to {@code metricsFeatureProvider} if it is not
+     * {@code null}.
+     */
+    public void recordMainThreadCost(
+            @Nullable SettingsMetricsFeatureProvider metricsFeatureProvider,
+            AbstractPreferenceController controller, long costMillis) {
+        if (metricsFeatureProvider != null) {
+            metricsFeatureProvider.logLatency(TAG + "/updateState", costMillis);
+        }
+        if (costMillis < MAIN_THREAD_BUDGET_MILLIS) {
+            return;
+        }
+        // Only over budget controllers get their own histogram, to keep the number bounded.
+        if (metricsFeatureProvider != null) {
+            metricsFeatureProvider.logLatency(
+                    TAG + "/updateState/" + controller.getClass().getSimpleName(), costMillis);
+        }
+        final String name = controller.getClass().getName();
+        final Long previous = mSlowControllers.get(name);
+        if (previous == null || previous < costMillis) {
+            mSlowControllers.put(name, costMillis);
+        }
+    }
+
+    /**
+     * Logs controllers that exceeded the main thread budget since the last report.
+     */
+    public void reportSlowControllers() {
+        if (mSlowControllers.isEmpty()) {
+            return;
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : mSlowControllers.entrySet()) {
+            builder.append("\n    ").append(entry.getKey())
+                    .append(": ").append(entry.getValue()).append("ms");
+        }
+        Log.w(TAG, mLogTag + " has controllers blocking the main thread, consider implementing "
+                + "BackgroundStateLoader:" + builder);
+        mSlowControllers.clear();
+    }
+
+    @VisibleForTesting
+    Map<String, Long> getSlowControllers() {
+        return mSlowControllers;
+    }
+
+    private StateSnapshot loadSnapshot(AbstractPreferenceController controller) {
+        try {
+            final boolean available = controller.isAvailable();
+            final Object state = available
+                    ? ((BackgroundStateLoader<?>) controller).loadState()
+                    : null;
+            return new StateSnapshot(controller, available, state, false /* failed */);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to load state for " + controller.getClass().getSimpleName(), e);
+            return new StateSnapshot(controller, true /* available */, null, true /* failed */);
+        }
+    }
+}
@@ -16,9 +16,12 @@
 
 package com.android.settings.dashboard;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.android.settings.core.BasePreferenceController;
 import com.android.settingslib.utils.ThreadUtils;
@@ -26,12 +29,13 @@ import com.android.settingslib.utils.ThreadUtils;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Control ui blocker data and check whether it is finished
  *
+ * It doesn't hold any thread while waiting. Completion is driven by {@link #countDown(String)},
+ * and a timeout is scheduled on the main thread in case some blockers never finish.
+ *
  * @see BasePreferenceController.UiBlocker
  * @see BasePreferenceController.UiBlockListener
  */
@@ -39,42 +43,57 @@ public class UiBlockerController {
     private static final String TAG = "UiBlockerController";
     private static final int TIMEOUT_MILLIS = 500;
 
-    private CountDownLatch mCountDownLatch;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mTimeoutRunnable = this::onTimeout;
     private boolean mBlockerFinished;
     private Set<String> mKeys;
     private long mTimeoutMillis;
+    private Runnable mFinishRunnable;
+    private OnBlockerFinishedListener mBlockerFinishedListener;
+
+    /**
+     * Listener to invoke on the main thread when a single blocker finishes.
+     */
+    public interface OnBlockerFinishedListener {
+        /**
+         * @param key preference key of the finished blocker
+         */
+        void onBlockerFinished(String key);
+    }
 
     public UiBlockerController(@NonNull List<String> keys) {
         this(keys, TIMEOUT_MILLIS);
     }
 
     public UiBlockerController(@NonNull List<String> keys, long timeout) {
-        mCountDownLatch = new CountDownLatch(keys.size());
         mBlockerFinished = keys.isEmpty();
         mKeys = new HashSet<>(keys);
         mTimeoutMillis = timeout;
     }
 
     /**
-     * Start background thread, it will invoke {@code finishRunnable} if any condition is met
+     * Start waiting for blockers, it will invoke {@code finishRunnable} if any condition is met
      *
      * 1. Waiting time exceeds {@link #mTimeoutMillis}
-     * 2. All background work that associated with {@link #mCountDownLatch} is finished
+     * 2. All background work is reported by {@link #countDown(String)}
      */
     public boolean start(Runnable finishRunnable) {
+        return start(finishRunnable, null /* blockerFinishedListener */);
+    }
+
+    /**
+     * Same as {@link #start(Runnable)}, and also invokes {@code blockerFinishedListener} as soon
+     * as each blocker finishes.
+     */
+    public synchronized boolean start(Runnable finishRunnable,
+            @Nullable OnBlockerFinishedListener blockerFinishedListener) {
         if (mKeys.isEmpty()) {
             // Don't need to run finishRunnable because it doesn't start
             return false;
         }
-        ThreadUtils.postOnBackgroundThread(() -> {
-            try {
-                mCountDownLatch.await(mTimeoutMillis, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                Log.w(TAG, "interrupted");
-            }
-            mBlockerFinished = true;
-            ThreadUtils.postOnMainThread(finishRunnable);
-        });
+        mFinishRunnable = finishRunnable;
+        mBlockerFinishedListener = blockerFinishedListener;
+        mHandler.postDelayed(mTimeoutRunnable, mTimeoutMillis);
 
         return true;
     }
@@ -82,20 +101,64 @@ public class UiBlockerController {
     /**
      * Return {@code true} if all work finished
      */
-    public boolean isBlockerFinished() {
+    public synchronized boolean isBlockerFinished() {
         return mBlockerFinished;
     }
 
     /**
-     * Count down latch by {@code key}. It only count down 1 time if same key count down multiple
-     * times.
+     * Return {@code true} if the blocker with {@code key} finished, or {@code key} is not a
+     * blocker at all.
+     */
+    public synchronized boolean isBlockerFinished(String key) {
+        return mBlockerFinished || !mKeys.contains(key);
+    }
+
+    /**
+     * Mark blocker with {@code key} as finished. It only counts down 1 time if same key counts
+     * down multiple times.
      */
     public boolean countDown(String key) {
-        if (mKeys.remove(key)) {
-            mCountDownLatch.countDown();
-            return true;
+        final OnBlockerFinishedListener listener;
+        final Runnable finishRunnable;
+        synchronized (this) {
+            if (mBlockerFinished || !mKeys.remove(key)) {
+                return false;
+            }
+            listener = mBlockerFinishedListener;
+            finishRunnable = mKeys.isEmpty() ? finish() : null;
+        }
+        if (listener != null) {
+            ThreadUtils.postOnMainThread(() -> listener.onBlockerFinished(key));
+        }
+        if (finishRunnable != null) {
+            ThreadUtils.postOnMainThread(finishRunnable);
+        }
+        return true;
+    }
+
+    private void onTimeout() {
+        final Runnable finishRunnable;
+        synchronized (this) {
+            if (mBlockerFinished) {
+                return;
+            }
+            Log.w(TAG, "Timed out waiting for " + mKeys);
+            finishRunnable = finish();
+        }
+        if (finishRunnable != null) {
+            finishRunnable.run();
         }
+    }
 
-        return false;
+    /**
+     * Marks all blockers finished and returns the runnable to run, if any. Must hold the lock.
+     */
+    private Runnable finish() {
+        mBlockerFinished = true;
+        mHandler.removeCallbacks(mTimeoutRunnable);
+        final Runnable finishRunnable = mFinishRunnable;
+        mFinishRunnable = null;
+        mBlockerFinishedListener = null;
+        return finishRunnable;
     }
 }
@@ -28,7 +28,6 @@ import android.os.Bundle;
 import android.os.UserHandle;
 import android.telephony.SubscriptionManager;
 import android.util.ArraySet;
-import android.util.IconDrawableFactory;
 import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
@@ -41,6 +40,7 @@ import androidx.preference.Preference.OnPreferenceChangeListener;
 import androidx.preference.PreferenceCategory;
 
 import com.android.settings.R;
+import com.android.settings.applications.AppIconCache;
 import com.android.settings.applications.AppInfoBase;
 import com.android.settings.widget.EntityHeaderController;
 import com.android.settingslib.AppItem;
@@ -161,8 +161,9 @@ public class AppDataUsage extends DataUsageBaseFragment implements OnPreferenceC
                     try {
                         final ApplicationInfo info = mPackageManager.getApplicationInfoAsUser(
                             mPackages.valueAt(0), 0, UserHandle.getUserId(mAppItem.key));
-                        mIcon = IconDrawableFactory.newInstance(getActivity()).getBadgedIcon(info);
-                        mLabel = info.loadLabel(mPackageManager);
+                        final AppIconCache iconCache = AppIconCache.getInstance(getActivity());
+                        mIcon = iconCache.getBadgedIcon(info);
+                        mLabel = iconCache.getLabel(info);
                         mPackageName = info.packageName;
                     } catch (PackageManager.NameNotFoundException e) {
                     }
@@ -33,6 +33,8 @@ import android.text.format.Formatter;
 import android.text.format.Formatter.BytesResult;
 import android.util.Log;
 
+import com.android.settings.network.TelephonyStateCache;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -106,12 +108,12 @@ public final class DataUsageUtils extends com.android.settingslib.net.DataUsageU
         if (DataUsageUtils.TEST_RADIOS) {
             return SystemProperties.get(DataUsageUtils.TEST_RADIOS_PROP).contains("mobile");
         }
-        final List<SubscriptionInfo> subInfoList =
-                SubscriptionManager.from(context).getActiveSubscriptionInfoList(true);
+        final List<SubscriptionInfo> subInfoList = TelephonyStateCache.getInstance(context)
+                .getActiveSubscriptionInfoList(SubscriptionManager.from(context));
         // No activated Subscriptions
-        if (subInfoList == null) {
+        if (subInfoList.isEmpty()) {
             if (LOGD) {
-                Log.d(TAG, "hasReadyMobileRadio: subInfoList=null");
+                Log.d(TAG, "hasReadyMobileRadio: subInfoList is empty");
             }
             return false;
         }
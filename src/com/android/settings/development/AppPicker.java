@@ -32,6 +32,7 @@ import android.widget.ArrayAdapter;
 import android.widget.ListView;
 
 import com.android.settings.R;
+import com.android.settings.applications.AppIconCache;
 
 import java.text.Collator;
 import java.util.ArrayList;
@@ -94,10 +95,12 @@ public class AppPicker extends ListActivity {
     public class AppListAdapter extends ArrayAdapter<MyApplicationInfo> {
         private final List<MyApplicationInfo> mPackageInfoList = new ArrayList<MyApplicationInfo>();
         private final LayoutInflater mInflater;
+        private final AppIconCache mIconCache;
 
         public AppListAdapter(Context context) {
             super(context, 0);
             mInflater = (LayoutInflater)context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+            mIconCache = AppIconCache.getInstance(context);
             List<ApplicationInfo> pkgs = context.getPackageManager().getInstalledApplications(0);
             for (int i=0; i<pkgs.size(); i++) {
                 ApplicationInfo ai = pkgs.get(i);
@@ -146,7 +149,7 @@ public class AppPicker extends ListActivity {
 
                 MyApplicationInfo info = new MyApplicationInfo();
                 info.info = ai;
-                info.label = info.info.loadLabel(getPackageManager()).toString();
+                info.label = mIconCache.getLabel(info.info).toString();
                 mPackageInfoList.add(info);
             }
             Collections.sort(mPackageInfoList, sDisplayNameComparator);
@@ -165,7 +168,7 @@ public class AppPicker extends ListActivity {
             MyApplicationInfo info = getItem(position);
             holder.appName.setText(info.label);
             if (info.info != null) {
-                holder.appIcon.setImageDrawable(info.info.loadIcon(getPackageManager()));
+                holder.appIcon.setImageDrawable(mIconCache.getBadgedIcon(info.info));
                 holder.summary.setText(info.info.packageName);
             } else {
                 holder.appIcon.setImageDrawable(null);
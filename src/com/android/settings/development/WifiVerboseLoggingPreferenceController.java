@@ -23,11 +23,13 @@ import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.SwitchPreference;
 
+import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settingslib.development.DeveloperOptionsPreferenceController;
 
 public class WifiVerboseLoggingPreferenceController extends DeveloperOptionsPreferenceController
-        implements Preference.OnPreferenceChangeListener, PreferenceControllerMixin {
+        implements Preference.OnPreferenceChangeListener, PreferenceControllerMixin,
+        BasePreferenceController.BackgroundStateLoader<Boolean> {
 
     private static final String WIFI_VERBOSE_LOGGING_KEY = "wifi_verbose_logging";
 
@@ -58,9 +60,17 @@ public class WifiVerboseLoggingPreferenceController extends DeveloperOptionsPref
 
     @Override
     public void updateState(Preference preference) {
-        final boolean enabled = mWifiManager.getVerboseLoggingLevel() > 0;
-        ((SwitchPreference) mPreference).setChecked(enabled);
+        applyState(preference, loadState());
+    }
 
+    @Override
+    public Boolean loadState() {
+        return mWifiManager.getVerboseLoggingLevel() > 0;
+    }
+
+    @Override
+    public void applyState(Preference preference, Boolean enabled) {
+        ((SwitchPreference) preference).setChecked(enabled);
     }
 
     @Override
@@ -27,6 +27,7 @@ import android.telephony.TelephonyManager;
 import android.text.BidiFormatter;
 import android.text.TextDirectionHeuristics;
 import android.text.TextUtils;
+import android.util.Pair;
 import android.widget.Toast;
 
 import androidx.annotation.VisibleForTesting;
@@ -40,7 +41,8 @@ import com.android.settingslib.DeviceInfoUtils;
 import java.util.ArrayList;
 import java.util.List;
 
-public class PhoneNumberPreferenceController extends BasePreferenceController {
+public class PhoneNumberPreferenceController extends BasePreferenceController implements
+        BasePreferenceController.BackgroundStateLoader<List<Pair<CharSequence, CharSequence>>> {
 
     private final static String KEY_PHONE_NUMBER = "phone_number";
 
@@ -84,10 +86,31 @@ public class PhoneNumberPreferenceController extends BasePreferenceController {
 
     @Override
     public void updateState(Preference preference) {
-        for (int simSlotNumber = 0; simSlotNumber < mPreferenceList.size(); simSlotNumber++) {
+        applyState(preference, loadState());
+    }
+
+    /**
+     * Returns the title and phone number of each sim slot shown.
+     */
+    @Override
+    public List<Pair<CharSequence, CharSequence>> loadState() {
+        final int simSlotCount = mPreferenceList.size();
+        final List<Pair<CharSequence, CharSequence>> phoneNumbers = new ArrayList<>(simSlotCount);
+        for (int simSlotNumber = 0; simSlotNumber < simSlotCount; simSlotNumber++) {
+            phoneNumbers.add(Pair.create(getPreferenceTitle(simSlotNumber),
+                    getPhoneNumber(simSlotNumber)));
+        }
+        return phoneNumbers;
+    }
+
+    @Override
+    public void applyState(Preference preference,
+            List<Pair<CharSequence, CharSequence>> phoneNumbers) {
+        final int count = Math.min(phoneNumbers.size(), mPreferenceList.size());
+        for (int simSlotNumber = 0; simSlotNumber < count; simSlotNumber++) {
             final Preference simStatusPreference = mPreferenceList.get(simSlotNumber);
-            simStatusPreference.setTitle(getPreferenceTitle(simSlotNumber));
-            simStatusPreference.setSummary(getPhoneNumber(simSlotNumber));
+            simStatusPreference.setTitle(phoneNumbers.get(simSlotNumber).first);
+            simStatusPreference.setSummary(phoneNumbers.get(simSlotNumber).second);
         }
     }
 
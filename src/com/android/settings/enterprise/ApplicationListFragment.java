@@ -52,7 +52,7 @@ public abstract class ApplicationListFragment extends DashboardFragment
     protected List<AbstractPreferenceController> createPreferenceControllers(Context context) {
         final List<AbstractPreferenceController> controllers = new ArrayList<>();
         ApplicationListPreferenceController controller = new ApplicationListPreferenceController(
-                context, this, context.getPackageManager(), this);
+                context, this, this);
         controllers.add(controller);
         return controllers;
     }
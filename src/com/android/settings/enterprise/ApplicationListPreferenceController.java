@@ -17,13 +17,12 @@
 package com.android.settings.enterprise;
 
 import android.content.Context;
-import android.content.pm.PackageManager;
-import android.util.IconDrawableFactory;
 
 import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.SettingsPreferenceFragment;
+import com.android.settings.applications.AppIconCache;
 import com.android.settings.applications.ApplicationFeatureProvider;
 import com.android.settings.applications.UserAppInfo;
 import com.android.settings.core.PreferenceControllerMixin;
@@ -38,13 +37,11 @@ import java.util.List;
  */
 public class ApplicationListPreferenceController extends AbstractPreferenceController implements
         PreferenceControllerMixin, ApplicationFeatureProvider.ListOfAppsCallback {
-    private final PackageManager mPm;
     private SettingsPreferenceFragment mParent;
 
     public ApplicationListPreferenceController(Context context, ApplicationListBuilder builder,
-            PackageManager packageManager, SettingsPreferenceFragment parent) {
+            SettingsPreferenceFragment parent) {
         super(context);
-        mPm = packageManager;
         mParent = parent;
         builder.buildApplicationList(context, this);
     }
@@ -65,13 +62,13 @@ public class ApplicationListPreferenceController extends AbstractPreferenceContr
         if (screen == null) {
             return;
         }
-        final IconDrawableFactory iconDrawableFactory = IconDrawableFactory.newInstance(mContext);
+        final AppIconCache iconCache = AppIconCache.getInstance(mContext);
         final Context prefContext = mParent.getPreferenceManager().getContext();
         for (int position = 0; position < result.size(); position++) {
             final UserAppInfo item = result.get(position);
             final Preference preference = new AppPreference(prefContext);
-            preference.setTitle(item.appInfo.loadLabel(mPm));
-            preference.setIcon(iconDrawableFactory.getBadgedIcon(item.appInfo));
+            preference.setTitle(iconCache.getLabel(item.appInfo));
+            iconCache.loadBadgedIcon(item.appInfo, preference::setIcon);
             preference.setOrder(position);
             preference.setSelectable(false);
             screen.addPreference(preference);
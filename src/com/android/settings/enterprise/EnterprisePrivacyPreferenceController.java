@@ -18,12 +18,13 @@ import android.content.Context;
 import androidx.preference.Preference;
 
 import com.android.settings.R;
+import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.AbstractPreferenceController;
 
 public class EnterprisePrivacyPreferenceController extends AbstractPreferenceController implements
-        PreferenceControllerMixin {
+        PreferenceControllerMixin, BasePreferenceController.BackgroundStateLoader<String> {
 
     private static final String KEY_ENTERPRISE_PRIVACY = "enterprise_privacy";
     private final EnterprisePrivacyFeatureProvider mFeatureProvider;
@@ -39,7 +40,19 @@ public class EnterprisePrivacyPreferenceController extends AbstractPreferenceCon
         if (preference == null) {
             return;
         }
-        final String organizationName = mFeatureProvider.getDeviceOwnerOrganizationName();
+        applyState(preference, loadState());
+    }
+
+    /**
+     * Returns the device owner organization name, or {@code null} if it has none.
+     */
+    @Override
+    public String loadState() {
+        return mFeatureProvider.getDeviceOwnerOrganizationName();
+    }
+
+    @Override
+    public void applyState(Preference preference, String organizationName) {
         if (organizationName == null) {
             preference.setSummary(R.string.enterprise_privacy_settings_summary_generic);
         } else {
@@ -15,12 +15,15 @@ package com.android.settings.enterprise;
 
 import android.content.Context;
 
+import androidx.preference.Preference;
+
 import com.android.settings.R;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.overlay.FeatureFactory;
 
 
-public class ManageDeviceAdminPreferenceController extends BasePreferenceController {
+public class ManageDeviceAdminPreferenceController extends BasePreferenceController
+        implements BasePreferenceController.BackgroundStateLoader<CharSequence> {
 
     private final EnterprisePrivacyFeatureProvider mFeatureProvider;
 
@@ -40,6 +43,16 @@ public class ManageDeviceAdminPreferenceController extends BasePreferenceControl
                         activeAdmins, activeAdmins);
     }
 
+    @Override
+    public CharSequence loadState() {
+        return getSummary();
+    }
+
+    @Override
+    public void applyState(Preference preference, CharSequence summary) {
+        preference.setSummary(summary);
+    }
+
     @Override
     public int getAvailabilityStatus() {
         return mContext.getResources().getBoolean(R.bool.config_show_manage_device_admin)
@@ -42,6 +42,8 @@ import androidx.annotation.WorkerThread;
 import com.android.internal.os.BatterySipper;
 import com.android.internal.os.BatteryStatsHelper;
 import com.android.internal.util.ArrayUtils;
+import com.android.settings.core.instrumentation.LatencyTracker;
+import com.android.settings.core.instrumentation.SettingsMetricsFeatureProvider;
 import com.android.settings.fuelgauge.batterytip.AnomalyDatabaseHelper;
 import com.android.settings.fuelgauge.batterytip.AnomalyInfo;
 import com.android.settings.fuelgauge.batterytip.BatteryDatabaseManager;
@@ -83,6 +85,7 @@ public class BatteryUtils {
     }
 
     private static final String TAG = "BatteryUtils";
+    private static final String SPAN_GET_BATTERY_INFO = TAG + "/getBatteryInfo";
 
     private static final int MIN_POWER_THRESHOLD_MILLI_AMP = 5;
 
@@ -467,6 +470,10 @@ public class BatteryUtils {
     @WorkerThread
     public BatteryInfo getBatteryInfo(final BatteryStatsHelper statsHelper, final String tag) {
         final long startTime = System.currentTimeMillis();
+        final SettingsMetricsFeatureProvider metricsFeatureProvider =
+                SettingsMetricsFeatureProvider.get(mContext);
+        final LatencyTracker.Span span = metricsFeatureProvider != null
+                ? metricsFeatureProvider.startSpan(SPAN_GET_BATTERY_INFO) : null;
 
         // Stuff we always need to get BatteryInfo
         final Intent batteryBroadcast = mContext.registerReceiver(null,
@@ -489,6 +496,9 @@ public class BatteryUtils {
         batteryInfo = BatteryInfo.getBatteryInfo(mContext, batteryBroadcast, stats,
                 estimate, elapsedRealtimeUs, false /* shortString */);
         BatteryUtils.logRuntime(tag, "BatteryInfoLoader.loadInBackground", startTime);
+        if (span != null) {
+            span.end();
+        }
 
         return batteryInfo;
     }
@@ -38,6 +38,7 @@ import com.android.settings.SubSettings;
 import com.android.settings.Utils;
 import com.android.settings.deviceinfo.HardwareInfoPreferenceController;
 import com.android.settings.deviceinfo.aboutphone.MyDeviceInfoFragment;
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settings.slices.CustomSliceRegistry;
 import com.android.settings.slices.CustomSliceable;
 import com.android.settings.slices.SliceBuilderUtils;
@@ -112,9 +113,9 @@ public class DeviceInfoSlice implements CustomSliceable {
 
     @VisibleForTesting
     SubscriptionInfo getFirstSubscriptionInfo() {
-        final List<SubscriptionInfo> subscriptionInfoList =
-                mSubscriptionManager.getActiveSubscriptionInfoList(true);
-        if (subscriptionInfoList == null || subscriptionInfoList.isEmpty()) {
+        final List<SubscriptionInfo> subscriptionInfoList = TelephonyStateCache.getInstance(
+                mContext).getActiveSubscriptionInfoList(mSubscriptionManager);
+        if (subscriptionInfoList.isEmpty()) {
             return null;
         }
         return subscriptionInfoList.get(0);
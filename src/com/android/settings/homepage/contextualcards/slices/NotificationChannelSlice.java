@@ -26,6 +26,7 @@ import android.app.Application;
 import android.app.NotificationChannel;
 import android.app.NotificationChannelGroup;
 import android.app.PendingIntent;
+import android.app.role.RoleManager;
 import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.Intent;
@@ -66,12 +67,7 @@ import com.android.settingslib.applications.ApplicationsState;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 public class NotificationChannelSlice implements CustomSliceable {
@@ -103,7 +99,9 @@ public class NotificationChannelSlice implements CustomSliceable {
     private static final String PACKAGE_NAME = "package_name";
     private static final String PACKAGE_UID = "package_uid";
     private static final String CHANNEL_ID = "channel_id";
-    private static final long TASK_TIMEOUT_MS = 100;
+    private static final long LOAD_TIMEOUT_MS = 500;
+    // Only packages with at least this many channels are suggested.
+    private static final int MIN_CHANNEL_COUNT = 2;
 
     /**
      * Sort notification channel with weekly average sent count by descending.
@@ -135,7 +133,6 @@ public class NotificationChannelSlice implements CustomSliceable {
             };
 
     protected final Context mContext;
-    private final ExecutorService mExecutorService;
     @VisibleForTesting
     NotificationBackend mNotificationBackend;
     private NotificationBackend.AppRow mAppRow;
@@ -145,7 +142,6 @@ public class NotificationChannelSlice implements CustomSliceable {
     public NotificationChannelSlice(Context context) {
         mContext = context;
         mNotificationBackend = new NotificationBackend();
-        mExecutorService = Executors.newCachedThreadPool();
     }
 
     @Override
@@ -318,16 +314,11 @@ public class NotificationChannelSlice implements CustomSliceable {
         // Get recently installed packages between 3 and 7 days ago.
         final List<PackageInfo> recentlyInstalledPackages = new ArrayList<>();
         final List<PackageInfo> installedPackages =
-                mContext.getPackageManager().getInstalledPackages(0);
+                NotificationChannelSliceCache.getInstance(mContext)
+                        .getPackagesInstalledBetween(startTime, endTime);
         for (PackageInfo packageInfo : installedPackages) {
-            // Not include system app and interacted app.
-            if (packageInfo.applicationInfo.isSystemApp()
-                    || isUserInteracted(packageInfo.packageName)) {
-                continue;
-            }
-
-            if (packageInfo.firstInstallTime >= startTime
-                    && packageInfo.firstInstallTime <= endTime) {
+            // Not include interacted app. System apps are already excluded by the cache.
+            if (!isUserInteracted(packageInfo.packageName)) {
                 recentlyInstalledPackages.add(packageInfo);
             }
         }
@@ -374,25 +365,43 @@ public class NotificationChannelSlice implements CustomSliceable {
             return null;
         }
 
-        // Create tasks to get notification data for multi-channel packages.
-        final List<Future<NotificationBackend.AppRow>> appRowTasks = new ArrayList<>();
+        // Load notification data of the packages not in the cache in one batch.
+        final NotificationChannelSliceCache cache =
+                NotificationChannelSliceCache.getInstance(mContext);
+        final List<NotificationBackend.AppRow> appRows = new ArrayList<>();
+        final List<PackageInfo> packagesToLoad = new ArrayList<>();
         for (PackageInfo packageInfo : packageInfoList) {
-            final NotificationMultiChannelAppRow future = new NotificationMultiChannelAppRow(
-                    mContext, mNotificationBackend, packageInfo);
-            appRowTasks.add(mExecutorService.submit(future));
+            if (cache.hasAppRow(packageInfo.packageName)) {
+                appRows.add(cache.getAppRow(packageInfo.packageName));
+            } else {
+                packagesToLoad.add(packageInfo);
+            }
+        }
+        if (!packagesToLoad.isEmpty()) {
+            final List<NotificationBackend.AppRow> loadedRows = mNotificationBackend.loadAppRows(
+                    mContext, mContext.getPackageManager(),
+                    mContext.getSystemService(RoleManager.class), packagesToLoad,
+                    LOAD_TIMEOUT_MS, MIN_CHANNEL_COUNT);
+            for (int i = 0; i < loadedRows.size(); i++) {
+                final NotificationBackend.AppRow appRow = loadedRows.get(i);
+                if (appRow == null) {
+                    // Failed or timed out, try again next time.
+                    continue;
+                }
+                if (appRow.channelCount < MIN_CHANNEL_COUNT) {
+                    // Packages without multiple channels are never suggested.
+                    cache.putAppRow(packagesToLoad.get(i).packageName, null);
+                    continue;
+                }
+                cache.putAppRow(packagesToLoad.get(i).packageName, appRow);
+                appRows.add(appRow);
+            }
         }
 
         // Get the package which has sent at least ~10 notifications and not turn off channels.
         int maxSentCount = 0;
         String maxSentCountPackage = null;
-        for (Future<NotificationBackend.AppRow> appRowTask : appRowTasks) {
-            NotificationBackend.AppRow appRow = null;
-            try {
-                appRow = appRowTask.get(TASK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-            } catch (ExecutionException | InterruptedException | TimeoutException e) {
-                Log.w(TAG, "Failed to get notification data.", e);
-            }
-
+        for (NotificationBackend.AppRow appRow : appRows) {
             // Ignore packages which are banned notifications or block all displayable channels.
             if (appRow == null || appRow.banned || isAllChannelsBlocked(
                     getDisplayableChannels(appRow))) {
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards.slices;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.settings.notification.NotificationBackend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache behind {@link NotificationChannelSlice}.
+ *
+ * It keeps installed non-system packages sorted by first install time, so finding recently
+ * installed packages is a range lookup instead of a {@link PackageManager#getInstalledPackages}
+ * scan, and it keeps the {@link NotificationBackend.AppRow} computed for each candidate. Both are
+ * kept current by package broadcasts; app rows also expire after {@link #APP_ROW_TTL_MS} and are
+ * dropped when the notification settings of the package are changed through
+ * {@link NotificationBackend}, i.e. on the app notification pages or by the slice.
+ */
+class NotificationChannelSliceCache {
+
+    private static final String TAG = "NotifChannelSliceCache";
+
+    @VisibleForTesting
+    static final long APP_ROW_TTL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Comparator<PackageInfo> INSTALL_TIME_COMPARATOR =
+            Comparator.comparingLong(packageInfo -> packageInfo.firstInstallTime);
+
+    private static NotificationChannelSliceCache sInstance;
+
+    private final Context mContext;
+    private final Map<String, AppRowEntry> mAppRows = new ArrayMap<>();
+    // Non-system packages sorted by first install time, or null until first used.
+    private List<PackageInfo> mPackagesByInstallTime;
+
+    @VisibleForTesting
+    final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            final String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (packageName == null) {
+                return;
+            }
+            final boolean removed = Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                    && !intent.getBooleanExtra(Intent.EXTRA_REPLACING, false);
+            onPackageChanged(packageName, removed);
+        }
+    };
+
+    private final NotificationBackend.OnPackageChangedListener mSettingsListener =
+            this::invalidateAppRow;
+
+    static synchronized NotificationChannelSliceCache getInstance(Context context) {
+        final Context appContext = context.getApplicationContext();
+        if (sInstance != null && sInstance.mContext != appContext) {
+            // Only happens in tests, where each test has its own application.
+            sInstance.release();
+            sInstance = null;
+        }
+        if (sInstance == null) {
+            sInstance = new NotificationChannelSliceCache(appContext);
+        }
+        return sInstance;
+    }
+
+    private NotificationChannelSliceCache(Context context) {
+        mContext = context;
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        mContext.registerReceiver(mPackageReceiver, filter);
+        NotificationBackend.addOnPackageChangedListener(mSettingsListener);
+    }
+
+    private void release() {
+        mContext.unregisterReceiver(mPackageReceiver);
+        NotificationBackend.removeOnPackageChangedListener(mSettingsListener);
+    }
+
+    /**
+     * Returns non-system packages first installed between {@code startTime} and {@code endTime},
+     * both inclusive.
+     */
+    synchronized List<PackageInfo> getPackagesInstalledBetween(long startTime, long endTime) {
+        final List<PackageInfo> packages = getPackagesByInstallTime();
+        final List<PackageInfo> result = new ArrayList<>();
+        for (int i = lowerBound(packages, startTime); i < packages.size(); i++) {
+            final PackageInfo packageInfo = packages.get(i);
+            if (packageInfo.firstInstallTime > endTime) {
+                break;
+            }
+            result.add(packageInfo);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether an unexpired app row, possibly {@code null}, is cached for
+     * {@code packageName}.
+     */
+    synchronized boolean hasAppRow(String packageName) {
+        final AppRowEntry entry = mAppRows.get(packageName);
+        if (entry == null) {
+            return false;
+        }
+        if (SystemClock.elapsedRealtime() - entry.mLoadTime >= APP_ROW_TTL_MS) {
+            mAppRows.remove(packageName);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the cached app row of {@code packageName}. Only meaningful after
+     * {@link #hasAppRow(String)} returned true; {@code null} means the package has no multiple
+     * channels.
+     */
+    synchronized NotificationBackend.AppRow getAppRow(String packageName) {
+        final AppRowEntry entry = mAppRows.get(packageName);
+        return entry != null ? entry.mAppRow : null;
+    }
+
+    synchronized void putAppRow(String packageName, NotificationBackend.AppRow appRow) {
+        mAppRows.put(packageName, new AppRowEntry(appRow, SystemClock.elapsedRealtime()));
+    }
+
+    /**
+     * Drops the cached app row of {@code packageName}, i.e. after its notification settings
+     * changed.
+     */
+    synchronized void invalidateAppRow(String packageName) {
+        mAppRows.remove(packageName);
+    }
+
+    @VisibleForTesting
+    synchronized void onPackageChanged(String packageName, boolean removed) {
+        mAppRows.remove(packageName);
+        if (mPackagesByInstallTime == null) {
+            return;
+        }
+        for (int i = mPackagesByInstallTime.size() - 1; i >= 0; i--) {
+            if (packageName.equals(mPackagesByInstallTime.get(i).packageName)) {
+                mPackagesByInstallTime.remove(i);
+            }
+        }
+        if (removed) {
+            return;
+        }
+        try {
+            final PackageInfo packageInfo =
+                    mContext.getPackageManager().getPackageInfo(packageName, 0 /* flags */);
+            if (isCandidate(packageInfo)) {
+                final int index = Collections.binarySearch(mPackagesByInstallTime, packageInfo,
+                        INSTALL_TIME_COMPARATOR);
+                mPackagesByInstallTime.add(index >= 0 ? index : -index - 1, packageInfo);
+            }
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Package changed but not found: " + packageName);
+        }
+    }
+
+    private List<PackageInfo> getPackagesByInstallTime() {
+        if (mPackagesByInstallTime == null) {
+            final List<PackageInfo> packages = new ArrayList<>();
+            for (PackageInfo packageInfo : mContext.getPackageManager().getInstalledPackages(0)) {
+                if (isCandidate(packageInfo)) {
+                    packages.add(packageInfo);
+                }
+            }
+            packages.sort(INSTALL_TIME_COMPARATOR);
+            mPackagesByInstallTime = packages;
+        }
+        return mPackagesByInstallTime;
+    }
+
+    private static boolean isCandidate(PackageInfo packageInfo) {
+        return packageInfo.applicationInfo != null && !packageInfo.applicationInfo.isSystemApp();
+    }
+
+    private static int lowerBound(List<PackageInfo> packages, long time) {
+        int low = 0;
+        int high = packages.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (packages.get(mid).firstInstallTime < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class AppRowEntry {
+        final NotificationBackend.AppRow mAppRow;
+        final long mLoadTime;
+
+        AppRowEntry(NotificationBackend.AppRow appRow, long loadTime) {
+            mAppRow = appRow;
+            mLoadTime = loadTime;
+        }
+    }
+}
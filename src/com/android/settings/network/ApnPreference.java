@@ -88,7 +88,16 @@ public class ApnPreference extends Preference implements CompoundButton.OnChecke
     }
 
     public void setChecked() {
+        if (isChecked()) {
+            return;
+        }
+        // The list may already be shown, uncheck the previous APN and rebind this one.
+        if (mCurrentChecked != null) {
+            mCurrentChecked.setChecked(false);
+            mCurrentChecked = null;
+        }
         mSelectedKey = getKey();
+        notifyChanged();
     }
 
     public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
@@ -26,6 +26,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
@@ -42,6 +43,7 @@ import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -49,6 +51,7 @@ import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.widget.Toast;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
@@ -58,8 +61,11 @@ import com.android.internal.telephony.uicc.UiccController;
 import com.android.settings.R;
 import com.android.settings.RestrictedSettingsFragment;
 import com.android.settingslib.RestrictedLockUtils.EnforcedAdmin;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 public class ApnSettings extends RestrictedSettingsFragment
         implements Preference.OnPreferenceChangeListener {
@@ -127,6 +133,25 @@ public class ApnSettings extends RestrictedSettingsFragment
     private boolean mAllowAddingApns;
     private boolean mHidePresetApnDetails;
 
+    // Rows currently shown, by APN id.
+    private final ArrayMap<String, ApnRow> mApnRows = new ArrayMap<>();
+    // Incremented for every load, so only the results of the latest one are shown.
+    private int mLoadGeneration;
+    // Writes of the preferred APN still running on a background thread, and the number of writes
+    // started so far. A load that overlaps a write may read the previous preferred APN.
+    private int mPendingSelectedKeyWrites;
+    private int mSelectedKeyWriteGeneration;
+
+    private final ContentObserver mApnObserver = new ContentObserver(
+            new Handler(Looper.getMainLooper())) {
+        @Override
+        public void onChange(boolean selfChange) {
+            if (!mRestoreDefaultApnMode) {
+                fillList();
+            }
+        }
+    };
+
     public ApnSettings() {
         super(UserManager.DISALLOW_CONFIG_MOBILE_NETWORKS);
     }
@@ -234,6 +259,8 @@ public class ApnSettings extends RestrictedSettingsFragment
         }
 
         getActivity().registerReceiver(mReceiver, mIntentFilter);
+        getContentResolver().registerContentObserver(Telephony.Carriers.CONTENT_URI,
+                true /* notifyForDescendants */, mApnObserver);
 
         if (!mRestoreDefaultApnMode) {
             fillList();
@@ -249,6 +276,7 @@ public class ApnSettings extends RestrictedSettingsFragment
         }
 
         getActivity().unregisterReceiver(mReceiver);
+        getContentResolver().unregisterContentObserver(mApnObserver);
     }
 
     @Override
@@ -275,7 +303,12 @@ public class ApnSettings extends RestrictedSettingsFragment
         return SubscriptionManager.from(getActivity()).getActiveSubscriptionInfo(subId);
     }
 
-    private void fillList() {
+    /**
+     * Loads the APNs of the current subscription and the preferred one on a background thread,
+     * then updates the list with the rows that changed.
+     */
+    @VisibleForTesting
+    void fillList() {
         final int subId = mSubscriptionInfo != null ? mSubscriptionInfo.getSubscriptionId()
                 : SubscriptionManager.INVALID_SUBSCRIPTION_ID;
         final Uri simApnUri = Uri.withAppendedPath(Telephony.Carriers.SIM_APN_URI,
@@ -287,64 +320,112 @@ public class ApnSettings extends RestrictedSettingsFragment
             where.append(" AND NOT (type='ims')");
         }
 
-        Cursor cursor = getContentResolver().query(simApnUri,
-                CARRIERS_PROJECTION, where.toString(), null,
-                Telephony.Carriers.DEFAULT_SORT_ORDER);
-
-        if (cursor != null) {
-            PreferenceGroup apnPrefList = (PreferenceGroup) findPreference("apn_list");
-            apnPrefList.removeAll();
-
-            ArrayList<ApnPreference> apnList = new ArrayList<ApnPreference>();
-            ArrayList<ApnPreference> mmsApnList = new ArrayList<ApnPreference>();
-
-            mSelectedKey = getSelectedApnKey();
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast()) {
-                String name = cursor.getString(NAME_INDEX);
-                String apn = cursor.getString(APN_INDEX);
-                String key = cursor.getString(ID_INDEX);
-                String type = cursor.getString(TYPES_INDEX);
-                int edited = cursor.getInt(EDITED_INDEX);
-                mMvnoType = cursor.getString(MVNO_TYPE_INDEX);
-                mMvnoMatchData = cursor.getString(MVNO_MATCH_DATA_INDEX);
-
-                ApnPreference pref = new ApnPreference(getPrefContext());
-
-                pref.setKey(key);
-                pref.setTitle(name);
-                pref.setPersistent(false);
-                pref.setOnPreferenceChangeListener(this);
-                pref.setSubId(subId);
-                if (mHidePresetApnDetails && edited == Telephony.Carriers.UNEDITED) {
-                    pref.setHideDetails();
-                } else {
-                    pref.setSummary(apn);
+        final String selection = where.toString();
+        final ContentResolver resolver = getContentResolver();
+        final Uri preferredApnUri = getUriForCurrSubId(PREFERAPN_URI);
+        final int generation = ++mLoadGeneration;
+        final boolean writePending = mPendingSelectedKeyWrites > 0;
+        final int writeGeneration = mSelectedKeyWriteGeneration;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final List<ApnRow> rows = loadApnRows(resolver, simApnUri, selection);
+            final String selectedKey = rows != null
+                    ? getSelectedApnKey(resolver, preferredApnUri) : null;
+            ThreadUtils.postOnMainThread(() -> {
+                if (generation != mLoadGeneration || rows == null || !isAdded()) {
+                    return;
                 }
+                // Keep the key set by the user if it may not have been written when loading.
+                final boolean keepSelectedKey = writePending
+                        || writeGeneration != mSelectedKeyWriteGeneration;
+                updateList(rows, keepSelectedKey ? mSelectedKey : selectedKey, subId);
+            });
+        });
+    }
 
-                boolean selectable = ((type == null) || !type.equals("mms"));
-                pref.setSelectable(selectable);
-                if (selectable) {
-                    if ((mSelectedKey != null) && mSelectedKey.equals(key)) {
-                        pref.setChecked();
-                    }
-                    apnList.add(pref);
+    /**
+     * Returns the APN rows, selectable ones first, or {@code null} if the query failed.
+     */
+    private static List<ApnRow> loadApnRows(ContentResolver resolver, Uri uri, String where) {
+        final Cursor cursor = resolver.query(uri, CARRIERS_PROJECTION, where, null,
+                Telephony.Carriers.DEFAULT_SORT_ORDER);
+        if (cursor == null) {
+            return null;
+        }
+        final List<ApnRow> apnList = new ArrayList<>();
+        final List<ApnRow> mmsApnList = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                final ApnRow row = new ApnRow(cursor);
+                if (row.isSelectable()) {
+                    apnList.add(row);
                 } else {
-                    mmsApnList.add(pref);
+                    mmsApnList.add(row);
                 }
-                cursor.moveToNext();
             }
+        } finally {
             cursor.close();
+        }
+        apnList.addAll(mmsApnList);
+        return apnList;
+    }
 
-            for (Preference preference : apnList) {
-                apnPrefList.addPreference(preference);
+    /**
+     * Adds, updates and removes preferences so the list shows {@code rows}. Unchanged rows keep
+     * their preference.
+     */
+    private void updateList(List<ApnRow> rows, String selectedKey, int subId) {
+        final PreferenceGroup apnPrefList = (PreferenceGroup) findPreference("apn_list");
+        mSelectedKey = selectedKey;
+
+        final ArrayMap<String, ApnRow> previousRows = new ArrayMap<>(mApnRows);
+        mApnRows.clear();
+        for (int i = 0; i < rows.size(); i++) {
+            final ApnRow row = rows.get(i);
+            mApnRows.put(row.mKey, row);
+            ApnPreference pref = apnPrefList.findPreference(row.mKey);
+            if (pref == null || !row.equals(previousRows.get(row.mKey))) {
+                if (pref != null) {
+                    // Hiding details can't be undone on a preference, so replace it.
+                    apnPrefList.removePreference(pref);
+                }
+                pref = createApnPreference(row, subId);
+                pref.setOrder(i);
+                apnPrefList.addPreference(pref);
+            } else {
+                pref.setOrder(i);
+            }
+            if (row.isSelectable() && row.mKey.equals(selectedKey)) {
+                pref.setChecked();
             }
-            for (Preference preference : mmsApnList) {
-                apnPrefList.addPreference(preference);
+            // Last row wins, as before.
+            mMvnoType = row.mMvnoType;
+            mMvnoMatchData = row.mMvnoMatchData;
+        }
+
+        for (int i = apnPrefList.getPreferenceCount() - 1; i >= 0; i--) {
+            final Preference pref = apnPrefList.getPreference(i);
+            if (!mApnRows.containsKey(pref.getKey())) {
+                apnPrefList.removePreference(pref);
             }
         }
     }
 
+    private ApnPreference createApnPreference(ApnRow row, int subId) {
+        final ApnPreference pref = new ApnPreference(getPrefContext());
+        pref.setKey(row.mKey);
+        pref.setTitle(row.mName);
+        pref.setPersistent(false);
+        pref.setOnPreferenceChangeListener(this);
+        pref.setSubId(subId);
+        if (mHidePresetApnDetails && row.mEdited == Telephony.Carriers.UNEDITED) {
+            pref.setHideDetails();
+        } else {
+            pref.setSummary(row.mApn);
+        }
+        pref.setSelectable(row.isSelectable());
+        return pref;
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         if (!mUnavailable) {
@@ -402,18 +483,27 @@ public class ApnSettings extends RestrictedSettingsFragment
 
     private void setSelectedApnKey(String key) {
         mSelectedKey = key;
-        ContentResolver resolver = getContentResolver();
+        final ContentResolver resolver = getContentResolver();
+        final Uri preferredApnUri = getUriForCurrSubId(PREFERAPN_URI);
 
-        ContentValues values = new ContentValues();
+        final ContentValues values = new ContentValues();
         values.put(APN_ID, mSelectedKey);
-        resolver.update(getUriForCurrSubId(PREFERAPN_URI), values, null, null);
+        mSelectedKeyWriteGeneration++;
+        mPendingSelectedKeyWrites++;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            resolver.update(preferredApnUri, values, null, null);
+            ThreadUtils.postOnMainThread(() -> mPendingSelectedKeyWrites--);
+        });
     }
 
-    private String getSelectedApnKey() {
+    private static String getSelectedApnKey(ContentResolver resolver, Uri preferredApnUri) {
         String key = null;
 
-        Cursor cursor = getContentResolver().query(getUriForCurrSubId(PREFERAPN_URI),
+        Cursor cursor = resolver.query(preferredApnUri,
                 new String[] {"_id"}, null, null, Telephony.Carriers.DEFAULT_SORT_ORDER);
+        if (cursor == null) {
+            return null;
+        }
         if (cursor.getCount() > 0) {
             cursor.moveToFirst();
             key = cursor.getString(ID_INDEX);
@@ -522,4 +612,49 @@ public class ApnSettings extends RestrictedSettingsFragment
         }
         return 0;
     }
+
+    /**
+     * The columns of one APN shown in the list.
+     */
+    private static class ApnRow {
+        final String mKey;
+        final String mName;
+        final String mApn;
+        final String mType;
+        final int mEdited;
+        final String mMvnoType;
+        final String mMvnoMatchData;
+
+        ApnRow(Cursor cursor) {
+            mKey = cursor.getString(ID_INDEX);
+            mName = cursor.getString(NAME_INDEX);
+            mApn = cursor.getString(APN_INDEX);
+            mType = cursor.getString(TYPES_INDEX);
+            mEdited = cursor.getInt(EDITED_INDEX);
+            mMvnoType = cursor.getString(MVNO_TYPE_INDEX);
+            mMvnoMatchData = cursor.getString(MVNO_MATCH_DATA_INDEX);
+        }
+
+        boolean isSelectable() {
+            return mType == null || !mType.equals("mms");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ApnRow)) {
+                return false;
+            }
+            final ApnRow other = (ApnRow) o;
+            return mEdited == other.mEdited && Objects.equals(mKey, other.mKey)
+                    && Objects.equals(mName, other.mName) && Objects.equals(mApn, other.mApn)
+                    && Objects.equals(mType, other.mType)
+                    && Objects.equals(mMvnoType, other.mMvnoType)
+                    && Objects.equals(mMvnoMatchData, other.mMvnoMatchData);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mKey, mName, mApn, mType, mEdited, mMvnoType, mMvnoMatchData);
+        }
+    }
 }
@@ -18,8 +18,6 @@ package com.android.settings.network;
 
 import static android.telephony.UiccSlotInfo.CARD_STATE_INFO_PRESENT;
 
-import static com.android.internal.util.CollectionUtils.emptyIfNull;
-
 import android.content.Context;
 import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
@@ -73,8 +71,8 @@ public class SubscriptionUtil {
         final SubscriptionManager subMgr = context.getSystemService(SubscriptionManager.class);
         final TelephonyManager telMgr = context.getSystemService(TelephonyManager.class);
 
-        List<SubscriptionInfo> subscriptions =
-                new ArrayList<>(emptyIfNull(subMgr.getSelectableSubscriptionInfoList()));
+        final TelephonyStateCache cache = TelephonyStateCache.getInstance(context);
+        List<SubscriptionInfo> subscriptions = cache.getSelectableSubscriptionInfoList(subMgr);
 
         // Look for inactive but present physical SIMs that are missing from the selectable list.
         final List<UiccSlotInfo> missing = new ArrayList<>();
@@ -93,7 +91,7 @@ public class SubscriptionUtil {
             }
         }
         if (!missing.isEmpty()) {
-            for (SubscriptionInfo info : subMgr.getAllSubscriptionInfoList()) {
+            for (SubscriptionInfo info : cache.getAllSubscriptionInfoList(subMgr)) {
                 for (UiccSlotInfo slotInfo : missing) {
                     if (info.getSimSlotIndex() == slotInfo.getLogicalSlotIdx() &&
                     info.getCardString().equals(slotInfo.getCardId())) {
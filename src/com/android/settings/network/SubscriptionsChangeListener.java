@@ -87,6 +87,8 @@ public class SubscriptionsChangeListener extends ContentObserver {
     }
 
     private void subscriptionsChangedCallback() {
+        // Our listener may be called before the cache's, make sure the client reloads.
+        TelephonyStateCache.invalidateSubscriptions();
         mClient.onSubscriptionsChanged();
     }
 
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.PersistableBundle;
+import android.telephony.CarrierConfigManager;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-process cache of subscription lists and carrier configs.
+ *
+ * Every controller of the Mobile network page used to fetch the same carrier config bundle over
+ * binder while resuming. Configs are now fetched once per subscription and dropped on
+ * {@link CarrierConfigManager#ACTION_CARRIER_CONFIG_CHANGED}, subscription lists are dropped
+ * whenever subscriptions change.
+ *
+ * Values are shared by all callers, whichever manager they hold, so every activity of the
+ * process reuses them. The manager a caller passes is only used to fetch a missing value and is
+ * not kept.
+ *
+ * Callers listening to those changes themselves call {@link #invalidateSubscriptions()} or
+ * {@link #invalidateCarrierConfigs()} before reloading, since the order in which listeners are
+ * called is not defined. Cached bundles are shared and must not be modified.
+ */
+public class TelephonyStateCache {
+
+    private static TelephonyStateCache sInstance;
+
+    private final Context mContext;
+
+    private final SparseArray<PersistableBundle> mCarrierConfigs = new SparseArray<>();
+
+    // Subscription lists are only cached once we are told when they change.
+    private boolean mListeningToSubscriptions;
+    private List<SubscriptionInfo> mActiveSubscriptions;
+    private List<SubscriptionInfo> mSelectableSubscriptions;
+    private List<SubscriptionInfo> mAllSubscriptions;
+
+    @VisibleForTesting
+    final BroadcastReceiver mCarrierConfigReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            clearCarrierConfigs();
+        }
+    };
+
+    private SubscriptionManager.OnSubscriptionsChangedListener mSubscriptionsChangedListener;
+
+    public static synchronized TelephonyStateCache getInstance(Context context) {
+        final Context appContext = context.getApplicationContext() != null
+                ? context.getApplicationContext() : context;
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new TelephonyStateCache(appContext);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Drops the cached subscription lists, if any.
+     */
+    public static void invalidateSubscriptions() {
+        final TelephonyStateCache instance;
+        synchronized (TelephonyStateCache.class) {
+            instance = sInstance;
+        }
+        if (instance != null) {
+            instance.clearSubscriptions();
+        }
+    }
+
+    /**
+     * Drops the cached carrier configs, if any.
+     */
+    public static void invalidateCarrierConfigs() {
+        final TelephonyStateCache instance;
+        synchronized (TelephonyStateCache.class) {
+            instance = sInstance;
+        }
+        if (instance != null) {
+            instance.clearCarrierConfigs();
+        }
+    }
+
+    @VisibleForTesting
+    TelephonyStateCache(Context context) {
+        mContext = context;
+        mContext.registerReceiver(mCarrierConfigReceiver,
+                new IntentFilter(CarrierConfigManager.ACTION_CARRIER_CONFIG_CHANGED));
+        // The listener is bound to the looper of the thread creating it.
+        ThreadUtils.postOnMainThread(this::listenToSubscriptions);
+    }
+
+    /**
+     * Returns the carrier config of {@code subId}, or {@code null} if it is not available.
+     */
+    public synchronized PersistableBundle getCarrierConfig(CarrierConfigManager manager,
+            int subId) {
+        if (manager == null) {
+            return null;
+        }
+        PersistableBundle config = mCarrierConfigs.get(subId);
+        if (config == null) {
+            config = manager.getConfigForSubId(subId);
+            // Not cached if unavailable, i.e. before the carrier config service is up.
+            if (config != null) {
+                mCarrierConfigs.put(subId, config);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Returns the boolean carrier config {@code key} of {@code subId}, false if the config is not
+     * available.
+     */
+    public boolean getCarrierConfigBoolean(CarrierConfigManager manager, int subId, String key) {
+        final PersistableBundle config = getCarrierConfig(manager, subId);
+        return config != null && config.getBoolean(key);
+    }
+
+    /**
+     * Returns the int carrier config {@code key} of {@code subId}, {@code defaultValue} if the
+     * config is not available.
+     */
+    public int getCarrierConfigInt(CarrierConfigManager manager, int subId, String key,
+            int defaultValue) {
+        final PersistableBundle config = getCarrierConfig(manager, subId);
+        return config != null ? config.getInt(key, defaultValue) : defaultValue;
+    }
+
+    /**
+     * Returns the string carrier config {@code key} of {@code subId}, {@code defaultValue} if the
+     * config is not available.
+     */
+    public String getCarrierConfigString(CarrierConfigManager manager, int subId, String key,
+            String defaultValue) {
+        final PersistableBundle config = getCarrierConfig(manager, subId);
+        return config != null ? config.getString(key, defaultValue) : defaultValue;
+    }
+
+    /**
+     * Same as {@link SubscriptionManager#getActiveSubscriptionInfoList(boolean)} with
+     * {@code userVisibleOnly}, but never {@code null}.
+     */
+    public synchronized List<SubscriptionInfo> getActiveSubscriptionInfoList(
+            SubscriptionManager manager) {
+        if (!isSubscriptionCacheValid() || mActiveSubscriptions == null) {
+            mActiveSubscriptions = copyOf(manager.getActiveSubscriptionInfoList(true));
+        }
+        return new ArrayList<>(mActiveSubscriptions);
+    }
+
+    /**
+     * Same as {@link SubscriptionManager#getSelectableSubscriptionInfoList()}, but never
+     * {@code null}.
+     */
+    public synchronized List<SubscriptionInfo> getSelectableSubscriptionInfoList(
+            SubscriptionManager manager) {
+        if (!isSubscriptionCacheValid() || mSelectableSubscriptions == null) {
+            mSelectableSubscriptions = copyOf(manager.getSelectableSubscriptionInfoList());
+        }
+        return new ArrayList<>(mSelectableSubscriptions);
+    }
+
+    /**
+     * Same as {@link SubscriptionManager#getAllSubscriptionInfoList()}, but never {@code null}.
+     */
+    public synchronized List<SubscriptionInfo> getAllSubscriptionInfoList(
+            SubscriptionManager manager) {
+        if (!isSubscriptionCacheValid() || mAllSubscriptions == null) {
+            mAllSubscriptions = copyOf(manager.getAllSubscriptionInfoList());
+        }
+        return new ArrayList<>(mAllSubscriptions);
+    }
+
+    @VisibleForTesting
+    synchronized void clearSubscriptions() {
+        mActiveSubscriptions = null;
+        mSelectableSubscriptions = null;
+        mAllSubscriptions = null;
+    }
+
+    @VisibleForTesting
+    synchronized void clearCarrierConfigs() {
+        mCarrierConfigs.clear();
+    }
+
+    @VisibleForTesting
+    SubscriptionManager.OnSubscriptionsChangedListener getSubscriptionsChangedListener() {
+        return mSubscriptionsChangedListener;
+    }
+
+    /**
+     * Returns whether cached lists may be used, which is only once subscription changes are
+     * listened to.
+     */
+    private boolean isSubscriptionCacheValid() {
+        return mListeningToSubscriptions;
+    }
+
+    private void listenToSubscriptions() {
+        final SubscriptionManager manager = mContext.getSystemService(SubscriptionManager.class);
+        if (manager == null) {
+            return;
+        }
+        mSubscriptionsChangedListener = new SubscriptionManager.OnSubscriptionsChangedListener() {
+            @Override
+            public void onSubscriptionsChanged() {
+                clearSubscriptions();
+            }
+        };
+        manager.addOnSubscriptionsChangedListener(mSubscriptionsChangedListener);
+        synchronized (this) {
+            mListeningToSubscriptions = true;
+            // Lists fetched before may have missed a change.
+            clearSubscriptions();
+        }
+    }
+
+    private static List<SubscriptionInfo> copyOf(List<SubscriptionInfo> subscriptions) {
+        return subscriptions == null ? new ArrayList<>() : new ArrayList<>(subscriptions);
+    }
+}
@@ -33,6 +33,7 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.settings.SettingsActivity;
 import com.android.settings.network.ApnSettings;
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settingslib.RestrictedLockUtilsInternal;
 import com.android.settingslib.RestrictedPreference;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
@@ -58,7 +59,8 @@ public class ApnPreferenceController extends TelephonyBasePreferenceController i
 
     @Override
     public int getAvailabilityStatus(int subId) {
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, subId);
         final boolean isCdmaApn = MobileNetworkUtils.isCdmaOptions(mContext, subId)
                 && carrierConfig != null
                 && carrierConfig.getBoolean(CarrierConfigManager.KEY_SHOW_APN_SETTING_CDMA_BOOL);
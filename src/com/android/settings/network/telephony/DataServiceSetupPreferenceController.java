@@ -29,6 +29,7 @@ import android.text.TextUtils;
 import androidx.preference.Preference;
 
 import com.android.internal.telephony.PhoneConstants;
+import com.android.settings.network.TelephonyStateCache;
 
 /**
  * Preference controller for "Data service setup"
@@ -51,7 +52,8 @@ public class DataServiceSetupPreferenceController extends TelephonyBasePreferenc
     public int getAvailabilityStatus(int subId) {
         final boolean isLteOnCdma = mTelephonyManager.getLteOnCdmaMode()
                 == PhoneConstants.LTE_ON_CDMA_TRUE;
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, subId);
         return subId != SubscriptionManager.INVALID_SUBSCRIPTION_ID
                 && carrierConfig != null
                 && !carrierConfig.getBoolean(
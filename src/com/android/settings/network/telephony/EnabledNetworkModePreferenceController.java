@@ -41,6 +41,7 @@ import androidx.preference.PreferenceScreen;
 import com.android.internal.telephony.Phone;
 import com.android.internal.telephony.PhoneConstants;
 import com.android.settings.R;
+import com.android.settings.network.TelephonyStateCache;
 
 /**
  * Preference controller for "Enabled network mode"
@@ -73,7 +74,8 @@ public class EnabledNetworkModePreferenceController extends
     @Override
     public int getAvailabilityStatus(int subId) {
         boolean visible;
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, subId);
         final TelephonyManager telephonyManager = TelephonyManager
                 .from(mContext).createForSubscriptionId(subId);
         if (subId == SubscriptionManager.INVALID_SUBSCRIPTION_ID) {
@@ -138,7 +140,8 @@ public class EnabledNetworkModePreferenceController extends
 
     public void init(Lifecycle lifecycle, int subId) {
         mSubId = subId;
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(mSubId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, mSubId);
         mTelephonyManager = TelephonyManager.from(mContext).createForSubscriptionId(mSubId);
 
         final boolean isLteOnCdma =
@@ -160,7 +163,8 @@ public class EnabledNetworkModePreferenceController extends
 
     private void updatePreferenceEntries(ListPreference preference) {
         final int phoneType = mTelephonyManager.getPhoneType();
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(mSubId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, mSubId);
         if (phoneType == PhoneConstants.PHONE_TYPE_CDMA) {
             final int lteForced = android.provider.Settings.Global.getInt(
                     mContext.getContentResolver(),
@@ -31,6 +31,7 @@ import androidx.preference.SwitchPreference;
 
 import com.android.ims.ImsManager;
 import com.android.settings.R;
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnStart;
 import com.android.settingslib.core.lifecycle.events.OnStop;
@@ -47,7 +48,6 @@ public class Enhanced4gLtePreferenceController extends TelephonyTogglePreference
     private Preference mPreference;
     private TelephonyManager mTelephonyManager;
     private CarrierConfigManager mCarrierConfigManager;
-    private PersistableBundle mCarrierConfig;
     @VisibleForTesting
     ImsManager mImsManager;
     private PhoneCallStateListener mPhoneStateListener;
@@ -72,7 +72,8 @@ public class Enhanced4gLtePreferenceController extends TelephonyTogglePreference
 
     @Override
     public int getAvailabilityStatus(int subId) {
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, subId);
         final boolean isVisible = subId != SubscriptionManager.INVALID_SUBSCRIPTION_ID
                 && mImsManager != null && carrierConfig != null
                 && mImsManager.isVolteEnabledByPlatform()
@@ -104,10 +105,11 @@ public class Enhanced4gLtePreferenceController extends TelephonyTogglePreference
     public void updateState(Preference preference) {
         super.updateState(preference);
         final SwitchPreference switchPreference = (SwitchPreference) preference;
-        final boolean show4GForLTE = mCarrierConfig.getBoolean(
-            CarrierConfigManager.KEY_SHOW_4G_FOR_LTE_DATA_ICON_BOOL);
-        int variant4glteTitleIndex = mCarrierConfig.getInt(
-            CarrierConfigManager.KEY_ENHANCED_4G_LTE_TITLE_VARIANT_INT);
+        final TelephonyStateCache cache = TelephonyStateCache.getInstance(mContext);
+        final boolean show4GForLTE = cache.getCarrierConfigBoolean(mCarrierConfigManager, mSubId,
+                CarrierConfigManager.KEY_SHOW_4G_FOR_LTE_DATA_ICON_BOOL);
+        int variant4glteTitleIndex = cache.getCarrierConfigInt(mCarrierConfigManager, mSubId,
+                CarrierConfigManager.KEY_ENHANCED_4G_LTE_TITLE_VARIANT_INT, 0 /* defaultValue */);
 
         if (variant4glteTitleIndex != VARIANT_TITLE_ADVANCED_CALL) {
             variant4glteTitleIndex = show4GForLTE ? VARIANT_TITLE_4G_CALLING : VARIANT_TITLE_VOLTE;
@@ -137,7 +139,6 @@ public class Enhanced4gLtePreferenceController extends TelephonyTogglePreference
     public Enhanced4gLtePreferenceController init(int subId) {
         mSubId = subId;
         mTelephonyManager = TelephonyManager.from(mContext).createForSubscriptionId(mSubId);
-        mCarrierConfig = mCarrierConfigManager.getConfigForSubId(mSubId);
         if (mSubId != SubscriptionManager.INVALID_SUBSCRIPTION_ID) {
             mImsManager = ImsManager.getInstance(mContext, SubscriptionManager.getPhoneId(mSubId));
         }
@@ -155,8 +156,9 @@ public class Enhanced4gLtePreferenceController extends TelephonyTogglePreference
                 && mTelephonyManager.getCallState(mSubId) == TelephonyManager.CALL_STATE_IDLE
                 && mImsManager != null
                 && mImsManager.isNonTtyOrTtyOnVolteEnabled()
-                && mCarrierConfig.getBoolean(
-                CarrierConfigManager.KEY_EDITABLE_ENHANCED_4G_LTE_BOOL);
+                && TelephonyStateCache.getInstance(mContext).getCarrierConfigBoolean(
+                        mCarrierConfigManager, mSubId,
+                        CarrierConfigManager.KEY_EDITABLE_ENHANCED_4G_LTE_BOOL);
     }
 
     private class PhoneCallStateListener extends PhoneStateListener {
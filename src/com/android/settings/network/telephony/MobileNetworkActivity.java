@@ -42,6 +42,7 @@ import com.android.settings.core.FeatureFlags;
 import com.android.settings.core.SettingsBaseActivity;
 import com.android.settings.development.featureflags.FeatureFlagPersistent;
 import com.android.settings.network.SubscriptionUtil;
+import com.android.settings.network.TelephonyStateCache;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
@@ -291,6 +292,8 @@ public class MobileNetworkActivity extends SettingsBaseActivity {
                                 != mClient.getSubscriptionId()) {
                     return;
                 }
+                // Make sure the refreshed fragment doesn't read the previous config.
+                TelephonyStateCache.invalidateCarrierConfigs();
             }
             mClient.onPhoneChange();
         }
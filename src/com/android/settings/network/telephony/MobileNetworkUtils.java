@@ -53,6 +53,7 @@ import com.android.internal.util.ArrayUtils;
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settingslib.graph.SignalDrawable;
 
 import java.util.Arrays;
@@ -266,8 +267,8 @@ public class MobileNetworkUtils {
         }
         final TelephonyManager telephonyManager = context.getSystemService(TelephonyManager.class)
                 .createForSubscriptionId(subId);
-        final PersistableBundle carrierConfig = context.getSystemService(
-                CarrierConfigManager.class).getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(context)
+                .getCarrierConfig(context.getSystemService(CarrierConfigManager.class), subId);
 
 
         if (telephonyManager.getPhoneType() == PhoneConstants.PHONE_TYPE_CDMA) {
@@ -326,8 +327,8 @@ public class MobileNetworkUtils {
     private static boolean isGsmBasicOptions(Context context, int subId) {
         final TelephonyManager telephonyManager = context.getSystemService(TelephonyManager.class)
                 .createForSubscriptionId(subId);
-        final PersistableBundle carrierConfig = context.getSystemService(
-                CarrierConfigManager.class).getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(context)
+                .getCarrierConfig(context.getSystemService(CarrierConfigManager.class), subId);
 
         if (telephonyManager.getPhoneType() == PhoneConstants.PHONE_TYPE_GSM) {
             return true;
@@ -346,11 +347,9 @@ public class MobileNetworkUtils {
      * settings
      */
     public static boolean isWorldMode(Context context, int subId) {
-        final PersistableBundle carrierConfig = context.getSystemService(
-                CarrierConfigManager.class).getConfigForSubId(subId);
-        return carrierConfig == null
-                ? false
-                : carrierConfig.getBoolean(CarrierConfigManager.KEY_WORLD_MODE_ENABLED_BOOL);
+        return TelephonyStateCache.getInstance(context).getCarrierConfigBoolean(
+                context.getSystemService(CarrierConfigManager.class), subId,
+                CarrierConfigManager.KEY_WORLD_MODE_ENABLED_BOOL);
     }
 
     /**
@@ -359,8 +358,8 @@ public class MobileNetworkUtils {
     public static boolean shouldDisplayNetworkSelectOptions(Context context, int subId) {
         final TelephonyManager telephonyManager = TelephonyManager.from(context)
                 .createForSubscriptionId(subId);
-        final PersistableBundle carrierConfig = context.getSystemService(
-                CarrierConfigManager.class).getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(context)
+                .getCarrierConfig(context.getSystemService(CarrierConfigManager.class), subId);
         if (subId == SubscriptionManager.INVALID_SUBSCRIPTION_ID
                 || carrierConfig == null
                 || !carrierConfig.getBoolean(
@@ -61,6 +61,16 @@ public class NetworkOperatorPreference extends Preference {
         return mCellInfo;
     }
 
+    /**
+     * Shows {@code cellinfo} instead, i.e. a stronger cell of the same network operator.
+     */
+    public void setCellInfo(CellInfo cellinfo) {
+        mCellInfo = cellinfo;
+        // The radio technology may have changed too, so update the icon even at the same level.
+        mLevel = LEVEL_NONE;
+        refresh();
+    }
+
     /**
      * Refresh the NetworkOperatorPreference by updating the title and the icon.
      */
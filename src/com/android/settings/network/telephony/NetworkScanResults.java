@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import android.telephony.CellInfo;
+import android.telephony.CellInfoCdma;
+import android.telephony.CellInfoGsm;
+import android.telephony.CellInfoLte;
+import android.telephony.CellInfoTdscdma;
+import android.telephony.CellInfoWcdma;
+import android.telephony.CellSignalStrength;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Network scan results of one scan session, with one row per network operator.
+ *
+ * Incremental scans report cells of a few bands at a time. Cells are kept per PLMN and radio
+ * technology, the latest report replacing the previous one, and each operator row shows the
+ * registered cell or else the one with the strongest signal. Rows keep the order in which their
+ * operator was first seen, so {@link NetworkSelectSettings} only updates the rows returned by
+ * {@link #merge(List)} instead of rebuilding the list.
+ */
+class NetworkScanResults {
+
+    private final ArrayMap<String, Row> mRows = new ArrayMap<>();
+    // Operators in the order they were first reported.
+    private final List<String> mPlmns = new ArrayList<>();
+
+    /**
+     * Adds {@code cellInfos} to the results and returns the cell of every operator row that was
+     * added or shows something different, in row order.
+     */
+    List<CellInfo> merge(List<CellInfo> cellInfos) {
+        final List<Row> changedRows = new ArrayList<>();
+        for (CellInfo cellInfo : cellInfos) {
+            final String plmn = getPlmn(cellInfo);
+            Row row = mRows.get(plmn);
+            if (row == null) {
+                row = new Row(mPlmns.size());
+                mRows.put(plmn, row);
+                mPlmns.add(plmn);
+            }
+            row.mCells.put(getRat(cellInfo), cellInfo);
+            if (row.updateBest() && !changedRows.contains(row)) {
+                changedRows.add(row);
+            }
+        }
+        changedRows.sort((a, b) -> Integer.compare(a.mIndex, b.mIndex));
+        final List<CellInfo> changed = new ArrayList<>(changedRows.size());
+        for (Row row : changedRows) {
+            changed.add(row.mBest);
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the cell shown for every operator, in row order.
+     */
+    List<CellInfo> getCellInfoList() {
+        final List<CellInfo> cellInfos = new ArrayList<>(mPlmns.size());
+        for (String plmn : mPlmns) {
+            cellInfos.add(mRows.get(plmn).mBest);
+        }
+        return cellInfos;
+    }
+
+    /**
+     * Returns the position of the row showing {@code cellInfo}, or -1 if there is none.
+     */
+    int indexOf(CellInfo cellInfo) {
+        final Row row = mRows.get(getPlmn(cellInfo));
+        return row != null ? row.mIndex : -1;
+    }
+
+    void clear() {
+        mRows.clear();
+        mPlmns.clear();
+    }
+
+    static String getPlmn(CellInfo cellInfo) {
+        return CellInfoUtil.getOperatorInfoFromCellInfo(cellInfo).getOperatorNumeric();
+    }
+
+    private static int getRat(CellInfo cellInfo) {
+        if (cellInfo instanceof CellInfoLte) {
+            return CellInfo.TYPE_LTE;
+        } else if (cellInfo instanceof CellInfoWcdma) {
+            return CellInfo.TYPE_WCDMA;
+        } else if (cellInfo instanceof CellInfoTdscdma) {
+            return CellInfo.TYPE_TDSCDMA;
+        } else if (cellInfo instanceof CellInfoGsm) {
+            return CellInfo.TYPE_GSM;
+        } else if (cellInfo instanceof CellInfoCdma) {
+            return CellInfo.TYPE_CDMA;
+        }
+        return CellInfo.TYPE_UNKNOWN;
+    }
+
+    private static int getLevel(CellInfo cellInfo) {
+        final CellSignalStrength signalStrength = cellInfo.getCellSignalStrength();
+        return signalStrength != null ? signalStrength.getLevel() : -1;
+    }
+
+    private static class Row {
+        final int mIndex;
+        final SparseArray<CellInfo> mCells = new SparseArray<>();
+        CellInfo mBest;
+
+        Row(int index) {
+            mIndex = index;
+        }
+
+        /**
+         * Picks the cell to show and returns whether the row looks different.
+         */
+        boolean updateBest() {
+            CellInfo best = null;
+            for (int i = 0; i < mCells.size(); i++) {
+                final CellInfo cellInfo = mCells.valueAt(i);
+                if (best == null || isBetter(cellInfo, best)) {
+                    best = cellInfo;
+                }
+            }
+            final boolean changed = mBest == null || mBest.isRegistered() != best.isRegistered()
+                    || getRat(mBest) != getRat(best) || getLevel(mBest) != getLevel(best)
+                    || !Objects.equals(CellInfoUtil.getNetworkTitle(mBest),
+                            CellInfoUtil.getNetworkTitle(best));
+            // Keep the latest cell even if it looks the same.
+            mBest = best;
+            return changed;
+        }
+
+        private static boolean isBetter(CellInfo cellInfo, CellInfo other) {
+            if (cellInfo.isRegistered() != other.isRegistered()) {
+                return cellInfo.isRegistered();
+            }
+            return getLevel(cellInfo) > getLevel(other);
+        }
+    }
+}
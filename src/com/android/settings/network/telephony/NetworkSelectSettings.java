@@ -48,9 +48,7 @@ import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -80,6 +78,7 @@ public class NetworkSelectSettings extends DashboardFragment {
     private Preference mStatusMessagePreference;
     @VisibleForTesting
     List<CellInfo> mCellInfoList;
+    private final NetworkScanResults mScanResults = new NetworkScanResults();
     private int mSubId = SubscriptionManager.INVALID_SUBSCRIPTION_ID;
     @VisibleForTesting
     TelephonyManager mTelephonyManager;
@@ -137,6 +136,10 @@ public class NetworkSelectSettings extends DashboardFragment {
         updateForbiddenPlmns();
         setProgressBarVisible(true);
 
+        // Rows of the previous scan are replaced once the first results come in.
+        mScanResults.clear();
+        mCellInfoList = null;
+
         mNetworkScanHelper.startNetworkScan(
                 mUseNewApi
                         ? NetworkScanHelper.NETWORK_SCAN_TYPE_INCREMENTAL_RESULTS
@@ -231,14 +234,17 @@ public class NetworkSelectSettings extends DashboardFragment {
                             : R.string.network_could_not_connect);
                     break;
                 case EVENT_NETWORK_SCAN_RESULTS:
-                    List<CellInfo> results = aggregateCellInfoList((List<CellInfo>) msg.obj);
-                    Log.d(TAG, "CellInfoList after aggregation: "
-                            + CellInfoUtil.cellInfoListToString(results));
-                    mCellInfoList = new ArrayList<>(results);
-                    if (mCellInfoList != null && mCellInfoList.size() != 0) {
+                    final boolean firstResults = mCellInfoList == null;
+                    final List<CellInfo> changed = mScanResults.merge((List<CellInfo>) msg.obj);
+                    Log.d(TAG, "Changed CellInfoList after aggregation: "
+                            + CellInfoUtil.cellInfoListToString(changed));
+                    mCellInfoList = mScanResults.getCellInfoList();
+                    if (mCellInfoList.isEmpty()) {
+                        addMessagePreference(R.string.empty_networks_list);
+                    } else if (firstResults || mStatusMessagePreference.getParent() != null) {
                         updateAllPreferenceCategory();
                     } else {
-                        addMessagePreference(R.string.empty_networks_list);
+                        updatePreferences(changed);
                     }
 
                     break;
@@ -294,15 +300,43 @@ public class NetworkSelectSettings extends DashboardFragment {
         mPreferenceCategory.removeAll();
         for (int index = 0; index < mCellInfoList.size(); index++) {
             if (!mCellInfoList.get(index).isRegistered()) {
-                NetworkOperatorPreference pref = new NetworkOperatorPreference(
-                        mCellInfoList.get(index), getPrefContext(), mForbiddenPlmns, mShow4GForLTE);
-                pref.setKey(CellInfoUtil.getNetworkTitle(mCellInfoList.get(index)));
-                pref.setOrder(index);
-                mPreferenceCategory.addPreference(pref);
+                mPreferenceCategory.addPreference(
+                        createNetworkOperatorPreference(mCellInfoList.get(index), index));
             }
         }
     }
 
+    /**
+     * Updates the rows of {@code changed} network operators only, adding the ones not shown yet.
+     * Rows keep their position, so the list doesn't flash as partial scan results come in.
+     */
+    private void updatePreferences(List<CellInfo> changed) {
+        for (CellInfo cellInfo : changed) {
+            final String key = NetworkScanResults.getPlmn(cellInfo);
+            final NetworkOperatorPreference pref = mPreferenceCategory.findPreference(key);
+            if (cellInfo.isRegistered()) {
+                addConnectedNetworkOperatorPreference(cellInfo);
+                if (pref != null) {
+                    mPreferenceCategory.removePreference(pref);
+                }
+            } else if (pref != null) {
+                pref.setCellInfo(cellInfo);
+            } else {
+                mPreferenceCategory.addPreference(
+                        createNetworkOperatorPreference(cellInfo, mScanResults.indexOf(cellInfo)));
+            }
+        }
+    }
+
+    private NetworkOperatorPreference createNetworkOperatorPreference(CellInfo cellInfo,
+            int order) {
+        final NetworkOperatorPreference pref = new NetworkOperatorPreference(
+                cellInfo, getPrefContext(), mForbiddenPlmns, mShow4GForLTE);
+        pref.setKey(NetworkScanResults.getPlmn(cellInfo));
+        pref.setOrder(order);
+        return pref;
+    }
+
     /**
      * Config the connected network operator preference when the page was created. When user get
      * into this page, the device might or might not have data connection.
@@ -391,31 +425,6 @@ public class NetworkSelectSettings extends DashboardFragment {
         mPreferenceCategory.addPreference(mStatusMessagePreference);
     }
 
-    /**
-     * The Scan results may contains several cell infos with different radio technologies and signal
-     * strength for one network operator. Aggregate the CellInfoList by retaining only the cell info
-     * with the strongest signal strength.
-     */
-    private List<CellInfo> aggregateCellInfoList(List<CellInfo> cellInfoList) {
-        Map<String, CellInfo> map = new HashMap<>();
-        for (CellInfo cellInfo : cellInfoList) {
-            String plmn = CellInfoUtil.getOperatorInfoFromCellInfo(cellInfo).getOperatorNumeric();
-            if (cellInfo.isRegistered() || !map.containsKey(plmn)) {
-                map.put(plmn, cellInfo);
-            } else {
-                if (map.get(plmn).isRegistered()
-                        || map.get(plmn).getCellSignalStrength().getLevel()
-                        > cellInfo.getCellSignalStrength().getLevel()) {
-                    // Skip if the stored cellInfo is registered or has higher signal strength level
-                    continue;
-                }
-                // Otherwise replace it with the new CellInfo
-                map.put(plmn, cellInfo);
-            }
-        }
-        return new ArrayList<>(map.values());
-    }
-
     private void stopNetworkQuery() {
         setProgressBarVisible(false);
         if (mNetworkScanHelper != null) {
@@ -30,6 +30,7 @@ import androidx.preference.Preference;
 import com.android.internal.telephony.Phone;
 import com.android.internal.telephony.PhoneConstants;
 import com.android.settings.R;
+import com.android.settings.network.TelephonyStateCache;
 
 /**
  * Preference controller for "Preferred network mode"
@@ -49,7 +50,8 @@ public class PreferredNetworkModePreferenceController extends TelephonyBasePrefe
 
     @Override
     public int getAvailabilityStatus(int subId) {
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, subId);
         final TelephonyManager telephonyManager = TelephonyManager
                 .from(mContext).createForSubscriptionId(subId);
         boolean visible;
@@ -96,7 +98,8 @@ public class PreferredNetworkModePreferenceController extends TelephonyBasePrefe
 
     public void init(int subId) {
         mSubId = subId;
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(mSubId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, mSubId);
         mTelephonyManager = TelephonyManager.from(mContext).createForSubscriptionId(mSubId);
 
         final boolean isLteOnCdma =
@@ -33,6 +33,7 @@ import androidx.fragment.app.FragmentManager;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settingslib.RestrictedSwitchPreference;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnStart;
@@ -122,8 +123,8 @@ public class RoamingPreferenceController extends TelephonyTogglePreferenceContro
     @VisibleForTesting
     boolean isDialogNeeded() {
         final boolean isRoamingEnabled = mTelephonyManager.isDataRoamingEnabled();
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(
-                mSubId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, mSubId);
 
         // Need dialog if we need to turn on roaming and the roaming charge indication is allowed
         if (!isRoamingEnabled && (carrierConfig == null || !carrierConfig.getBoolean(
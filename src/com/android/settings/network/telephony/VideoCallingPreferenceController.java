@@ -34,6 +34,7 @@ import androidx.preference.PreferenceScreen;
 import androidx.preference.SwitchPreference;
 
 import com.android.ims.ImsManager;
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnStart;
 import com.android.settingslib.core.lifecycle.events.OnStop;
@@ -132,7 +133,8 @@ public class VideoCallingPreferenceController extends TelephonyTogglePreferenceC
 
     @VisibleForTesting
     boolean isVideoCallEnabled(int subId, ImsManager imsManager) {
-        final PersistableBundle carrierConfig = mCarrierConfigManager.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mCarrierConfigManager, subId);
         final TelephonyManager telephonyManager = TelephonyManager
                 .from(mContext).createForSubscriptionId(subId);
         return carrierConfig != null && imsManager != null
@@ -37,6 +37,7 @@ import androidx.preference.PreferenceScreen;
 import com.android.ims.ImsConfig;
 import com.android.ims.ImsManager;
 import com.android.settings.R;
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnStart;
 import com.android.settingslib.core.lifecycle.events.OnStop;
@@ -128,7 +129,8 @@ public class WifiCallingPreferenceController extends TelephonyBasePreferenceCont
                 boolean useWfcHomeModeForRoaming = false;
                 if (mCarrierConfigManager != null) {
                     final PersistableBundle carrierConfig =
-                            mCarrierConfigManager.getConfigForSubId(mSubId);
+                            TelephonyStateCache.getInstance(mContext).getCarrierConfig(
+                                    mCarrierConfigManager, mSubId);
                     if (carrierConfig != null) {
                         useWfcHomeModeForRoaming = carrierConfig.getBoolean(
                                 CarrierConfigManager
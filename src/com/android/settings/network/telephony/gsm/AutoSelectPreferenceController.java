@@ -36,6 +36,7 @@ import androidx.preference.SwitchPreference;
 
 import com.android.settings.R;
 import com.android.settings.core.SubSettingLauncher;
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settings.network.telephony.MobileNetworkUtils;
 import com.android.settings.network.telephony.NetworkSelectSettings;
 import com.android.settings.network.telephony.TelephonyTogglePreferenceController;
@@ -145,8 +146,8 @@ public class AutoSelectPreferenceController extends TelephonyTogglePreferenceCon
     public AutoSelectPreferenceController init(int subId) {
         mSubId = subId;
         mTelephonyManager = TelephonyManager.from(mContext).createForSubscriptionId(mSubId);
-        final PersistableBundle carrierConfig = mContext.getSystemService(
-                CarrierConfigManager.class).getConfigForSubId(mSubId);
+        final PersistableBundle carrierConfig = TelephonyStateCache.getInstance(mContext)
+                .getCarrierConfig(mContext.getSystemService(CarrierConfigManager.class), mSubId);
         mOnlyAutoSelectInHome = carrierConfig != null
                 ? carrierConfig.getBoolean(
                 CarrierConfigManager.KEY_ONLY_AUTO_SELECT_IN_HOME_NETWORK_BOOL)
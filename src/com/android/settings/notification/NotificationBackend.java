@@ -32,16 +32,16 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ParceledListSlice;
 import android.graphics.drawable.Drawable;
-import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.os.UserHandle;
 import android.service.notification.NotifyingApp;
 import android.text.format.DateUtils;
-import android.util.IconDrawableFactory;
+import android.util.ArraySet;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.applications.AppIconCache;
 import com.android.settingslib.R;
 import com.android.settingslib.Utils;
 import com.android.settingslib.utils.StringUtil;
@@ -50,6 +50,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class NotificationBackend {
     private static final String TAG = "NotificationBackend";
@@ -57,10 +66,50 @@ public class NotificationBackend {
     static IUsageStatsManager sUsageStatsManager = IUsageStatsManager.Stub.asInterface(
             ServiceManager.getService(Context.USAGE_STATS_SERVICE));
     private static final int DAYS_TO_CHECK = 7;
+    private static final int MAX_LOAD_THREADS = 4;
+    // Shared by all batch loads, so they don't each start and tear down threads.
+    private static final ThreadPoolExecutor sLoadExecutor = new ThreadPoolExecutor(
+            MAX_LOAD_THREADS, MAX_LOAD_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>());
+    static {
+        sLoadExecutor.allowCoreThreadTimeOut(true);
+    }
     static INotificationManager sINM = INotificationManager.Stub.asInterface(
             ServiceManager.getService(Context.NOTIFICATION_SERVICE));
+    private static final List<OnPackageChangedListener> sPackageListeners =
+            new CopyOnWriteArrayList<>();
+
+    /**
+     * Notified after the notification settings of a package were changed.
+     */
+    public interface OnPackageChangedListener {
+        void onPackageChanged(String pkg);
+    }
+
+    /**
+     * Adds a listener notified whenever the notification settings of a package are changed
+     * through any {@link NotificationBackend}.
+     */
+    public static void addOnPackageChangedListener(OnPackageChangedListener listener) {
+        sPackageListeners.add(listener);
+    }
+
+    public static void removeOnPackageChangedListener(OnPackageChangedListener listener) {
+        sPackageListeners.remove(listener);
+    }
+
+    private static void notifyPackageChanged(String pkg) {
+        for (OnPackageChangedListener listener : sPackageListeners) {
+            listener.onPackageChanged(pkg);
+        }
+    }
 
     public AppRow loadAppRow(Context context, PackageManager pm, ApplicationInfo app) {
+        return loadAppRow(context, pm, app, getChannelCount(app.packageName, app.uid));
+    }
+
+    private AppRow loadAppRow(Context context, PackageManager pm, ApplicationInfo app,
+            int channelCount) {
         final AppRow row = new AppRow();
         row.pkg = app.packageName;
         row.uid = app.uid;
@@ -70,13 +119,13 @@ public class NotificationBackend {
             Log.e(TAG, "Error loading application label for " + row.pkg, t);
             row.label = row.pkg;
         }
-        row.icon = IconDrawableFactory.newInstance(context).getBadgedIcon(app);
+        row.icon = AppIconCache.getInstance(context).getBadgedIcon(app);
         row.banned = getNotificationsBanned(row.pkg, row.uid);
         row.showBadge = canShowBadge(row.pkg, row.uid);
         row.allowBubbles = canBubble(row.pkg, row.uid);
         row.userId = UserHandle.getUserId(row.uid);
         row.blockedChannelCount = getBlockedChannelCount(row.pkg, row.uid);
-        row.channelCount = getChannelCount(row.pkg, row.uid);
+        row.channelCount = channelCount;
         recordAggregatedUsageEvents(context, row);
         return row;
     }
@@ -94,6 +143,80 @@ public class NotificationBackend {
         return row;
     }
 
+    /**
+     * Loads the {@link AppRow}s of {@code apps}, like
+     * {@link #loadAppRow(Context, PackageManager, RoleManager, PackageInfo)} does for one package.
+     * Lookups shared by all rows are done once, and rows are loaded in parallel on a bounded
+     * pool. Rows are returned in the order of {@code apps}; a row that failed to load is
+     * {@code null}. Must not be called on the main thread.
+     */
+    public List<AppRow> loadAppRows(Context context, PackageManager pm, RoleManager roleManager,
+            List<PackageInfo> apps) {
+        return loadAppRows(context, pm, roleManager, apps, Long.MAX_VALUE,
+                0 /* minChannelCount */);
+    }
+
+    /**
+     * Same as {@link #loadAppRows(Context, PackageManager, RoleManager, List)}, but rows not
+     * loaded within {@code timeoutMillis} are {@code null}. The rows of packages with fewer than
+     * {@code minChannelCount} channels only have {@code pkg}, {@code uid} and
+     * {@code channelCount} set.
+     */
+    public List<AppRow> loadAppRows(Context context, PackageManager pm, RoleManager roleManager,
+            List<PackageInfo> apps, long timeoutMillis, int minChannelCount) {
+        final BlockableLookup lookup = createBlockableLookup(context, roleManager);
+        final List<Callable<AppRow>> tasks = new ArrayList<>(apps.size());
+        for (PackageInfo app : apps) {
+            tasks.add(() -> {
+                final ApplicationInfo info = app.applicationInfo;
+                final int channelCount = getChannelCount(info.packageName, info.uid);
+                if (channelCount < minChannelCount) {
+                    final AppRow row = new AppRow();
+                    row.pkg = info.packageName;
+                    row.uid = info.uid;
+                    row.channelCount = channelCount;
+                    return row;
+                }
+                final AppRow row = loadAppRow(context, pm, info, channelCount);
+                recordCanBeBlocked(context, pm, lookup, app, row);
+                return row;
+            });
+        }
+
+        final List<AppRow> rows = new ArrayList<>(apps.size());
+        try {
+            for (Future<AppRow> future : sLoadExecutor.invokeAll(tasks, timeoutMillis,
+                    TimeUnit.MILLISECONDS)) {
+                AppRow row = null;
+                try {
+                    row = future.get();
+                } catch (ExecutionException e) {
+                    Log.w(TAG, "Error loading app row", e.getCause());
+                } catch (CancellationException e) {
+                    Log.w(TAG, "Timed out loading app row");
+                }
+                rows.add(row);
+            }
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted loading app rows", e);
+            Thread.currentThread().interrupt();
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the lookups {@link #isSystemApp(Context, ApplicationInfo, BlockableLookup)} shares
+     * across a batch of packages.
+     */
+    public BlockableLookup createBlockableLookup(Context context) {
+        return createBlockableLookup(context, context.getSystemService(RoleManager.class));
+    }
+
+    private BlockableLookup createBlockableLookup(Context context, RoleManager rm) {
+        return new BlockableLookup(context.getResources().getStringArray(
+                com.android.internal.R.array.config_nonBlockableNotificationPackages), rm);
+    }
+
     void recordCanBeBlocked(Context context, PackageManager pm, RoleManager rm, PackageInfo app,
             AppRow row) {
         row.systemApp = Utils.isSystemPackage(context.getResources(), pm, app);
@@ -107,6 +230,17 @@ public class NotificationBackend {
         markAppRowWithBlockables(nonBlockablePkgs, row, app.packageName);
     }
 
+    private void recordCanBeBlocked(Context context, PackageManager pm, BlockableLookup lookup,
+            PackageInfo app, AppRow row) {
+        row.systemApp = Utils.isSystemPackage(context.getResources(), pm, app);
+        if (lookup.mSystemRoleHolders.contains(app.packageName)) {
+            row.systemApp = true;
+        }
+        if (lookup.mNonBlockablePkgs.contains(app.packageName)) {
+            row.systemApp = row.lockedImportance = true;
+        }
+    }
+
     @VisibleForTesting static void markAppRowWithBlockables(String[] nonBlockablePkgs, AppRow row,
             String packageName) {
         if (nonBlockablePkgs != null) {
@@ -139,6 +273,23 @@ public class NotificationBackend {
         return false;
     }
 
+    /**
+     * Same as {@link #isSystemApp(Context, ApplicationInfo)}, using {@code lookup} from
+     * {@link #createBlockableLookup(Context)} for checks shared by a batch of packages.
+     */
+    public boolean isSystemApp(Context context, ApplicationInfo app, BlockableLookup lookup) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(
+                    app.packageName, PackageManager.GET_SIGNATURES);
+            final AppRow row = new AppRow();
+            recordCanBeBlocked(context, context.getPackageManager(), lookup, info, row);
+            return row.systemApp;
+        } catch (PackageManager.NameNotFoundException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
     public boolean getNotificationsBanned(String pkg, int uid) {
         try {
             final boolean enabled = sINM.areNotificationsEnabledForPackage(pkg, uid);
@@ -158,6 +309,7 @@ public class NotificationBackend {
                 updateChannel(pkg, uid, defaultChannel);
             }
             sINM.setNotificationsEnabledForPackage(pkg, uid, enabled);
+            notifyPackageChanged(pkg);
             return true;
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
@@ -177,6 +329,7 @@ public class NotificationBackend {
     public boolean setShowBadge(String pkg, int uid, boolean showBadge) {
         try {
             sINM.setShowBadge(pkg, uid, showBadge);
+            notifyPackageChanged(pkg);
             return true;
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
@@ -196,6 +349,7 @@ public class NotificationBackend {
     public boolean setAllowBubbles(String pkg, int uid, boolean allow) {
         try {
             sINM.setBubblesAllowed(pkg, uid, allow);
+            notifyPackageChanged(pkg);
             return true;
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
@@ -253,6 +407,7 @@ public class NotificationBackend {
     public void updateChannel(String pkg, int uid, NotificationChannel channel) {
         try {
             sINM.updateNotificationChannelForPackage(pkg, uid, channel);
+            notifyPackageChanged(pkg);
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
@@ -261,6 +416,7 @@ public class NotificationBackend {
     public void updateChannelGroup(String pkg, int uid, NotificationChannelGroup group) {
         try {
             sINM.updateNotificationChannelGroupForPackage(pkg, uid, group);
+            notifyPackageChanged(pkg);
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
@@ -370,14 +526,18 @@ public class NotificationBackend {
     protected void recordAggregatedUsageEvents(Context context, AppRow appRow) {
         long now = System.currentTimeMillis();
         long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
-        UsageEvents events = null;
-        try {
-            events = sUsageStatsManager.queryEventsForPackageForUser(
-                    startTime, now, appRow.userId, appRow.pkg, context.getPackageName());
-        } catch (RemoteException e) {
-            e.printStackTrace();
+        appRow.sentByChannel = new HashMap<>(NotificationUsageAggregator.getInstance(
+                sUsageStatsManager, context.getPackageName())
+                .getSentStatesByChannel(appRow.userId, appRow.pkg, startTime));
+        appRow.sentByApp = new NotificationsSentState();
+        for (NotificationsSentState stats : appRow.sentByChannel.values()) {
+            if (stats.lastSent > appRow.sentByApp.lastSent) {
+                appRow.sentByApp.lastSent = stats.lastSent;
+            }
+            appRow.sentByApp.sentCount += stats.sentCount;
+            calculateAvgSentCounts(stats);
         }
-        recordAggregatedUsageEvents(events, appRow);
+        calculateAvgSentCounts(appRow.sentByApp);
     }
 
     protected void recordAggregatedUsageEvents(UsageEvents events, AppRow appRow) {
@@ -479,6 +639,32 @@ public class NotificationBackend {
         public String section;
     }
 
+    /**
+     * Lookups shared by a batch of packages: the nonblockable package config is parsed once and
+     * the holders of roles that make an app a system app are resolved once.
+     */
+    public static class BlockableLookup {
+        private final Set<String> mNonBlockablePkgs = new ArraySet<>();
+        private final Set<String> mSystemRoleHolders = new ArraySet<>();
+
+        @VisibleForTesting
+        BlockableLookup(String[] nonBlockablePkgs, RoleManager rm) {
+            if (nonBlockablePkgs != null) {
+                for (String pkg : nonBlockablePkgs) {
+                    // Entries with a channel are handled by
+                    // NotificationChannel.isImportanceLockedByOEM()
+                    if (pkg != null && !pkg.contains(":")) {
+                        mNonBlockablePkgs.add(pkg);
+                    }
+                }
+            }
+            if (rm != null) {
+                mSystemRoleHolders.addAll(rm.getRoleHolders(RoleManager.ROLE_DIALER));
+                mSystemRoleHolders.addAll(rm.getRoleHolders(RoleManager.ROLE_EMERGENCY));
+            }
+        }
+    }
+
     public static class AppRow extends Row {
         public String pkg;
         public int uid;
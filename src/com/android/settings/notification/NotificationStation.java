@@ -47,6 +47,7 @@ import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
 import android.text.style.StyleSpan;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.View;
 import android.widget.DateTimeView;
@@ -54,12 +55,14 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.preference.Preference;
+import androidx.preference.PreferenceScreen;
 import androidx.preference.PreferenceViewHolder;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -75,6 +78,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
     private Handler mHandler;
 
     private static class HistoricalNotificationInfo {
+        public StatusBarNotification sbn;
+        public String rowKey;
         public String key;
         public String channel;
         public String pkg;
@@ -86,9 +91,56 @@ public class NotificationStation extends SettingsPreferenceFragment {
         public int user;
         public long timestamp;
         public boolean active;
+        // Icons, package name and extra text are loaded lazily when the row is first shown.
+        public boolean decoded;
+        public boolean decoding;
         public CharSequence extra;
     }
 
+    /**
+     * Loads the expensive parts of a row on demand.
+     */
+    private interface RowLoader {
+        void decodeRow(HistoricalNotificationPreference preference);
+
+        CharSequence loadExtraText(HistoricalNotificationInfo info);
+    }
+
+    private final RowLoader mRowLoader = new RowLoader() {
+        @Override
+        public void decodeRow(HistoricalNotificationPreference preference) {
+            final HistoricalNotificationInfo info = preference.mInfo;
+            info.decoding = true;
+            ThreadUtils.postOnBackgroundThread(() -> {
+                final Drawable icon = loadIconDrawable(info.pkg, info.user,
+                        info.sbn.getNotification().icon);
+                final Drawable pkgicon = loadPackageIconDrawable(info.pkg, info.user);
+                final CharSequence pkgname = loadPackageName(info.pkg, info.user);
+                ThreadUtils.postOnMainThread(() -> {
+                    info.icon = icon;
+                    info.pkgicon = pkgicon;
+                    info.pkgname = pkgname;
+                    info.decoded = true;
+                    info.decoding = false;
+                    preference.onRowDecoded();
+                });
+            });
+        }
+
+        @Override
+        public CharSequence loadExtraText(HistoricalNotificationInfo info) {
+            if (info.extra == null) {
+                info.extra = generateExtraText(info.sbn, info);
+            }
+            return info.extra;
+        }
+    };
+
+    // Package icons and labels keyed by (pkg, user), shared by all rows.
+    private final ArrayMap<String, Drawable> mPackageIcons = new ArrayMap<>();
+    private final ArrayMap<String, CharSequence> mPackageNames = new ArrayMap<>();
+    private int mLoadGeneration;
+
     private PackageManager mPm;
     private INotificationManager mNoMan;
     private RankingMap mRanking;
@@ -209,20 +261,49 @@ public class NotificationStation extends SettingsPreferenceFragment {
     }
 
     private void refreshList() {
-        List<HistoricalNotificationInfo> infos = loadNotifications();
-        if (infos != null) {
-            final int N = infos.size();
-            logd("adding %d infos", N);
-            Collections.sort(infos, mNotificationSorter);
-            if (getPreferenceScreen() == null) {
-                setPreferenceScreen(getPreferenceManager().createPreferenceScreen(getContext()));
+        final int generation = ++mLoadGeneration;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final List<HistoricalNotificationInfo> infos = loadNotifications();
+            if (infos != null) {
+                Collections.sort(infos, mNotificationSorter);
             }
-            getPreferenceScreen().removeAll();
-            for (int i = 0; i < N; i++) {
-                getPreferenceScreen().addPreference(
-                        new HistoricalNotificationPreference(getPrefContext(), infos.get(i)));
+            ThreadUtils.postOnMainThread(() -> {
+                // Drop results of stale loads, or loads finishing after we are detached.
+                if (generation == mLoadGeneration && mHandler != null) {
+                    updateList(infos);
+                }
+            });
+        });
+    }
+
+    /**
+     * Updates the rows incrementally: rows that are still present keep their preference and
+     * whatever has been decoded for them, only new rows are added and gone rows removed.
+     */
+    private void updateList(List<HistoricalNotificationInfo> infos) {
+        if (infos == null) {
+            return;
+        }
+        final int N = infos.size();
+        logd("adding %d infos", N);
+        if (getPreferenceScreen() == null) {
+            setPreferenceScreen(getPreferenceManager().createPreferenceScreen(getContext()));
+        }
+        final PreferenceScreen screen = getPreferenceScreen();
+        cacheRemoveAllPrefs(screen);
+        for (int i = 0; i < N; i++) {
+            final HistoricalNotificationInfo info = infos.get(i);
+            Preference pref = getCachedPreference(info.rowKey);
+            if (pref == null) {
+                pref = new HistoricalNotificationPreference(getPrefContext(), info, mRowLoader);
+                pref.setKey(info.rowKey);
+                pref.setOrder(i);
+                screen.addPreference(pref);
+            } else {
+                pref.setOrder(i);
             }
         }
+        removeCachedPrefs(screen);
     }
 
     private static void logd(String msg, Object... args) {
@@ -285,14 +366,13 @@ public class NotificationStation extends SettingsPreferenceFragment {
 
                     final Notification n = sbn.getNotification();
                     final HistoricalNotificationInfo info = new HistoricalNotificationInfo();
+                    info.sbn = sbn;
                     info.pkg = sbn.getPackageName();
                     info.user = sbn.getUserId();
-                    info.icon = loadIconDrawable(info.pkg, info.user, n.icon);
-                    info.pkgicon = loadPackageIconDrawable(info.pkg, info.user);
-                    info.pkgname = loadPackageName(info.pkg);
+                    info.pkgname = info.pkg;
                     info.title = getTitleString(n);
                     if (TextUtils.isEmpty(info.title)) {
-                        info.title = getString(R.string.notification_log_no_title);
+                        info.title = mContext.getString(R.string.notification_log_no_title);
                     }
                     info.timestamp = sbn.getPostTime();
                     info.priority = n.priority;
@@ -300,8 +380,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
                     info.key = sbn.getKey();
 
                     info.active = (resultset == active);
-
-                    info.extra = generateExtraText(sbn, info);
+                    info.rowKey = (info.active ? "active|" : "dismissed|") + info.key + "|"
+                            + info.timestamp;
 
                     logd("   [%d] %s: %s", info.timestamp, info.pkg, info.title);
                     list.add(info);
@@ -555,25 +635,44 @@ public class NotificationStation extends SettingsPreferenceFragment {
     }
 
     private Drawable loadPackageIconDrawable(String pkg, int userId) {
+        final String cacheKey = pkg + "|" + userId;
+        synchronized (mPackageIcons) {
+            if (mPackageIcons.containsKey(cacheKey)) {
+                return mPackageIcons.get(cacheKey);
+            }
+        }
         Drawable icon = null;
         try {
             icon = mPm.getApplicationIcon(pkg);
         } catch (PackageManager.NameNotFoundException e) {
             Log.e(TAG, "Cannot get application icon", e);
         }
-
+        synchronized (mPackageIcons) {
+            mPackageIcons.put(cacheKey, icon);
+        }
         return icon;
     }
 
-    private CharSequence loadPackageName(String pkg) {
+    private CharSequence loadPackageName(String pkg, int userId) {
+        final String cacheKey = pkg + "|" + userId;
+        synchronized (mPackageNames) {
+            final CharSequence name = mPackageNames.get(cacheKey);
+            if (name != null) {
+                return name;
+            }
+        }
+        CharSequence name = pkg;
         try {
             ApplicationInfo info = mPm.getApplicationInfo(pkg,
                     PackageManager.MATCH_ANY_USER);
-            if (info != null) return mPm.getApplicationLabel(info);
+            if (info != null) name = mPm.getApplicationLabel(info);
         } catch (PackageManager.NameNotFoundException e) {
             Log.e(TAG, "Cannot load package name", e);
         }
-        return pkg;
+        synchronized (mPackageNames) {
+            mPackageNames.put(cacheKey, name);
+        }
+        return name;
     }
 
     private Drawable loadIconDrawable(String pkg, int userId, int resId) {
@@ -596,38 +695,51 @@ public class NotificationStation extends SettingsPreferenceFragment {
 
     private static class HistoricalNotificationPreference extends Preference {
         private final HistoricalNotificationInfo mInfo;
+        private final RowLoader mRowLoader;
         private static long sLastExpandedTimestamp; // quick hack to keep things from collapsing
 
-        public HistoricalNotificationPreference(Context context, HistoricalNotificationInfo info) {
+        public HistoricalNotificationPreference(Context context, HistoricalNotificationInfo info,
+                RowLoader rowLoader) {
             super(context);
             setLayoutResource(R.layout.notification_log_row);
             mInfo = info;
+            mRowLoader = rowLoader;
+        }
+
+        void onRowDecoded() {
+            notifyChanged();
         }
 
         @Override
         public void onBindViewHolder(PreferenceViewHolder row) {
             super.onBindViewHolder(row);
 
-            if (mInfo.icon != null) {
-                ((ImageView) row.findViewById(R.id.icon)).setImageDrawable(mInfo.icon);
-            }
-            if (mInfo.pkgicon != null) {
-                ((ImageView) row.findViewById(R.id.pkgicon)).setImageDrawable(mInfo.pkgicon);
+            // Only rows that are actually shown pay for icon and label loading.
+            if (!mInfo.decoded && !mInfo.decoding) {
+                mRowLoader.decodeRow(this);
             }
 
+            // Always set icons, a recycled row may still hold icons of another notification.
+            ((ImageView) row.findViewById(R.id.icon)).setImageDrawable(mInfo.icon);
+            ((ImageView) row.findViewById(R.id.pkgicon)).setImageDrawable(mInfo.pkgicon);
+
             ((DateTimeView) row.findViewById(R.id.timestamp)).setTime(mInfo.timestamp);
             ((TextView) row.findViewById(R.id.title)).setText(mInfo.title);
             ((TextView) row.findViewById(R.id.pkgname)).setText(mInfo.pkgname);
 
             final TextView extra = (TextView) row.findViewById(R.id.extra);
-            extra.setText(mInfo.extra);
-            extra.setVisibility(mInfo.timestamp == sLastExpandedTimestamp
-                    ? View.VISIBLE : View.GONE);
+            final boolean expanded = mInfo.timestamp == sLastExpandedTimestamp;
+            // Extra text is only built once the row is expanded.
+            extra.setText(expanded ? mRowLoader.loadExtraText(mInfo) : mInfo.extra);
+            extra.setVisibility(expanded ? View.VISIBLE : View.GONE);
 
             row.itemView.setOnClickListener(
                     new View.OnClickListener() {
                         @Override
                         public void onClick(View view) {
+                            if (extra.getVisibility() != View.VISIBLE) {
+                                extra.setText(mRowLoader.loadExtraText(mInfo));
+                            }
                             extra.setVisibility(extra.getVisibility() == View.VISIBLE
                                     ? View.GONE : View.VISIBLE);
                             sLastExpandedTimestamp = mInfo.timestamp;
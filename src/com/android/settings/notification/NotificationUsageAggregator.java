@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification;
+
+import android.app.usage.IUsageStatsManager;
+import android.app.usage.UsageEvents;
+import android.os.IBinder;
+import android.os.RemoteException;
+import android.service.notification.NotifyingApp;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.notification.NotificationBackend.NotificationsSentState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolling, per-user aggregate of {@link UsageEvents.Event#NOTIFICATION_INTERRUPTION} events.
+ *
+ * Only events newer than the last query (the high-water mark) are fetched from usage stats, and
+ * events older than {@link #WINDOW_MILLIS} are dropped. Each query reaches back
+ * {@link #OVERLAP_MILLIS} before the mark to pick up events that were reported late, and events
+ * already counted in that overlap are skipped. It is shared by the notifications page
+ * and {@link NotificationBackend}, so every consumer reads from the same aggregate instead of
+ * re-scanning days of events.
+ */
+public class NotificationUsageAggregator {
+    private static final String TAG = "NotifUsageAggregator";
+
+    /** The longest window any consumer asks for. */
+    @VisibleForTesting
+    static final long WINDOW_MILLIS = 7 * DateUtils.DAY_IN_MILLIS;
+
+    /** How far before the high-water mark each query starts, for events reported late. */
+    @VisibleForTesting
+    static final long OVERLAP_MILLIS = DateUtils.MINUTE_IN_MILLIS;
+
+    private static NotificationUsageAggregator sInstance;
+
+    private final IUsageStatsManager mUsageStatsManager;
+    private final String mCallingPackage;
+    private final SparseArray<UserStats> mUserStats = new SparseArray<>();
+
+    /**
+     * Returns the aggregator backed by {@code usageStatsManager}. A new one is created if the
+     * manager points to a different service than the cached one.
+     */
+    public static synchronized NotificationUsageAggregator getInstance(
+            IUsageStatsManager usageStatsManager, String callingPackage) {
+        if (sInstance == null || !sInstance.isBackedBy(usageStatsManager)) {
+            sInstance = new NotificationUsageAggregator(usageStatsManager, callingPackage);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    NotificationUsageAggregator(IUsageStatsManager usageStatsManager, String callingPackage) {
+        mUsageStatsManager = usageStatsManager;
+        mCallingPackage = callingPackage;
+    }
+
+    /**
+     * Returns apps of {@code userId} that sent a notification since {@code sinceMillis}, with
+     * the time of their latest notification.
+     */
+    public synchronized List<NotifyingApp> getNotifyingApps(int userId, long sinceMillis) {
+        final UserStats stats = refresh(userId);
+        final List<NotifyingApp> apps = new ArrayList<>();
+        final int size = stats.mPackages.size();
+        for (int i = 0; i < size; i++) {
+            final PackageStats packageStats = stats.mPackages.valueAt(i);
+            if (packageStats.mLastSent < sinceMillis) {
+                continue;
+            }
+            final NotifyingApp app = new NotifyingApp();
+            app.setPackage(stats.mPackages.keyAt(i));
+            app.setUserId(userId);
+            app.setLastNotified(packageStats.mLastSent);
+            apps.add(app);
+        }
+        return apps;
+    }
+
+    /**
+     * Returns per-channel sent counts and latest sent times of {@code pkg} since
+     * {@code sinceMillis}. Averages are left for the caller to compute.
+     */
+    public synchronized Map<String, NotificationsSentState> getSentStatesByChannel(int userId,
+            String pkg, long sinceMillis) {
+        final UserStats stats = refresh(userId);
+        final Map<String, NotificationsSentState> result = new ArrayMap<>();
+        final PackageStats packageStats = stats.mPackages.get(pkg);
+        if (packageStats == null) {
+            return result;
+        }
+        final int size = packageStats.mChannels.size();
+        for (int i = 0; i < size; i++) {
+            final TimestampList timestamps = packageStats.mChannels.valueAt(i);
+            final int count = timestamps.countSince(sinceMillis);
+            if (count == 0) {
+                continue;
+            }
+            final NotificationsSentState state = new NotificationsSentState();
+            state.sentCount = count;
+            state.lastSent = timestamps.last();
+            result.put(packageStats.mChannels.keyAt(i), state);
+        }
+        return result;
+    }
+
+    @VisibleForTesting
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private UserStats refresh(int userId) {
+        final long now = currentTimeMillis();
+        UserStats stats = mUserStats.get(userId);
+        if (stats == null) {
+            stats = new UserStats();
+            stats.mHighWaterMark = now - WINDOW_MILLIS;
+            mUserStats.put(userId, stats);
+        }
+        if (now > stats.mHighWaterMark) {
+            UsageEvents events = null;
+            try {
+                events = mUsageStatsManager.queryEventsForUser(
+                        stats.mHighWaterMark - OVERLAP_MILLIS, now, userId, mCallingPackage);
+            } catch (RemoteException e) {
+                Log.w(TAG, "Cannot query usage events", e);
+            }
+            if (events != null) {
+                addEvents(stats, events, stats.mHighWaterMark);
+                stats.mHighWaterMark = now;
+            }
+        }
+        prune(stats, now - WINDOW_MILLIS);
+        return stats;
+    }
+
+    /**
+     * Adds {@code events} to {@code stats}. Events before {@code seenBefore} may have been added
+     * by the previous query, so they are skipped if their channel already has their timestamp.
+     */
+    private static void addEvents(UserStats stats, UsageEvents events, long seenBefore) {
+        final UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            if (event.getEventType() != UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                continue;
+            }
+            PackageStats packageStats = stats.mPackages.get(event.getPackageName());
+            if (packageStats == null) {
+                packageStats = new PackageStats();
+                stats.mPackages.put(event.getPackageName(), packageStats);
+            }
+            final long timestamp = event.getTimeStamp();
+            if (timestamp > packageStats.mLastSent) {
+                packageStats.mLastSent = timestamp;
+            }
+            final String channelId = event.mNotificationChannelId;
+            if (channelId != null) {
+                TimestampList timestamps = packageStats.mChannels.get(channelId);
+                if (timestamps == null) {
+                    timestamps = new TimestampList();
+                    packageStats.mChannels.put(channelId, timestamps);
+                } else if (timestamp < seenBefore && timestamps.contains(timestamp)) {
+                    continue;
+                }
+                timestamps.add(timestamp);
+            }
+        }
+    }
+
+    private static void prune(UserStats stats, long cutoff) {
+        for (int i = stats.mPackages.size() - 1; i >= 0; i--) {
+            final PackageStats packageStats = stats.mPackages.valueAt(i);
+            for (int j = packageStats.mChannels.size() - 1; j >= 0; j--) {
+                final TimestampList timestamps = packageStats.mChannels.valueAt(j);
+                timestamps.removeBefore(cutoff);
+                if (timestamps.size() == 0) {
+                    packageStats.mChannels.removeAt(j);
+                }
+            }
+            if (packageStats.mLastSent < cutoff && packageStats.mChannels.isEmpty()) {
+                stats.mPackages.removeAt(i);
+            }
+        }
+    }
+
+    private boolean isBackedBy(IUsageStatsManager usageStatsManager) {
+        if (mUsageStatsManager == usageStatsManager) {
+            return true;
+        }
+        final IBinder binder = usageStatsManager == null ? null : usageStatsManager.asBinder();
+        return binder != null && mUsageStatsManager != null
+                && binder == mUsageStatsManager.asBinder();
+    }
+
+    private static class UserStats {
+        // End of the last successful query, exclusive. The next query starts OVERLAP_MILLIS
+        // before it.
+        long mHighWaterMark;
+        final ArrayMap<String, PackageStats> mPackages = new ArrayMap<>();
+    }
+
+    private static class PackageStats {
+        long mLastSent;
+        final ArrayMap<String, TimestampList> mChannels = new ArrayMap<>();
+    }
+
+    /**
+     * Growable list of timestamps in ascending order, trimmed from the front.
+     */
+    @VisibleForTesting
+    static class TimestampList {
+        private long[] mValues = new long[4];
+        private int mStart;
+        private int mEnd;
+
+        void add(long timestamp) {
+            if (mEnd == mValues.length) {
+                if (mStart > 0) {
+                    System.arraycopy(mValues, mStart, mValues, 0, mEnd - mStart);
+                    mEnd -= mStart;
+                    mStart = 0;
+                }
+                if (mEnd == mValues.length) {
+                    mValues = Arrays.copyOf(mValues, mValues.length * 2);
+                }
+            }
+            // Events are delivered in time order, but keep the list sorted regardless.
+            int index = mEnd;
+            while (index > mStart && mValues[index - 1] > timestamp) {
+                mValues[index] = mValues[index - 1];
+                index--;
+            }
+            mValues[index] = timestamp;
+            mEnd++;
+        }
+
+        void removeBefore(long cutoff) {
+            while (mStart < mEnd && mValues[mStart] < cutoff) {
+                mStart++;
+            }
+        }
+
+        int countSince(long sinceMillis) {
+            int count = 0;
+            for (int i = mEnd - 1; i >= mStart && mValues[i] >= sinceMillis; i--) {
+                count++;
+            }
+            return count;
+        }
+
+        boolean contains(long timestamp) {
+            int low = mStart;
+            int high = mEnd - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (mValues[mid] < timestamp) {
+                    low = mid + 1;
+                } else if (mValues[mid] > timestamp) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long last() {
+            return mEnd > mStart ? mValues[mEnd - 1] : 0;
+        }
+
+        int size() {
+            return mEnd - mStart;
+        }
+    }
+}
@@ -19,23 +19,21 @@ package com.android.settings.notification;
 import android.app.Application;
 import android.app.settings.SettingsEnums;
 import android.app.usage.IUsageStatsManager;
-import android.app.usage.UsageEvents;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
-import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.service.notification.NotifyingApp;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.ArraySet;
-import android.util.IconDrawableFactory;
 import android.util.Log;
 
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settings.applications.AppIconCache;
 import com.android.settings.applications.AppInfoBase;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.core.SubSettingLauncher;
@@ -79,7 +77,7 @@ public class RecentNotifyingAppsPreferenceController extends AbstractPreferenceC
     private final PackageManager mPm;
     private final NotificationBackend mNotificationBackend;
     private IUsageStatsManager mUsageStatsManager;
-    private final IconDrawableFactory mIconDrawableFactory;
+    private final AppIconCache mIconCache;
 
     private Calendar mCal;
     List<NotifyingApp> mApps;
@@ -102,7 +100,7 @@ public class RecentNotifyingAppsPreferenceController extends AbstractPreferenceC
             IUsageStatsManager usageStatsManager, UserManager userManager,
             ApplicationsState appState, Fragment host) {
         super(context);
-        mIconDrawableFactory = IconDrawableFactory.newInstance(context);
+        mIconCache = AppIconCache.getInstance(context);
         mPm = context.getPackageManager();
         mHost = host;
         mApplicationsState = appState;
@@ -166,39 +164,10 @@ public class RecentNotifyingAppsPreferenceController extends AbstractPreferenceC
         mApps = new ArrayList<>();
         mCal = Calendar.getInstance();
         mCal.add(Calendar.DAY_OF_YEAR, -DAYS);
+        final NotificationUsageAggregator aggregator = NotificationUsageAggregator.getInstance(
+                mUsageStatsManager, mContext.getPackageName());
         for (int userId : mUserIds) {
-            UsageEvents events = null;
-            try {
-                events = mUsageStatsManager.queryEventsForUser(mCal.getTimeInMillis(),
-                        System.currentTimeMillis(), userId, mContext.getPackageName());
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-            if (events != null) {
-                ArrayMap<String, NotifyingApp> aggregatedStats = new ArrayMap<>();
-
-                UsageEvents.Event event = new UsageEvents.Event();
-                while (events.hasNextEvent()) {
-                    events.getNextEvent(event);
-
-                    if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                        NotifyingApp app =
-                                aggregatedStats.get(getKey(userId, event.getPackageName()));
-                        if (app == null) {
-                            app = new NotifyingApp();
-                            aggregatedStats.put(getKey(userId, event.getPackageName()), app);
-                            app.setPackage(event.getPackageName());
-                            app.setUserId(userId);
-                        }
-                        if (event.getTimeStamp() > app.getLastNotified()) {
-                            app.setLastNotified(event.getTimeStamp());
-                        }
-                    }
-
-                }
-
-                mApps.addAll(aggregatedStats.values());
-            }
+            mApps.addAll(aggregator.getNotifyingApps(userId, mCal.getTimeInMillis()));
         }
     }
 
@@ -258,7 +227,9 @@ public class RecentNotifyingAppsPreferenceController extends AbstractPreferenceC
             }
             pref.setKey(getKey(app.getUserId(), pkgName));
             pref.setTitle(appEntry.label);
-            pref.setIcon(mIconDrawableFactory.getBadgedIcon(appEntry.info));
+            // Icons that are not cached yet are decoded off the main thread. The preference is
+            // keyed by package, so a late icon still belongs to it.
+            mIconCache.loadBadgedIcon(appEntry.info, pref::setIcon);
             pref.setIconSize(TwoTargetPreference.ICON_SIZE_SMALL);
             pref.setSummary(StringUtil.formatRelativeTime(mContext,
                     System.currentTimeMillis() - app.getLastNotified(), true));
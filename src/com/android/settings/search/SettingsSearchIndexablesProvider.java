@@ -61,6 +61,8 @@ import android.util.Log;
 import androidx.slice.SliceViewManager;
 
 import com.android.settings.SettingsActivity;
+import com.android.settings.core.instrumentation.LatencyTracker;
+import com.android.settings.core.instrumentation.SettingsMetricsFeatureProvider;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SettingsSliceProvider;
 import com.android.settingslib.drawer.DashboardCategory;
@@ -222,6 +224,10 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         final Collection<Class> values = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
         final List<String> nonIndexableKeys = new ArrayList<>();
+        final SettingsMetricsFeatureProvider metricsFeatureProvider =
+                SettingsMetricsFeatureProvider.get(context);
+        final LatencyTracker.Span span = metricsFeatureProvider != null
+                ? metricsFeatureProvider.startSpan(TAG + "/getNonIndexableKeys") : null;
 
         for (Class<?> clazz : values) {
             final long startTime = System.currentTimeMillis();
@@ -245,6 +251,10 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                 continue;
             }
 
+            if (metricsFeatureProvider != null) {
+                metricsFeatureProvider.logLatency(TAG + "/" + clazz.getSimpleName(),
+                        System.currentTimeMillis() - startTime);
+            }
             if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
                 if (DEBUG) {
                     final long totalTime = System.currentTimeMillis() - startTime;
@@ -266,6 +276,9 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
             nonIndexableKeys.addAll(providerNonIndexableKeys);
         }
 
+        if (span != null) {
+            span.end();
+        }
         return nonIndexableKeys;
     }
 
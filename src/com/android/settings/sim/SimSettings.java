@@ -41,6 +41,7 @@ import com.android.internal.telephony.TelephonyProperties;
 import com.android.settings.R;
 import com.android.settings.RestrictedSettingsFragment;
 import com.android.settings.Utils;
+import com.android.settings.network.TelephonyStateCache;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settings.search.Indexable;
 import com.android.settingslib.search.SearchIndexable;
@@ -109,12 +110,14 @@ public class SimSettings extends RestrictedSettingsFragment implements Indexable
         @Override
         public void onSubscriptionsChanged() {
             if (DBG) log("onSubscriptionsChanged:");
+            TelephonyStateCache.invalidateSubscriptions();
             updateSubscriptions();
         }
     };
 
     private void updateSubscriptions() {
-        mSubInfoList = mSubscriptionManager.getActiveSubscriptionInfoList(true);
+        mSubInfoList = TelephonyStateCache.getInstance(getContext())
+                .getActiveSubscriptionInfoList(mSubscriptionManager);
         for (int i = 0; i < mNumSlots; ++i) {
             Preference pref = mSimCards.findPreference("sim" + i);
             if (pref instanceof SimPreference) {
@@ -44,6 +44,8 @@ import androidx.slice.SliceProvider;
 import com.android.settings.R;
 import com.android.settings.bluetooth.BluetoothSliceBuilder;
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.instrumentation.LatencyTracker;
+import com.android.settings.core.instrumentation.SettingsMetricsFeatureProvider;
 import com.android.settings.notification.ZenModeSliceBuilder;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.SliceBroadcastRelay;
@@ -174,6 +176,10 @@ public class SettingsSliceProvider extends SliceProvider {
     @Override
     public Slice onBindSlice(Uri sliceUri) {
         final StrictMode.ThreadPolicy oldPolicy = StrictMode.getThreadPolicy();
+        final SettingsMetricsFeatureProvider metricsFeatureProvider =
+                SettingsMetricsFeatureProvider.get(getContext());
+        final LatencyTracker.Span span = metricsFeatureProvider != null
+                ? metricsFeatureProvider.startSpan(TAG + "/onBindSlice") : null;
         try {
             if (!ThreadUtils.isMainThread()) {
                 StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
@@ -219,9 +225,15 @@ public class SettingsSliceProvider extends SliceProvider {
 
             SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
             if (cachedSliceData == null) {
+                if (metricsFeatureProvider != null) {
+                    metricsFeatureProvider.logCount(TAG + "/slice_data_cache_miss");
+                }
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
+            if (metricsFeatureProvider != null) {
+                metricsFeatureProvider.logCount(TAG + "/slice_data_cache_hit");
+            }
 
             // Remove the SliceData from the cache after it has been used to prevent a memory-leak.
             if (!getPinnedSlices().contains(sliceUri)) {
@@ -229,6 +241,9 @@ public class SettingsSliceProvider extends SliceProvider {
             }
             return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
         } finally {
+            if (span != null) {
+                span.end();
+            }
             StrictMode.setThreadPolicy(oldPolicy);
         }
     }
@@ -407,8 +422,13 @@ public class SettingsSliceProvider extends SliceProvider {
         mSliceWeakDataCache.put(uri, sliceData);
         getContext().getContentResolver().notifyChange(uri, null /* content observer */);
 
-        Log.d(TAG, "Built slice (" + uri + ") in: " +
-                (System.currentTimeMillis() - startBuildTime));
+        final long buildTime = System.currentTimeMillis() - startBuildTime;
+        final SettingsMetricsFeatureProvider metricsFeatureProvider =
+                SettingsMetricsFeatureProvider.get(getContext());
+        if (metricsFeatureProvider != null) {
+            metricsFeatureProvider.logLatency(TAG + "/loadSlice", buildTime);
+        }
+        Log.d(TAG, "Built slice (" + uri + ") in: " + buildTime);
     }
 
     @VisibleForTesting
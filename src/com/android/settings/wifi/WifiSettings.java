@@ -41,6 +41,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.PowerManager;
 import android.provider.Settings;
+import android.util.ArraySet;
 import android.util.FeatureFlagUtils;
 import android.util.Log;
 import android.view.ContextMenu;
@@ -53,6 +54,7 @@ import android.widget.Toast;
 import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceManager;
 
 import com.android.settings.LinkifyUtils;
 import com.android.settings.R;
@@ -134,6 +136,12 @@ public class WifiSettings extends RestrictedSettingsFragment
     private final Runnable mHideProgressBarRunnable = () -> {
         setProgressBarVisible(false);
     };
+    private final Runnable mRefreshAccessPointsRunnable = () -> {
+        refreshPendingAccessPointPreferences();
+    };
+
+    // Access points whose preferences need a refresh on the next animation frame.
+    private final ArraySet<AccessPoint> mPendingRefreshAccessPoints = new ArraySet<>();
 
     protected WifiManager mWifiManager;
     private ConnectivityManager mConnectivityManager;
@@ -224,8 +232,8 @@ public class WifiSettings extends RestrictedSettingsFragment
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
 
-        // TODO(b/37429702): Add animations and preference comparator back after initial screen is
-        // loaded (ODR).
+        // The preference comparison callback is installed once the initial list is loaded, see
+        // updateAccessPointPreferences(), so the first screen isn't diffed against an empty list.
         setAnimationAllowed(false);
 
         addPreferences();
@@ -402,6 +410,8 @@ public class WifiSettings extends RestrictedSettingsFragment
     public void onStop() {
         getView().removeCallbacks(mUpdateAccessPointsRunnable);
         getView().removeCallbacks(mHideProgressBarRunnable);
+        getView().removeCallbacks(mRefreshAccessPointsRunnable);
+        mPendingRefreshAccessPoints.clear();
         unregisterCaptivePortalNetworkCallback();
         super.onStop();
     }
@@ -727,10 +737,14 @@ public class WifiSettings extends RestrictedSettingsFragment
         mConnectedAccessPointPreferenceCategory.setVisible(true);
         mAccessPointsPreferenceCategory.setVisible(true);
 
+        // Reconcile by key: keep the preferences of access points that are still in range and
+        // only touch the ones that moved, appeared or disappeared. Orders are dense so that an
+        // out of range access point doesn't shift the order of everything after it.
         cacheRemoveAllPrefs(mAccessPointsPreferenceCategory);
 
         int index =
                 configureConnectedAccessPointPreferenceCategory(accessPoints) ? 1 : 0;
+        int order = 0;
         int numAccessPoints = accessPoints.size();
         for (; index < numAccessPoints; index++) {
             AccessPoint accessPoint = accessPoints.get(index);
@@ -741,13 +755,18 @@ public class WifiSettings extends RestrictedSettingsFragment
                 LongPressAccessPointPreference pref =
                         (LongPressAccessPointPreference) getCachedPreference(key);
                 if (pref != null) {
-                    pref.setOrder(index);
-                    continue;
+                    if (pref.getAccessPoint() == accessPoint) {
+                        pref.setOrder(order++);
+                        continue;
+                    }
+                    // The tracker replaced the AccessPoint, rebuild the preference so it keeps
+                    // receiving updates.
+                    mAccessPointsPreferenceCategory.removePreference(pref);
                 }
                 LongPressAccessPointPreference preference =
                         createLongPressAccessPointPreference(accessPoint);
                 preference.setKey(key);
-                preference.setOrder(index);
+                preference.setOrder(order++);
                 if (mOpenSsid != null && mOpenSsid.equals(accessPoint.getSsidStr())
                         && (accessPoint.getSecurity() != AccessPoint.SECURITY_NONE &&
                         accessPoint.getSecurity() != AccessPoint.SECURITY_OWE &&
@@ -759,11 +778,12 @@ public class WifiSettings extends RestrictedSettingsFragment
                 }
                 mAccessPointsPreferenceCategory.addPreference(preference);
                 accessPoint.setListener(WifiSettings.this);
+                mPendingRefreshAccessPoints.remove(accessPoint);
                 preference.refresh();
             }
         }
         removeCachedPrefs(mAccessPointsPreferenceCategory);
-        mAddWifiNetworkPreference.setOrder(index);
+        mAddWifiNetworkPreference.setOrder(order);
         mAccessPointsPreferenceCategory.addPreference(mAddWifiNetworkPreference);
         setAdditionalSettingsSummaries();
 
@@ -772,13 +792,29 @@ public class WifiSettings extends RestrictedSettingsFragment
             Preference pref = new Preference(getPrefContext());
             pref.setSelectable(false);
             pref.setSummary(R.string.wifi_empty_list_wifi_on);
-            pref.setOrder(index++);
+            pref.setOrder(order + 1);
             pref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
             mAccessPointsPreferenceCategory.addPreference(pref);
         } else {
             // Continuing showing progress bar for an additional delay to overlap with animation
             getView().postDelayed(mHideProgressBarRunnable, 1700 /* delay millis */);
+            // Initial list is loaded, let the adapter apply later updates as moves, inserts and
+            // changes instead of rebinding the whole list.
+            if (getPreferenceManager().getPreferenceComparisonCallback() == null) {
+                getPreferenceManager().setPreferenceComparisonCallback(
+                        new PreferenceManager.SimplePreferenceComparisonCallback());
+            }
+        }
+    }
+
+    private void refreshPendingAccessPointPreferences() {
+        for (AccessPoint accessPoint : mPendingRefreshAccessPoints) {
+            final Object tag = accessPoint.getTag();
+            if (tag != null) {
+                ((AccessPointPreference) tag).refresh();
+            }
         }
+        mPendingRefreshAccessPoints.clear();
     }
 
     @NonNull
@@ -1173,15 +1209,11 @@ public class WifiSettings extends RestrictedSettingsFragment
         Log.d(TAG, "onAccessPointChanged (singular) callback initiated");
         View view = getView();
         if (view != null) {
-            view.post(new Runnable() {
-                @Override
-                public void run() {
-                    Object tag = accessPoint.getTag();
-                    if (tag != null) {
-                        ((AccessPointPreference) tag).refresh();
-                    }
-                }
-            });
+            // Coalesce updates from a scan into one refresh per animation frame.
+            if (mPendingRefreshAccessPoints.isEmpty()) {
+                view.postOnAnimation(mRefreshAccessPointsRunnable);
+            }
+            mPendingRefreshAccessPoints.add(accessPoint);
         }
     }
 
@@ -18,6 +18,7 @@ package com.android.settings.wifi.qrcode;
 
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.ImageFormat;
 import android.graphics.Matrix;
 import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
@@ -27,7 +28,6 @@ import android.hardware.Camera.Parameters;
 import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Message;
-import android.util.ArrayMap;
 import android.util.Log;
 import android.util.Size;
 import android.view.Surface;
@@ -35,19 +35,13 @@ import android.view.WindowManager;
 
 import androidx.annotation.VisibleForTesting;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.BinaryBitmap;
-import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.ReaderException;
-import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 
@@ -72,19 +66,18 @@ public class QrCamera extends Handler {
 
     private static long AUTOFOCUS_INTERVAL_MS = 1500L;
 
-    private static Map<DecodeHintType, List<BarcodeFormat>> HINTS = new ArrayMap<>();
-    private static List<BarcodeFormat> FORMATS = new ArrayList<>();
-
-    static {
-        FORMATS.add(BarcodeFormat.QR_CODE);
-        HINTS.put(DecodeHintType.POSSIBLE_FORMATS, FORMATS);
-    }
+    /**
+     * Number of preview buffers the camera fills in turn. While one frame is being decoded the
+     * camera keeps filling the others, and a frame still waiting when a newer one arrives is
+     * skipped, so decoding always picks up the latest frame when it falls behind.
+     */
+    private static final int PREVIEW_BUFFER_COUNT = 2;
 
     private Camera mCamera;
     private Size mPreviewSize;
     private WeakReference<Context> mContext;
     private ScannerCallback mScannerCallback;
-    private MultiFormatReader mReader;
+    private QrFrameDecoder mDecoder;
     private DecodingTask mDecodeTask;
     private int mCameraOrientation;
     private Camera.Parameters mParameters;
@@ -92,8 +85,7 @@ public class QrCamera extends Handler {
     public QrCamera(Context context, ScannerCallback callback) {
         mContext =  new WeakReference<Context>(context);
         mScannerCallback = callback;
-        mReader = new MultiFormatReader();
-        mReader.setHints(HINTS);
+        mDecoder = new QrFrameDecoder();
     }
 
     /**
@@ -105,8 +97,11 @@ public class QrCamera extends Handler {
     public void start(SurfaceTexture surface) {
         if (mDecodeTask == null) {
             mDecodeTask = new DecodingTask(surface);
-            // Execute in the separate thread pool to prevent block other AsyncTask.
-            mDecodeTask.executeOnExecutor(Executors.newSingleThreadExecutor());
+            // Execute in the separate thread pool to prevent block other AsyncTask. The thread
+            // goes away once the task is done.
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            mDecodeTask.executeOnExecutor(executor);
+            executor.shutdown();
         }
     }
 
@@ -225,8 +220,12 @@ public class QrCamera extends Handler {
     }
 
     private class DecodingTask extends AsyncTask<Void, Void, String> {
-        private QrYuvLuminanceSource mImage;
+        private final Object mFrameLock = new Object();
+        // Owned by the task, a stopped task may still be decoding while the next one starts.
+        private final QrFrameDecoder mFrameDecoder = new QrFrameDecoder();
         private SurfaceTexture mSurface;
+        // Latest preview frame not picked up by the decoder yet, guarded by mFrameLock.
+        private byte[] mPendingFrame;
 
         private DecodingTask(SurfaceTexture surface) {
             mSurface = surface;
@@ -238,33 +237,48 @@ public class QrCamera extends Handler {
                 return null;
             }
 
+            final Camera camera = mCamera;
             final Semaphore imageGot = new Semaphore(0);
+            camera.setPreviewCallbackWithBuffer(
+                    (imageData, cam) -> {
+                        final byte[] skippedFrame;
+                        synchronized (mFrameLock) {
+                            skippedFrame = mPendingFrame;
+                            mPendingFrame = imageData;
+                        }
+                        if (skippedFrame != null) {
+                            // Decoding is behind, drop the older frame and reuse its buffer.
+                            cam.addCallbackBuffer(skippedFrame);
+                        } else {
+                            imageGot.release();
+                        }
+                    });
+            final Camera.Size previewSize = mParameters.getPreviewSize();
+            final int bufferSize = previewSize.width * previewSize.height
+                    * ImageFormat.getBitsPerPixel(mParameters.getPreviewFormat()) / 8;
+            for (int i = 0; i < PREVIEW_BUFFER_COUNT; i++) {
+                camera.addCallbackBuffer(new byte[bufferSize]);
+            }
+
             while (true) {
                 // This loop will try to capture preview image continuously until a valid QR Code
                 // decoded. The caller can also call {@link #stop()} to inturrupts scanning loop.
-                mCamera.setOneShotPreviewCallback(
-                        (imageData, camera) -> {
-                            mImage = getFrameImage(imageData);
-                            imageGot.release();
-                        });
                 try {
                     // Semaphore.acquire() blocking until permit is available, or the thread is
                     // interrupted.
                     imageGot.acquire();
-                    Result qrCode = null;
-                    try {
-                        qrCode =
-                                mReader.decodeWithState(
-                                        new BinaryBitmap(new HybridBinarizer(mImage)));
-                    } catch (ReaderException e) {
-                        // No logging since every time the reader cannot decode the
-                        // image, this ReaderException will be thrown.
-                    } finally {
-                        mReader.reset();
+                    final byte[] imageData;
+                    synchronized (mFrameLock) {
+                        imageData = mPendingFrame;
+                        mPendingFrame = null;
                     }
+                    setFrameImage(mFrameDecoder, imageData);
+                    // The frame was copied, so the camera can fill it again while decoding.
+                    camera.addCallbackBuffer(imageData);
+                    final String qrCode = mFrameDecoder.decode();
                     if (qrCode != null) {
-                        if (mScannerCallback.isValid(qrCode.getText())) {
-                            return qrCode.getText();
+                        if (mScannerCallback.isValid(qrCode)) {
+                            return qrCode;
                         }
                     }
                 } catch (InterruptedException e) {
@@ -344,12 +358,9 @@ public class QrCamera extends Handler {
         mScannerCallback.setTransform(matrix);
     }
 
-    private QrYuvLuminanceSource getFrameImage(byte[] imageData) {
+    private void setFrameImage(QrFrameDecoder decoder, byte[] imageData) {
         final Rect frame = mScannerCallback.getFramePosition(mPreviewSize, mCameraOrientation);
-        final QrYuvLuminanceSource image = new QrYuvLuminanceSource(imageData,
-                mPreviewSize.getWidth(), mPreviewSize.getHeight());
-        return (QrYuvLuminanceSource)
-                image.crop(frame.left, frame.top, frame.width(), frame.height());
+        decoder.setFrame(imageData, mPreviewSize.getWidth(), mPreviewSize.getHeight(), frame);
     }
 
     @Override
@@ -435,17 +446,10 @@ public class QrCamera extends Handler {
 
     @VisibleForTesting
     protected void decodeImage(BinaryBitmap image) {
-        Result qrCode = null;
-
-        try {
-            qrCode = mReader.decodeWithState(image);
-        } catch (ReaderException e) {
-        } finally {
-            mReader.reset();
-        }
+        final String qrCode = mDecoder.decode(image);
 
         if (qrCode != null) {
-            mScannerCallback.handleSuccessfulResult(qrCode.getText());
+            mScannerCallback.handleSuccessfulResult(qrCode);
         }
     }
 
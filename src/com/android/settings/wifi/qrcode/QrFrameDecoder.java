@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.settings.wifi.qrcode;
+
+import android.graphics.Rect;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Decodes the QR code inside the scanning frame of camera preview images.
+ *
+ * The scanning frame is copied out of each preview image into a buffer that is reused for as long
+ * as the frame keeps its size, so the preview image can be handed back to the camera as soon as
+ * {@link #setFrame} returns. Not thread safe.
+ */
+public class QrFrameDecoder {
+
+    private static final Map<DecodeHintType, Object> HINTS = Collections.singletonMap(
+            DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.QR_CODE));
+
+    private final MultiFormatReader mReader;
+    // Luminance of the scanning frame, reused across preview images.
+    private QrYuvLuminanceSource mImage;
+
+    public QrFrameDecoder() {
+        mReader = new MultiFormatReader();
+        mReader.setHints(HINTS);
+    }
+
+    /**
+     * Copies the luminance inside {@code frame} out of a YUV preview image.
+     *
+     * @param yuvData The preview image, luminance plane first.
+     * @param width The width of the preview image.
+     * @param height The height of the preview image.
+     * @param frame The scanning frame inside the preview image.
+     */
+    public void setFrame(byte[] yuvData, int width, int height, Rect frame) {
+        if (mImage == null || mImage.getWidth() != frame.width()
+                || mImage.getHeight() != frame.height()) {
+            mImage = new QrYuvLuminanceSource(new byte[frame.width() * frame.height()],
+                    frame.width(), frame.height());
+        }
+        mImage.copyFrom(yuvData, width, height, frame.left, frame.top);
+    }
+
+    /**
+     * Decodes the scanning frame last set by {@link #setFrame}.
+     *
+     * @return The QR code text, or null if no QR code could be decoded.
+     */
+    public String decode() {
+        if (mImage == null) {
+            return null;
+        }
+        return decode(new BinaryBitmap(new HybridBinarizer(mImage)));
+    }
+
+    /**
+     * Decodes {@code image}.
+     *
+     * @return The QR code text, or null if no QR code could be decoded.
+     */
+    public String decode(BinaryBitmap image) {
+        Result qrCode = null;
+        try {
+            qrCode = mReader.decodeWithState(image);
+        } catch (ReaderException e) {
+            // No logging since every time the reader cannot decode the
+            // image, this ReaderException will be thrown.
+        } finally {
+            mReader.reset();
+        }
+        return qrCode != null ? qrCode.getText() : null;
+    }
+}
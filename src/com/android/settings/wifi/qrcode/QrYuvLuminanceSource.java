@@ -42,18 +42,26 @@ public class QrYuvLuminanceSource extends LuminanceSource {
 
     @Override
     public LuminanceSource crop(int left, int top, int crop_width, int crop_height) {
-        final byte[] newImage = new byte[crop_width * crop_height];
-        int inputOffset = top * mWidth + left;
+        final QrYuvLuminanceSource image = new QrYuvLuminanceSource(
+                new byte[crop_width * crop_height], crop_width, crop_height);
+        image.copyFrom(mYuvData, mWidth, mHeight, left, top);
+        return image;
+    }
 
-        if (left + crop_width > mWidth || top + crop_height > mHeight) {
+    /**
+     * Replaces the content of this source with the area of its size at ({@code left},
+     * {@code top}) of a larger image, without allocating.
+     */
+    void copyFrom(byte[] yuvData, int width, int height, int left, int top) {
+        if (left + mWidth > width || top + mHeight > height) {
             throw new IllegalArgumentException("cropped rectangle does not fit within image data.");
         }
 
-        for (int y = 0; y < crop_height; y++) {
-            System.arraycopy(mYuvData, inputOffset, newImage, y * crop_width, crop_width);
-            inputOffset += mWidth;
+        int inputOffset = top * width + left;
+        for (int y = 0; y < mHeight; y++) {
+            System.arraycopy(yuvData, inputOffset, mYuvData, y * mWidth, mWidth);
+            inputOffset += width;
         }
-        return new QrYuvLuminanceSource(newImage, crop_width, crop_height);
     }
 
     @Override
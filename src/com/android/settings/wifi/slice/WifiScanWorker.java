@@ -52,7 +52,7 @@ import java.util.List;
 /**
  * {@link SliceBackgroundWorker} for Wi-Fi, used by {@link WifiSlice}.
  */
-public class WifiScanWorker extends SliceBackgroundWorker<AccessPoint> implements
+public class WifiScanWorker extends SliceBackgroundWorker<WifiSliceItem> implements
         WifiTracker.WifiListener {
 
     private static final String TAG = "WifiScanWorker";
@@ -63,6 +63,8 @@ public class WifiScanWorker extends SliceBackgroundWorker<AccessPoint> implement
     private final Context mContext;
     private final ConnectivityManager mConnectivityManager;
     private final WifiTracker mWifiTracker;
+    // Access points of the latest displayed rows, only read when WifiSlice binds a row.
+    private volatile List<AccessPoint> mAccessPoints;
 
     private static String sClickedWifiSsid;
 
@@ -105,43 +107,48 @@ public class WifiScanWorker extends SliceBackgroundWorker<AccessPoint> implement
     public void onAccessPointsChanged() {
         // in case state has changed
         if (!mWifiTracker.getManager().isWifiEnabled()) {
+            mAccessPoints = null;
             updateResults(null);
             return;
         }
         // AccessPoints are sorted by the WifiTracker
         final List<AccessPoint> accessPoints = mWifiTracker.getAccessPoints();
-        final List<AccessPoint> resultList = new ArrayList<>();
+        final List<AccessPoint> displayedList = new ArrayList<>();
+        final List<WifiSliceItem> resultList = new ArrayList<>();
         for (AccessPoint ap : accessPoints) {
             if (ap.isReachable()) {
-                resultList.add(clone(ap));
+                displayedList.add(ap);
+                resultList.add(new WifiSliceItem(ap));
                 if (resultList.size() >= DEFAULT_EXPANDED_ROW_COUNT) {
                     break;
                 }
             }
         }
+        mAccessPoints = displayedList;
         updateResults(resultList);
     }
 
-    private AccessPoint clone(AccessPoint accessPoint) {
-        final Bundle savedState = new Bundle();
-        accessPoint.saveWifiState(savedState);
-        return new AccessPoint(mContext, savedState);
-    }
-
-    @Override
-    protected boolean areListsTheSame(List<AccessPoint> a, List<AccessPoint> b) {
-        if (!a.equals(b)) {
-            return false;
+    /**
+     * Saves the current state of the displayed access point with {@code key} into
+     * {@code savedState}, leaving it empty if that access point is no longer displayed.
+     */
+    void saveAccessPointState(String key, Bundle savedState) {
+        final List<AccessPoint> accessPoints = mAccessPoints;
+        if (accessPoints == null) {
+            return;
         }
-
-        // compare access point states one by one
-        final int listSize = a.size();
-        for (int i = 0; i < listSize; i++) {
-            if (a.get(i).getDetailedState() != b.get(i).getDetailedState()) {
-                return false;
+        for (AccessPoint ap : accessPoints) {
+            if (TextUtils.equals(ap.getKey(), key)) {
+                ap.saveWifiState(savedState);
+                return;
             }
         }
-        return true;
+    }
+
+    @Override
+    protected boolean areListsTheSame(List<WifiSliceItem> a, List<WifiSliceItem> b) {
+        // WifiSliceItem compares its precomputed hash code first, including the detailed state.
+        return a.equals(b);
     }
 
     static void saveClickedWifi(AccessPoint accessPoint) {
@@ -99,7 +99,7 @@ public class WifiSlice implements CustomSliceable {
         }
 
         final WifiScanWorker worker = SliceBackgroundWorker.getInstance(getUri());
-        final List<AccessPoint> apList = worker != null ? worker.getResults() : null;
+        final List<WifiSliceItem> apList = worker != null ? worker.getResults() : null;
         final int apCount = apList == null ? 0 : apList.size();
         final boolean isFirstApActive = apCount > 0 && apList.get(0).isActive();
         handleNetworkCallback(worker, isFirstApActive);
@@ -165,7 +165,7 @@ public class WifiSlice implements CustomSliceable {
                         .setPrimaryAction(primarySliceAction));
     }
 
-    private ListBuilder.RowBuilder getAccessPointRow(AccessPoint accessPoint) {
+    private ListBuilder.RowBuilder getAccessPointRow(WifiSliceItem accessPoint) {
         final boolean isCaptivePortal = accessPoint.isActive() && isCaptivePortal();
         final CharSequence title = accessPoint.getTitle();
         final CharSequence summary = getAccessPointSummary(accessPoint, isCaptivePortal);
@@ -188,7 +188,7 @@ public class WifiSlice implements CustomSliceable {
         return rowBuilder;
     }
 
-    private CharSequence getAccessPointSummary(AccessPoint accessPoint, boolean isCaptivePortal) {
+    private CharSequence getAccessPointSummary(WifiSliceItem accessPoint, boolean isCaptivePortal) {
         if (isCaptivePortal) {
             return mContext.getText(R.string.wifi_tap_to_sign_in);
         }
@@ -197,13 +197,13 @@ public class WifiSlice implements CustomSliceable {
         return TextUtils.isEmpty(summary) ? mContext.getText(R.string.disconnected) : summary;
     }
 
-    private IconCompat getAccessPointLevelIcon(AccessPoint accessPoint) {
+    private IconCompat getAccessPointLevelIcon(WifiSliceItem accessPoint) {
         final Drawable d = mContext.getDrawable(
                 com.android.settingslib.Utils.getWifiIconResource(accessPoint.getLevel()));
 
         final @ColorInt int color;
         if (accessPoint.isActive()) {
-            final NetworkInfo.State state = accessPoint.getNetworkInfo().getState();
+            final NetworkInfo.State state = accessPoint.getNetworkState();
             if (state == NetworkInfo.State.CONNECTED) {
                 color = Utils.getColorAccentDefaultColor(mContext);
             } else { // connecting
@@ -218,7 +218,7 @@ public class WifiSlice implements CustomSliceable {
         return Utils.createIconWithDrawable(d);
     }
 
-    private IconCompat getEndIcon(AccessPoint accessPoint) {
+    private IconCompat getEndIcon(WifiSliceItem accessPoint) {
         if (accessPoint.isActive()) {
             return null;
         } else if (accessPoint.getSecurity() != AccessPoint.SECURITY_NONE) {
@@ -229,12 +229,12 @@ public class WifiSlice implements CustomSliceable {
         return null;
     }
 
-    private SliceAction getCaptivePortalEndAction(AccessPoint accessPoint, CharSequence title) {
+    private SliceAction getCaptivePortalEndAction(WifiSliceItem accessPoint, CharSequence title) {
         return getAccessPointAction(accessPoint, false /* isCaptivePortal */,
                 IconCompat.createWithResource(mContext, R.drawable.ic_settings_accent), title);
     }
 
-    private SliceAction getAccessPointAction(AccessPoint accessPoint, boolean isCaptivePortal,
+    private SliceAction getAccessPointAction(WifiSliceItem accessPoint, boolean isCaptivePortal,
             IconCompat icon, CharSequence title) {
         final int requestCode = accessPoint.hashCode();
         if (isCaptivePortal) {
@@ -243,8 +243,12 @@ public class WifiSlice implements CustomSliceable {
             return getBroadcastAction(requestCode, intent, icon, title);
         }
 
+        // Saved when the row is bound rather than on every scan, from the latest access point.
         final Bundle extras = new Bundle();
-        accessPoint.saveWifiState(extras);
+        final WifiScanWorker worker = SliceBackgroundWorker.getInstance(getUri());
+        if (worker != null) {
+            worker.saveAccessPointState(accessPoint.getKey(), extras);
+        }
 
         if (accessPoint.isActive()) {
             final Intent intent = new SubSettingLauncher(mContext)
@@ -254,7 +258,7 @@ public class WifiSlice implements CustomSliceable {
                     .setSourceMetricsCategory(SettingsEnums.WIFI)
                     .toIntent();
             return getActivityAction(requestCode, intent, icon, title);
-        } else if (WifiUtils.getConnectingType(accessPoint) != WifiUtils.CONNECT_TYPE_OTHERS) {
+        } else if (accessPoint.getConnectingType() != WifiUtils.CONNECT_TYPE_OTHERS) {
             final Intent intent = new Intent(mContext, ConnectToWifiHandler.class)
                     .putExtra(WifiDialogActivity.KEY_ACCESS_POINT_STATE, extras);
             return getBroadcastAction(requestCode, intent, icon, title);
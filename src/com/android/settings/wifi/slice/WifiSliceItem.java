@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi.slice;
+
+import android.net.NetworkInfo;
+import android.text.TextUtils;
+
+import com.android.settings.wifi.WifiUtils;
+import com.android.settingslib.wifi.AccessPoint;
+
+import java.util.Objects;
+
+/**
+ * Immutable view of an {@link AccessPoint}, holding only what {@link WifiSlice} renders.
+ *
+ * {@link WifiScanWorker} captures one per displayed access point on every scan. The hash code is
+ * computed once, so comparing the new results with the cached ones is cheap. The saved state used
+ * by the click action is not part of the snapshot; {@link WifiSlice} asks the worker for it when
+ * the row is bound.
+ */
+public class WifiSliceItem {
+
+    private final String mKey;
+    private final CharSequence mTitle;
+    private final CharSequence mSummary;
+    private final int mLevel;
+    private final int mSecurity;
+    private final int mConnectingType;
+    private final boolean mIsActive;
+    private final boolean mIsReachable;
+    private final boolean mIsMetered;
+    private final NetworkInfo.State mNetworkState;
+    private final NetworkInfo.DetailedState mDetailedState;
+    private final int mHashCode;
+
+    public WifiSliceItem(AccessPoint accessPoint) {
+        mKey = accessPoint.getKey();
+        mTitle = accessPoint.getTitle();
+        mSummary = accessPoint.getSettingsSummary();
+        mLevel = accessPoint.getLevel();
+        mSecurity = accessPoint.getSecurity();
+        mConnectingType = WifiUtils.getConnectingType(accessPoint);
+        mIsActive = accessPoint.isActive();
+        mIsReachable = accessPoint.isReachable();
+        mIsMetered = accessPoint.isMetered();
+        final NetworkInfo networkInfo = accessPoint.getNetworkInfo();
+        mNetworkState = networkInfo != null ? networkInfo.getState() : null;
+        mDetailedState = accessPoint.getDetailedState();
+        mHashCode = Objects.hash(mKey, toString(mTitle), toString(mSummary), mLevel, mSecurity,
+                mConnectingType, mIsActive, mIsReachable, mIsMetered, mNetworkState,
+                mDetailedState);
+    }
+
+    public String getKey() {
+        return mKey;
+    }
+
+    public CharSequence getTitle() {
+        return mTitle;
+    }
+
+    public CharSequence getSettingsSummary() {
+        return mSummary;
+    }
+
+    public int getLevel() {
+        return mLevel;
+    }
+
+    public int getSecurity() {
+        return mSecurity;
+    }
+
+    /**
+     * @see WifiUtils#getConnectingType(AccessPoint)
+     */
+    public int getConnectingType() {
+        return mConnectingType;
+    }
+
+    public boolean isActive() {
+        return mIsActive;
+    }
+
+    public boolean isReachable() {
+        return mIsReachable;
+    }
+
+    public boolean isMetered() {
+        return mIsMetered;
+    }
+
+    /**
+     * Returns the {@link NetworkInfo.State} of the access point, or {@code null} if it has no
+     * network info.
+     */
+    public NetworkInfo.State getNetworkState() {
+        return mNetworkState;
+    }
+
+    @Override
+    public int hashCode() {
+        return mHashCode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof WifiSliceItem)) {
+            return false;
+        }
+        final WifiSliceItem item = (WifiSliceItem) other;
+        return mHashCode == item.mHashCode
+                && mLevel == item.mLevel
+                && mSecurity == item.mSecurity
+                && mConnectingType == item.mConnectingType
+                && mIsActive == item.mIsActive
+                && mIsReachable == item.mIsReachable
+                && mIsMetered == item.mIsMetered
+                && mNetworkState == item.mNetworkState
+                && mDetailedState == item.mDetailedState
+                && TextUtils.equals(mKey, item.mKey)
+                && TextUtils.equals(mTitle, item.mTitle)
+                && TextUtils.equals(mSummary, item.mSummary);
+    }
+
+    private static String toString(CharSequence text) {
+        return text == null ? null : text.toString();
+    }
+}
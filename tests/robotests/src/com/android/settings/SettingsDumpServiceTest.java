@@ -31,7 +31,9 @@ import android.content.pm.ResolveInfo;
 
 import androidx.annotation.NonNull;
 
+import com.android.settings.core.instrumentation.LatencyTracker;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
+import com.android.settings.performance.PerformanceProto.SettingsPerformanceDump;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -113,6 +115,21 @@ public class SettingsDumpServiceTest {
         assertThat(object.get(TestService.KEY_SERVICE)).isNotNull();
     }
 
+    @Test
+    public void testDumpPerformanceProto_containsRecordedLatencies() {
+        LatencyTracker.getInstance().record("SettingsDumpServiceTest/latency", 5);
+        LatencyTracker.getInstance().increment("SettingsDumpServiceTest/counter");
+
+        final SettingsPerformanceDump dump = mTestService.dumpPerformanceProto();
+
+        assertThat(dump.getLatencyList().stream()
+                .anyMatch(latency -> latency.getName().equals("SettingsDumpServiceTest/latency")
+                        && latency.getCount() > 0)).isTrue();
+        assertThat(dump.getCounterList().stream()
+                .anyMatch(counter -> counter.getName().equals("SettingsDumpServiceTest/counter")
+                        && counter.getValue() > 0)).isTrue();
+    }
+
     /**
      * Test service used to pass in the mock {@link PackageManager}
      */
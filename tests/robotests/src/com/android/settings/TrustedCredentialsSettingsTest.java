@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.RemoteException;
+import android.security.IKeyChainService;
+import android.security.KeyChain.KeyChainConnection;
+import android.util.Base64;
+import android.util.LruCache;
+import android.util.SparseArray;
+
+import com.android.settings.TrustedCredentialsSettings.CertHolder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.util.ReflectionHelpers;
+
+@RunWith(RobolectricTestRunner.class)
+public class TrustedCredentialsSettingsTest {
+
+    private static final String ALIAS = "system:test";
+    private static final String OTHER_ALIAS = "system:other";
+    private static final int PROFILE_ID = 0;
+    // Self-signed certificates, "CN=Test CA, O=Test Org" and "CN=Other CA".
+    private static final byte[] CERT = Base64.decode(
+            "MIICKDCCAZGgAwIBAgIUMYEl4Oktc1WgJmjxcATH6zQumdowDQYJKoZIhvcNAQELBQAwJTEQMA4GA1UE"
+            + "AwwHVGVzdCBDQTERMA8GA1UECgwIVGVzdCBPcmcwIBcNMjYxMDE4MjA1NDU0WhgPMjEyNjA5MjQyMDU0"
+            + "NTRaMCUxEDAOBgNVBAMMB1Rlc3QgQ0ExETAPBgNVBAoMCFRlc3QgT3JnMIGfMA0GCSqGSIb3DQEBAQUA"
+            + "A4GNADCBiQKBgQC8wE+Hx1Ee7cmvFM1TzN7RIiOXCM8VCihWtZuCZcHJHwsf7V8FyaWKjA2jai4Jjfue"
+            + "FYEWYv+ceqI7G0i2ZqaA9VzNlHuhgleeHP6VC+m9rs2nrIMU6qQm/S+T/ejRuzAH/0KYNA+C7aBGJFSv"
+            + "cOaOvkp6EO9ZHy8/BuxXPFQ4YwIDAQABo1MwUTAdBgNVHQ4EFgQUUu+lNUFnHMT0wV64QrJ1hg5dKegw"
+            + "HwYDVR0jBBgwFoAUUu+lNUFnHMT0wV64QrJ1hg5dKegwDwYDVR0TAQH/BAUwAwEB/zANBgkqhkiG9w0B"
+            + "AQsFAAOBgQA+LM03mJr/Rtv7blUA0s+C9ATMh+gw7MB8sjZOYaUWDyAAFSkugHAVKkEv4h0tNWGwYgQA"
+            + "OJZHpx2e/R3XpxAgDPVRv5CGqh0uPEPBbznqBRpHhlxjM8Eb4hTii13IDuelQR40mHdZo6rv0eN+wOZZ"
+            + "rVHK89hRyhMZzavoLWCMOQ==", Base64.DEFAULT);
+    private static final byte[] OTHER_CERT = Base64.decode(
+            "MIICBDCCAW2gAwIBAgIUAZsx5NoK32ffE/kghg6Hj2YhrlYwDQYJKoZIhvcNAQELBQAwEzERMA8GA1UE"
+            + "AwwIT3RoZXIgQ0EwIBcNMjYxMDE4MjA1NTA0WhgPMjEyNjA5MjQyMDU1MDRaMBMxETAPBgNVBAMMCE90"
+            + "aGVyIENBMIGfMA0GCSqGSIb3DQEBAQUAA4GNADCBiQKBgQDbrl3nuRd4K+8IOoMzExPQNbFjqNxeG1zp"
+            + "Qbfmdcrje73K226fgm9mHPqO2Hkg4ocQzid4dYkwDjI9lljZvWyF1J0C0OaACsDCnexospIALPKqaqg1"
+            + "8Ia/4/WWeyU9LcwwkuVOicdY3OZGsO3KnBtkmPJO0Mjnh4c7Uv6tf4rObQIDAQABo1MwUTAdBgNVHQ4E"
+            + "FgQUzt6sdlDbLIjOBHvXVUjGQa1+5BAwHwYDVR0jBBgwFoAUzt6sdlDbLIjOBHvXVUjGQa1+5BAwDwYD"
+            + "VR0TAQH/BAUwAwEB/zANBgkqhkiG9w0BAQsFAAOBgQC92U+uxa+rLR5yw7rsQRmFhFVgq/bvN1fgdYT3"
+            + "SXNQ91TmA76I+hBSByT0rrt45YGuKAM6OT4iZCMDE6eGMB/so8Cg+kzEAuyiDImpNZBzZ6Pn2xda3ARW"
+            + "22cF3EcOkbHrXq+otfSLhPMKDHYmv1blVdnHUVoADbPsmyd/uCDh1w==", Base64.DEFAULT);
+
+    @Mock
+    private IKeyChainService mService;
+    @Mock
+    private KeyChainConnection mKeyChainConnection;
+
+    private TrustedCredentialsSettings mFragment;
+    private TrustedCredentialsSettings.GroupAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mFragment = new TrustedCredentialsSettings();
+        mAdapter = mock(TrustedCredentialsSettings.GroupAdapter.class);
+        when(mKeyChainConnection.getService()).thenReturn(mService);
+        final SparseArray<KeyChainConnection> connections =
+                ReflectionHelpers.getField(mFragment, "mKeyChainConnectionByProfileId");
+        connections.put(PROFILE_ID, mKeyChainConnection);
+    }
+
+    @After
+    public void tearDown() {
+        final LruCache<?, ?> parsedCerts = ReflectionHelpers.getStaticField(
+                TrustedCredentialsSettings.class, "sParsedCerts");
+        parsedCerts.evictAll();
+    }
+
+    @Test
+    public void getParsedCert_sameAliasAndCert_shouldReuseParsedCert() {
+        final TrustedCredentialsSettings.ParsedCert parsedCert =
+                TrustedCredentialsSettings.getParsedCert(ALIAS, CERT);
+
+        assertThat(TrustedCredentialsSettings.getParsedCert(ALIAS, CERT.clone()))
+                .isSameAs(parsedCert);
+    }
+
+    @Test
+    public void getParsedCert_otherAlias_shouldParseAgain() {
+        final TrustedCredentialsSettings.ParsedCert parsedCert =
+                TrustedCredentialsSettings.getParsedCert(ALIAS, CERT);
+
+        assertThat(TrustedCredentialsSettings.getParsedCert(OTHER_ALIAS, CERT))
+                .isNotSameAs(parsedCert);
+    }
+
+    @Test
+    public void getParsedCert_changedCert_shouldParseAgain() {
+        final TrustedCredentialsSettings.ParsedCert parsedCert =
+                TrustedCredentialsSettings.getParsedCert(ALIAS, CERT);
+
+        assertThat(TrustedCredentialsSettings.getParsedCert(ALIAS, OTHER_CERT))
+                .isNotSameAs(parsedCert);
+        assertThat(TrustedCredentialsSettings.getParsedCert(ALIAS, CERT)).isSameAs(parsedCert);
+    }
+
+    @Test
+    public void aliasOperation_failedButStateKnown_shouldRefreshOnlyThatCert()
+            throws RemoteException {
+        // Enabled when loaded, found deleted after the failed operation.
+        when(mService.containsCaAlias(ALIAS)).thenReturn(true, false);
+        when(mService.deleteCaCertificate(ALIAS)).thenThrow(new RemoteException());
+        final CertHolder certHolder = createSystemCertHolder();
+        final TrustedCredentialsSettings.AliasOperation operation =
+                mFragment.new AliasOperation(certHolder);
+
+        operation.onPostExecute(operation.doInBackground());
+
+        assertThat((boolean) ReflectionHelpers.getField(certHolder, "mDeleted")).isTrue();
+        verify(mAdapter).notifyDataSetChanged();
+        verify(mAdapter, never()).load();
+    }
+
+    @Test
+    public void aliasOperation_failedAndStateUnknown_shouldReload() throws RemoteException {
+        when(mService.containsCaAlias(ALIAS)).thenReturn(true).thenThrow(new RemoteException());
+        when(mService.deleteCaCertificate(ALIAS)).thenThrow(new RemoteException());
+        final CertHolder certHolder = createSystemCertHolder();
+        final TrustedCredentialsSettings.AliasOperation operation =
+                mFragment.new AliasOperation(certHolder);
+
+        operation.onPostExecute(operation.doInBackground());
+
+        assertThat((boolean) ReflectionHelpers.getField(certHolder, "mDeleted")).isFalse();
+        verify(mAdapter).load();
+    }
+
+    private CertHolder createSystemCertHolder() {
+        return new CertHolder(mService, mAdapter, TrustedCredentialsSettings.Tab.SYSTEM, ALIAS,
+                TrustedCredentialsSettings.getParsedCert(ALIAS, CERT), PROFILE_ID);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.accessibility;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.accessibilityservice.AccessibilityServiceInfo;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ResolveInfo;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.view.accessibility.AccessibilityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class AccessibilityServiceCacheTest {
+
+    private static final String PACKAGE_NAME = "com.android.test";
+    private static final String OTHER_PACKAGE_NAME = "com.android.other";
+    private static final String CLASS_NAME = PACKAGE_NAME + ".test_a11y_service";
+
+    private Context mContext;
+    private AccessibilityManager mAccessibilityManager;
+    private ShadowAccessibilityManager mShadowAccessibilityManager;
+    private AccessibilityServiceInfo mServiceInfo;
+    private AccessibilityServiceCache mCache;
+
+    @Before
+    public void setUp() throws IOException, XmlPullParserException {
+        mContext = RuntimeEnvironment.application;
+        mAccessibilityManager = AccessibilityManager.getInstance(mContext);
+        mShadowAccessibilityManager = Shadow.extract(mAccessibilityManager);
+        mServiceInfo = createServiceInfo();
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
+                Arrays.asList(mServiceInfo));
+        mCache = new AccessibilityServiceCache(mContext);
+    }
+
+    @Test
+    public void getInstalledServiceList_shouldOnlyQueryAgainAfterPackageChange() {
+        assertThat(mCache.getInstalledServiceList(mAccessibilityManager)).hasSize(1);
+
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(new ArrayList<>());
+        assertThat(mCache.getInstalledServiceList(mAccessibilityManager)).hasSize(1);
+
+        mCache.mPackageReceiver.onReceive(mContext, new Intent(Intent.ACTION_PACKAGE_REMOVED,
+                Uri.fromParts("package", PACKAGE_NAME, null /* fragment */)));
+        assertThat(mCache.getInstalledServiceList(mAccessibilityManager)).isEmpty();
+    }
+
+    @Test
+    public void getResources_shouldOnlyLoadAgainAfterOwnPackageChange() {
+        final AccessibilityServiceCache.ServiceResources resources =
+                mCache.getResources(mServiceInfo);
+        assertThat(resources.mLabel).isEqualTo("Test service");
+
+        mCache.invalidate(OTHER_PACKAGE_NAME);
+        assertThat(mCache.getResources(mServiceInfo)).isSameAs(resources);
+
+        mCache.invalidate(PACKAGE_NAME);
+        assertThat(mCache.getResources(mServiceInfo)).isNotSameAs(resources);
+    }
+
+    private AccessibilityServiceInfo createServiceInfo()
+            throws IOException, XmlPullParserException {
+        final ApplicationInfo applicationInfo = new ApplicationInfo();
+        applicationInfo.packageName = PACKAGE_NAME;
+        final ServiceInfo serviceInfo = new ServiceInfo();
+        serviceInfo.packageName = PACKAGE_NAME;
+        serviceInfo.name = CLASS_NAME;
+        serviceInfo.applicationInfo = applicationInfo;
+
+        final ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.serviceInfo = serviceInfo;
+        resolveInfo.nonLocalizedLabel = "Test service";
+        return new AccessibilityServiceInfo(resolveInfo, mContext);
+    }
+}
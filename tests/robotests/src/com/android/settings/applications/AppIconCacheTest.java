@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.UserHandle;
+import android.util.IconDrawableFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppIconCacheTest {
+
+    private static final String PACKAGE_NAME = "com.android.app";
+    private static final int MANAGED_PROFILE_ID = 10;
+
+    @Mock
+    private IconDrawableFactory mIconDrawableFactory;
+
+    private Context mContext;
+    private ApplicationInfo mAppInfo;
+    private AppIconCache mCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mAppInfo = new ApplicationInfo();
+        mAppInfo.packageName = PACKAGE_NAME;
+        mAppInfo.uid = UserHandle.getUid(UserHandle.USER_SYSTEM, 10001);
+        when(mIconDrawableFactory.getBadgedIcon(any(ApplicationInfo.class), anyInt()))
+                .thenAnswer(invocation -> new BitmapDrawable(mContext.getResources(),
+                        Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888)));
+        mCache = new AppIconCache(mContext, mIconDrawableFactory);
+    }
+
+    @Test
+    public void getBadgedIcon_shouldDecodeOncePerUserAndShareBitmap() {
+        final Drawable first = mCache.getBadgedIcon(mAppInfo);
+        final Drawable second = mCache.getBadgedIcon(mAppInfo);
+        mCache.getBadgedIcon(mAppInfo, MANAGED_PROFILE_ID);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(((BitmapDrawable) second).getBitmap())
+                .isSameAs(((BitmapDrawable) first).getBitmap());
+        verify(mIconDrawableFactory).getBadgedIcon(mAppInfo, UserHandle.USER_SYSTEM);
+        verify(mIconDrawableFactory).getBadgedIcon(mAppInfo, MANAGED_PROFILE_ID);
+    }
+
+    @Test
+    public void packageBroadcast_shouldOnlyDropThatUser() {
+        mCache.getBadgedIcon(mAppInfo);
+        mCache.getBadgedIcon(mAppInfo, MANAGED_PROFILE_ID);
+
+        final Intent intent = new Intent(Intent.ACTION_PACKAGE_CHANGED,
+                Uri.fromParts("package", PACKAGE_NAME, null /* fragment */));
+        intent.putExtra(Intent.EXTRA_UID, mAppInfo.uid);
+        mCache.mPackageReceiver.onReceive(mContext, intent);
+        mCache.getBadgedIcon(mAppInfo);
+        mCache.getBadgedIcon(mAppInfo, MANAGED_PROFILE_ID);
+
+        verify(mIconDrawableFactory, times(2)).getBadgedIcon(mAppInfo, UserHandle.USER_SYSTEM);
+        verify(mIconDrawableFactory).getBadgedIcon(mAppInfo, MANAGED_PROFILE_ID);
+    }
+
+    @Test
+    public void trimMemory_shouldTrimOrEvict() {
+        for (int i = 0; i < AppIconCache.MAX_ICONS; i++) {
+            mCache.getBadgedIcon(mAppInfo, i);
+        }
+
+        mCache.mComponentCallbacks.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertThat(mCache.getIconCount()).isEqualTo(AppIconCache.MAX_ICONS / 2);
+
+        mCache.mComponentCallbacks.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+        assertThat(mCache.getIconCount()).isEqualTo(0);
+    }
+}
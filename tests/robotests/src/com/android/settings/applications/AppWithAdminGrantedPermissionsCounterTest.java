@@ -40,6 +40,7 @@ import android.os.UserHandle;
 import android.os.UserManager;
 
 import java.util.Collections;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -107,6 +108,12 @@ public final class AppWithAdminGrantedPermissionsCounterTest {
         mApp6 = buildInfo(APP_6_UID, APP_6, 0 /* flags */, Build.VERSION_CODES.M);
     }
 
+    @After
+    public void tearDown() {
+        // The snapshot is shared by every counter and lister, don't leak it into other tests.
+        InstalledAppsSnapshot.reset();
+    }
+
     private void verifyCountInstalledApps(boolean async) throws Exception {
         configureUserManager();
         configurePackageManager();
@@ -36,6 +36,7 @@ import android.os.Build;
 import android.os.UserHandle;
 import android.os.UserManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -89,6 +90,12 @@ public final class AppWithAdminGrantedPermissionsListerTest {
         MockitoAnnotations.initMocks(this);
     }
 
+    @After
+    public void tearDown() {
+        // The snapshot is shared by every counter and lister, don't leak it into other tests.
+        InstalledAppsSnapshot.reset();
+    }
+
     @Test
     public void verifyListInstalledApps() throws Exception {
         // There are two users.
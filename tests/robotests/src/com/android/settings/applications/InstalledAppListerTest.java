@@ -36,6 +36,7 @@ import android.content.pm.UserInfo;
 import android.os.UserHandle;
 import android.os.UserManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -80,6 +81,12 @@ public final class InstalledAppListerTest {
         MockitoAnnotations.initMocks(this);
     }
 
+    @After
+    public void tearDown() {
+        // The snapshot is shared by every counter and lister, don't leak it into other tests.
+        InstalledAppsSnapshot.reset();
+    }
+
     private void expectQueryIntentActivities(int userId, String packageName, boolean launchable) {
         when(mPackageManager.queryIntentActivitiesAsUser(
                 argThat(isLaunchIntentFor(packageName)),
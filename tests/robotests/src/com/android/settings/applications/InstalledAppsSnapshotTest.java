@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.UserInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class InstalledAppsSnapshotTest {
+
+    private static final int MAIN_USER_ID = 0;
+    private static final int MANAGED_PROFILE_ID = 10;
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    private Context mContext;
+    private UserInfo mMainUser;
+    private UserInfo mManagedProfile;
+    private InstalledAppsSnapshot mSnapshot;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mMainUser = new UserInfo(MAIN_USER_ID, "main", UserInfo.FLAG_ADMIN);
+        mManagedProfile = new UserInfo(MANAGED_PROFILE_ID, "managed profile", 0);
+        when(mPackageManager.getInstalledApplicationsAsUser(anyInt(), anyInt()))
+                .thenReturn(Arrays.asList(new ApplicationInfo()));
+        mSnapshot = new InstalledAppsSnapshot(mContext);
+        mSnapshot.retain();
+    }
+
+    @Test
+    public void getInstalledApplications_shouldQueryEachProfileOnce() {
+        mSnapshot.getInstalledApplications(mMainUser, mPackageManager);
+        mSnapshot.getInstalledApplications(mMainUser, mPackageManager);
+        mSnapshot.getInstalledApplications(mManagedProfile, mPackageManager);
+
+        verify(mPackageManager).getInstalledApplicationsAsUser(
+                PackageManager.GET_DISABLED_COMPONENTS
+                        | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
+                        | PackageManager.MATCH_ANY_USER, MAIN_USER_ID);
+        verify(mPackageManager).getInstalledApplicationsAsUser(
+                PackageManager.GET_DISABLED_COMPONENTS
+                        | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS, MANAGED_PROFILE_ID);
+    }
+
+    @Test
+    public void getInstalledApplications_otherPackageManager_shouldShareList() {
+        final PackageManager otherPackageManager = mock(PackageManager.class);
+
+        mSnapshot.getInstalledApplications(mMainUser, mPackageManager);
+        mSnapshot.getInstalledApplications(mMainUser, otherPackageManager);
+
+        verify(otherPackageManager, never()).getInstalledApplicationsAsUser(anyInt(), anyInt());
+    }
+
+    @Test
+    public void packageBroadcast_shouldQueryAgain() {
+        mSnapshot.getInstalledApplications(mMainUser, mPackageManager);
+
+        mSnapshot.mPackageReceiver.onReceive(mContext, null);
+        mSnapshot.getInstalledApplications(mMainUser, mPackageManager);
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(anyInt(),
+                eq(MAIN_USER_ID));
+    }
+
+    @Test
+    public void drop_stillReferenced_shouldKeepSnapshot() {
+        mSnapshot.drop();
+
+        assertThat(mSnapshot.retain()).isTrue();
+    }
+
+    @Test
+    public void drop_released_shouldNotBeRetainedAgain() {
+        mSnapshot.release();
+        mSnapshot.drop();
+
+        assertThat(mSnapshot.retain()).isFalse();
+    }
+}
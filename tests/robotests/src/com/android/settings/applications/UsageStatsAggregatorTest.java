@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.UsageStats;
+import android.app.usage.UsageStatsManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class UsageStatsAggregatorTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final String PACKAGE_1 = "com.android.app1";
+    private static final String PACKAGE_2 = "com.android.app2";
+
+    @Mock
+    private UsageStatsManager mUsageStatsManager;
+    @Mock
+    private UsageStatsManager mOtherUsageStatsManager;
+
+    private long mNow;
+    private UsageStatsAggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mNow = System.currentTimeMillis();
+        mAggregator = new UsageStatsAggregator(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void getPackageStats_secondCall_shouldOnlyQueryLatestBucket() {
+        final long today = mNow - DAY / 2;
+        when(mUsageStatsManager.queryUsageStats(anyInt(), anyLong(), anyLong())).thenReturn(
+                Arrays.asList(createStats(PACKAGE_1, today - DAY, 1000),
+                        createStats(PACKAGE_1, today, 2000)));
+        mAggregator.getPackageStats(mUsageStatsManager, mNow - 2 * DAY);
+
+        when(mUsageStatsManager.queryUsageStats(anyInt(), anyLong(), anyLong())).thenReturn(
+                Arrays.asList(createStats(PACKAGE_1, today, 3000)));
+        final List<UsageStats> stats = mAggregator.getPackageStats(mUsageStatsManager,
+                mNow - 2 * DAY);
+
+        verify(mUsageStatsManager).queryUsageStats(eq(UsageStatsManager.INTERVAL_DAILY),
+                eq(today), anyLong());
+        // The open bucket was replaced, not added again.
+        assertThat(stats).hasSize(1);
+        assertThat(stats.get(0).getTotalTimeInForeground()).isEqualTo(4000);
+    }
+
+    @Test
+    public void getPackageStats_otherManager_shouldOnlyQueryLatestBucket() {
+        final long today = mNow - DAY / 2;
+        when(mUsageStatsManager.queryUsageStats(anyInt(), anyLong(), anyLong())).thenReturn(
+                Arrays.asList(createStats(PACKAGE_1, today - DAY, 1000),
+                        createStats(PACKAGE_1, today, 2000)));
+        mAggregator.getPackageStats(mUsageStatsManager, mNow - 2 * DAY);
+
+        when(mOtherUsageStatsManager.queryUsageStats(anyInt(), anyLong(), anyLong())).thenReturn(
+                Arrays.asList(createStats(PACKAGE_1, today, 3000)));
+        final List<UsageStats> stats = mAggregator.getPackageStats(mOtherUsageStatsManager,
+                mNow - 2 * DAY);
+
+        verify(mOtherUsageStatsManager).queryUsageStats(eq(UsageStatsManager.INTERVAL_DAILY),
+                eq(today), anyLong());
+        assertThat(stats).hasSize(1);
+        assertThat(stats.get(0).getTotalTimeInForeground()).isEqualTo(4000);
+    }
+
+    @Test
+    public void getPackageStats_earlierWindow_shouldQueryWholeWindow() {
+        when(mUsageStatsManager.queryUsageStats(anyInt(), anyLong(), anyLong())).thenReturn(
+                Arrays.asList(createStats(PACKAGE_1, mNow - DAY / 2, 1000)));
+        mAggregator.getPackageStats(mUsageStatsManager, mNow - DAY);
+
+        mAggregator.getPackageStats(mUsageStatsManager, mNow - 5 * DAY);
+
+        verify(mUsageStatsManager).queryUsageStats(eq(UsageStatsManager.INTERVAL_DAILY),
+                eq(mNow - 5 * DAY), anyLong());
+    }
+
+    @Test
+    public void getRecentPackageStats_shouldReturnMostRecentMatchingPackages() {
+        final UsageStats older = createStats(PACKAGE_1, mNow - DAY / 2, 1000);
+        older.mLastTimeUsed = mNow - 2000;
+        final UsageStats newer = createStats(PACKAGE_2, mNow - DAY / 2, 1000);
+        newer.mLastTimeUsed = mNow - 1000;
+        when(mUsageStatsManager.queryUsageStats(anyInt(), anyLong(), anyLong())).thenReturn(
+                Arrays.asList(older, newer));
+
+        final List<UsageStats> stats = mAggregator.getRecentPackageStats(mUsageStatsManager,
+                mNow - DAY, 1 /* count */, stat -> true);
+
+        assertThat(stats).hasSize(1);
+        assertThat(stats.get(0).getPackageName()).isEqualTo(PACKAGE_2);
+    }
+
+    private UsageStats createStats(String packageName, long beginTime, long foregroundTime) {
+        final UsageStats stats = new UsageStats();
+        stats.mPackageName = packageName;
+        stats.mBeginTimeStamp = beginTime;
+        stats.mEndTimeStamp = Math.min(beginTime + DAY, mNow);
+        stats.mLastTimeUsed = stats.mEndTimeStamp;
+        stats.mTotalTimeInForeground = foregroundTime;
+        return stats;
+    }
+}
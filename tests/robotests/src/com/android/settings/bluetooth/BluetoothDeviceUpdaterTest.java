@@ -20,11 +20,13 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothProfile;
 import android.content.Context;
 import android.content.Intent;
 
@@ -48,6 +50,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -250,4 +253,31 @@ public class BluetoothDeviceUpdaterTest {
         verify(mDevicePreferenceCallback).onDeviceRemoved(mPreference);
         assertThat(mBluetoothDeviceUpdater.mPreferenceMap.containsKey(mBluetoothDevice)).isFalse();
     }
+
+    @Test
+    public void deviceEvents_inOneBurst_shouldUpdateDeviceOnce() {
+        ShadowLooper.pauseMainLooper();
+        mBluetoothDeviceUpdater.onDeviceAdded(mCachedBluetoothDevice);
+        mBluetoothDeviceUpdater.onAclConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothAdapter.STATE_CONNECTED);
+        mBluetoothDeviceUpdater.onProfileConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothAdapter.STATE_CONNECTED, BluetoothProfile.A2DP);
+
+        verify(mDevicePreferenceCallback, never()).onDeviceAdded(any(Preference.class));
+
+        ShadowLooper.unPauseMainLooper();
+
+        verify(mDevicePreferenceCallback, times(1)).onDeviceAdded(any(Preference.class));
+    }
+
+    @Test
+    public void removeAllDevicesFromPreference_shouldDropPendingUpdates() {
+        ShadowLooper.pauseMainLooper();
+        mBluetoothDeviceUpdater.onDeviceAdded(mCachedBluetoothDevice);
+
+        mBluetoothDeviceUpdater.removeAllDevicesFromPreference();
+        ShadowLooper.unPauseMainLooper();
+
+        verify(mDevicePreferenceCallback, never()).onDeviceAdded(any(Preference.class));
+    }
 }
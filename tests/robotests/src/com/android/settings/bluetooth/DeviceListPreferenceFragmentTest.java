@@ -20,7 +20,9 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -44,6 +46,7 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
 
 import java.util.List;
 
@@ -57,6 +60,10 @@ public class DeviceListPreferenceFragmentTest {
     private Resources mResource;
     @Mock
     private Context mContext;
+    @Mock
+    private CachedBluetoothDevice mCachedDevice1;
+    @Mock
+    private CachedBluetoothDevice mCachedDevice2;
 
     private TestFragment mFragment;
     private Preference mMyDevicePreference;
@@ -169,6 +176,38 @@ public class DeviceListPreferenceFragmentTest {
         verify(mFragment, times(1)).startScanning();
     }
 
+    @Test
+    public void onDeviceAdded_shouldAddDevicesOnceInNextBatch() {
+        final ShadowBluetoothAdapter shadowAdapter =
+                Shadow.extract(BluetoothAdapter.getDefaultAdapter());
+        shadowAdapter.setState(BluetoothAdapter.STATE_ON);
+        doNothing().when(mFragment).createDevicePreference(any());
+
+        mFragment.onDeviceAdded(mCachedDevice1);
+        mFragment.onDeviceAdded(mCachedDevice2);
+        mFragment.onDeviceAdded(mCachedDevice1);
+        verify(mFragment, never()).createDevicePreference(any());
+
+        mFragment.applyPendingUpdates();
+
+        verify(mFragment).createDevicePreference(mCachedDevice1);
+        verify(mFragment).createDevicePreference(mCachedDevice2);
+    }
+
+    @Test
+    public void onDeviceDeleted_pendingDevice_shouldNotAdd() {
+        final ShadowBluetoothAdapter shadowAdapter =
+                Shadow.extract(BluetoothAdapter.getDefaultAdapter());
+        shadowAdapter.setState(BluetoothAdapter.STATE_ON);
+        doNothing().when(mFragment).createDevicePreference(any());
+
+        mFragment.onDeviceAdded(mCachedDevice1);
+        mFragment.onDeviceDeleted(mCachedDevice1);
+        mFragment.applyPendingUpdates();
+
+        verify(mFragment, never()).createDevicePreference(any());
+    }
+
     /**
      * Fragment to test since {@code DeviceListPreferenceFragment} is abstract
      */
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class LatencyTrackerLogWriterTest {
+
+    private LatencyTracker mTracker;
+    private LatencyTrackerLogWriter mWriter;
+
+    @Before
+    public void setUp() {
+        mTracker = new LatencyTracker();
+        mWriter = new LatencyTrackerLogWriter(mTracker);
+    }
+
+    @Test
+    public void latency_shouldRecordInTracker() {
+        mWriter.latency("name", 10);
+
+        assertThat(mTracker.getHistogram("name").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void pageInteractive_shouldRecordPageHistogram() throws Exception {
+        mWriter.pageInteractive(1, 300);
+
+        assertThat(mTracker.dump().getJSONObject("page_interactive/1").getLong("max"))
+                .isEqualTo(300);
+    }
+
+    @Test
+    public void count_shouldIncrementCounter() {
+        mWriter.count("counter");
+        mWriter.count("counter");
+
+        assertThat(mTracker.getCount("counter")).isEqualTo(2);
+    }
+
+    @Test
+    public void span_shouldEndThroughRecorder() {
+        final LatencyTracker.Span span =
+                new LatencyTracker.Span(mWriter::latency, "span", 0 /* startTime */);
+
+        span.end();
+
+        assertThat(mTracker.getHistogram("span").getCount()).isEqualTo(1);
+    }
+}
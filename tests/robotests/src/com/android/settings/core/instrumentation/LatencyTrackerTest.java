@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class LatencyTrackerTest {
+
+    private LatencyTracker mTracker;
+
+    @Before
+    public void setUp() {
+        mTracker = new LatencyTracker();
+    }
+
+    @Test
+    public void histogram_shouldReportBucketUpperBoundCappedAtMax() {
+        final LatencyTracker.Histogram histogram = new LatencyTracker.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.add(i);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getMean()).isEqualTo(50);
+        assertThat(histogram.getMax()).isEqualTo(100);
+        // The 50th sample is 50ms, in the (32, 64] bucket.
+        assertThat(histogram.getPercentile(50)).isEqualTo(64);
+        // The 90th sample is 90ms, in the (64, 128] bucket, capped at the max.
+        assertThat(histogram.getPercentile(90)).isEqualTo(100);
+    }
+
+    @Test
+    public void histogram_powerOfTwo_shouldFallInLowerBucket() {
+        final LatencyTracker.Histogram histogram = new LatencyTracker.Histogram();
+        histogram.add(4);
+        histogram.add(1000);
+
+        assertThat(histogram.getPercentile(50)).isEqualTo(4);
+    }
+
+    @Test
+    public void histogram_veryLongLatency_shouldReportMax() {
+        final LatencyTracker.Histogram histogram = new LatencyTracker.Histogram();
+        histogram.add(Long.MAX_VALUE / 2);
+
+        assertThat(histogram.getPercentile(99)).isEqualTo(Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    public void span_shouldOnlyRecordOnce() {
+        final LatencyTracker.Span span = mTracker.startSpan("span");
+
+        span.end();
+        span.end();
+
+        assertThat(mTracker.getHistogram("span").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void record_tooManyHistograms_shouldDropNewNames() {
+        for (int i = 0; i < LatencyTracker.MAX_HISTOGRAMS; i++) {
+            mTracker.record("name" + i, i);
+        }
+
+        mTracker.record("extra", 1);
+        mTracker.record("name0", 1);
+
+        assertThat(mTracker.getHistogram("extra")).isNull();
+        assertThat(mTracker.getHistogram("name0").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void dump_shouldIncludePercentilesOfEveryHistogram() throws Exception {
+        mTracker.record("a", 10);
+        mTracker.recordPageInteractive(1, 300);
+
+        final JSONObject dump = mTracker.dump();
+
+        assertThat(dump.getJSONObject("a").getInt("count")).isEqualTo(1);
+        assertThat(dump.getJSONObject("a").getLong("p50")).isEqualTo(10);
+        assertThat(dump.getJSONObject("page_interactive/1").getLong("max")).isEqualTo(300);
+    }
+
+    @Test
+    public void increment_shouldCountAndDump() throws Exception {
+        mTracker.increment("hit");
+        mTracker.increment("hit");
+        mTracker.increment("miss");
+
+        assertThat(mTracker.getCount("hit")).isEqualTo(2);
+        assertThat(mTracker.getCount("unknown")).isEqualTo(0);
+        assertThat(mTracker.dumpCounters().getLong("miss")).isEqualTo(1);
+    }
+}
@@ -31,8 +31,6 @@ import org.robolectric.RuntimeEnvironment;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 public class SettingsIntelligenceLogWriterTest {
     private Context mContext;
@@ -52,11 +50,12 @@ public class SettingsIntelligenceLogWriterTest {
                 .setChangedPreferenceKey("package")
                 .setChangedPreferenceIntValue(100)
                 .build();
-        List<SettingsLog> events = new ArrayList<>();
-        events.add(event);
+        final SettingsIntelligenceLogWriter.LogBuffer buffer =
+                new SettingsIntelligenceLogWriter.LogBuffer(1024);
 
         // execute
-        final byte[] data = SettingsIntelligenceLogWriter.serialize(events);
+        assertThat(buffer.add(event)).isTrue();
+        final byte[] data = buffer.toByteArray();
 
         // parse data
         final ByteArrayInputStream bin = new ByteArrayInputStream(data);
@@ -68,11 +67,53 @@ public class SettingsIntelligenceLogWriterTest {
         final SettingsLog settingsLog = SettingsLog.parseFrom(change);
 
         // assert
-        assertThat(events.size()).isEqualTo(size);
+        assertThat(size).isEqualTo(1);
         assertThat(settingsLog.getAttribution()).isEqualTo(SettingsEnums.DASHBOARD_SUMMARY);
         assertThat(settingsLog.getAction()).isEqualTo(SettingsEnums.ACTION_SET_NEW_PASSWORD);
         assertThat(settingsLog.getPageId()).isEqualTo(SettingsEnums.SET_NEW_PASSWORD_ACTIVITY);
         assertThat(settingsLog.getChangedPreferenceKey()).isEqualTo("package");
         assertThat(settingsLog.getChangedPreferenceIntValue()).isEqualTo(100);
     }
+
+    @Test
+    public void logBuffer_full_shouldRejectUntilCleared() {
+        final SettingsLog event = SettingsLog.newBuilder()
+                .setAction(SettingsEnums.ACTION_SET_NEW_PASSWORD)
+                .setChangedPreferenceKey("package")
+                .build();
+        final int eventSize = 4 + event.getSerializedSize();
+        final SettingsIntelligenceLogWriter.LogBuffer buffer =
+                new SettingsIntelligenceLogWriter.LogBuffer(4 + 2 * eventSize);
+
+        assertThat(buffer.add(event)).isTrue();
+        assertThat(buffer.add(event)).isTrue();
+        assertThat(buffer.add(event)).isFalse();
+        assertThat(buffer.getCount()).isEqualTo(2);
+        assertThat(buffer.getSize()).isEqualTo(4 + 2 * eventSize);
+
+        buffer.clear();
+
+        assertThat(buffer.getCount()).isEqualTo(0);
+        assertThat(buffer.add(event)).isTrue();
+    }
+
+    @Test
+    public void logBuffer_multipleEvents_shouldKeepWireFormat() throws IOException {
+        final SettingsIntelligenceLogWriter.LogBuffer buffer =
+                new SettingsIntelligenceLogWriter.LogBuffer(1024);
+        for (int i = 0; i < 3; i++) {
+            buffer.add(SettingsLog.newBuilder().setChangedPreferenceIntValue(i).build());
+        }
+
+        final DataInputStream inputStream =
+                new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        assertThat(inputStream.readInt()).isEqualTo(3);
+        for (int i = 0; i < 3; i++) {
+            final byte[] change = new byte[inputStream.readInt()];
+            inputStream.readFully(change);
+            assertThat(SettingsLog.parseFrom(change).getChangedPreferenceIntValue()).isEqualTo(i);
+        }
+        assertThat(inputStream.available()).isEqualTo(0);
+        inputStream.close();
+    }
 }
@@ -31,16 +31,20 @@ import static org.mockito.Mockito.when;
 import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
+import android.net.wifi.WifiManager;
 import android.os.Bundle;
 
 import androidx.preference.Preference;
 import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
+import androidx.preference.SwitchPreference;
 
 import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
 import com.android.settings.core.PreferenceControllerMixin;
+import com.android.settings.development.WifiVerboseLoggingPreferenceController;
 import com.android.settings.slices.BlockingSlicePrefController;
 import com.android.settings.testutils.FakeFeatureFactory;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.core.instrumentation.VisibilityLoggerMixin;
@@ -206,6 +210,26 @@ public class DashboardFragmentTest {
         verify(mockController2).getPreferenceKey();
     }
 
+    @Test
+    @Config(shadows = ShadowThreadUtils.class)
+    public void updatePreferenceStates_backgroundStateLoader_shouldApplyLoadedState() {
+        final Context context = mock(Context.class);
+        final WifiManager wifiManager = mock(WifiManager.class);
+        when(context.getSystemService(Context.WIFI_SERVICE)).thenReturn(wifiManager);
+        when(wifiManager.getVerboseLoggingLevel()).thenReturn(1);
+        final WifiVerboseLoggingPreferenceController controller =
+                new WifiVerboseLoggingPreferenceController(context);
+        final SwitchPreference preference = mock(SwitchPreference.class);
+        when(mTestFragment.mScreen.findPreference(controller.getPreferenceKey()))
+                .thenReturn(preference);
+        mTestFragment.addPreferenceController(controller);
+
+        mTestFragment.updatePreferenceStates();
+
+        verify(wifiManager).getVerboseLoggingLevel();
+        verify(preference).setChecked(true);
+    }
+
     @Test
     public void onExpandButtonClick_shouldLogAdvancedButtonExpand() {
         final MetricsFeatureProvider metricsFeatureProvider
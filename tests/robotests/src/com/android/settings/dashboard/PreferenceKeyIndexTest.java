@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceKeyIndexTest {
+
+    private Context mContext;
+    private PreferenceScreen mScreen;
+    private PreferenceCategory mCategory;
+    private Preference mNestedPreference;
+    private PreferenceKeyIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mScreen = new PreferenceManager(mContext).createPreferenceScreen(mContext);
+        mCategory = new PreferenceCategory(mContext);
+        mCategory.setKey("category");
+        mScreen.addPreference(mCategory);
+        mNestedPreference = new Preference(mContext);
+        mNestedPreference.setKey("nested");
+        mCategory.addPreference(mNestedPreference);
+        mIndex = new PreferenceKeyIndex();
+    }
+
+    @Test
+    public void find_nestedPreference_shouldReturnPreference() {
+        mIndex.rebuild(mScreen);
+
+        assertThat((Preference) mIndex.find(mScreen, "nested")).isSameAs(mNestedPreference);
+    }
+
+    @Test
+    public void find_emptyKey_shouldReturnNull() {
+        assertThat((Preference) mIndex.find(mScreen, null)).isNull();
+        assertThat((Preference) mIndex.find(mScreen, "")).isNull();
+    }
+
+    @Test
+    public void find_preferenceAddedAfterRebuild_shouldReturnPreference() {
+        mIndex.rebuild(mScreen);
+        final Preference preference = new Preference(mContext);
+        preference.setKey("added");
+        mScreen.addPreference(preference);
+
+        assertThat((Preference) mIndex.find(mScreen, "added")).isSameAs(preference);
+    }
+
+    @Test
+    public void find_preferenceRemovedAfterRebuild_shouldReturnNull() {
+        mIndex.rebuild(mScreen);
+        mCategory.removePreference(mNestedPreference);
+
+        assertThat((Preference) mIndex.find(mScreen, "nested")).isNull();
+    }
+
+    @Test
+    public void find_groupRemovedAfterRebuild_shouldReturnNull() {
+        mIndex.rebuild(mScreen);
+        mScreen.removePreference(mCategory);
+
+        assertThat((Preference) mIndex.find(mScreen, "nested")).isNull();
+    }
+}
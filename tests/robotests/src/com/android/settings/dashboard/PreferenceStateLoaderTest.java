@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.preference.Preference;
+
+import com.android.settings.core.BasePreferenceController;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowThreadUtils.class)
+public class PreferenceStateLoaderTest {
+
+    private Context mContext;
+    private PreferenceStateLoader mLoader;
+    private List<PreferenceStateLoader.StateSnapshot> mResult;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mLoader = new PreferenceStateLoader("TestFragment");
+        mResult = null;
+    }
+
+    @Test
+    public void load_shouldDeliverAllSnapshots() {
+        final TestController available = new TestController(mContext, "key1", true);
+        final TestController unavailable = new TestController(mContext, "key2", false);
+
+        mLoader.load(Arrays.asList(available, unavailable), snapshots -> mResult = snapshots);
+
+        assertThat(mResult).hasSize(2);
+        assertThat(mResult.get(0).available).isTrue();
+        assertThat(mResult.get(0).state).isEqualTo("key1");
+        assertThat(mResult.get(1).available).isFalse();
+        assertThat(unavailable.mLoadCount).isEqualTo(0);
+    }
+
+    @Test
+    public void load_emptyList_shouldNotDeliver() {
+        mLoader.load(new ArrayList<>(), snapshots -> mResult = snapshots);
+
+        assertThat(mResult).isNull();
+    }
+
+    @Test
+    public void apply_shouldPassStateToController() {
+        final TestController controller = new TestController(mContext, "key1", true);
+        final Preference preference = new Preference(mContext);
+        mLoader.load(Arrays.asList(controller), snapshots -> mResult = snapshots);
+
+        mResult.get(0).apply(preference);
+
+        assertThat(preference.getSummary()).isEqualTo("key1");
+    }
+
+    @Test
+    public void recordMainThreadCost_underBudget_shouldNotRecord() {
+        mLoader.recordMainThreadCost(null /* metricsFeatureProvider */,
+                new TestController(mContext, "key1", true),
+                PreferenceStateLoader.MAIN_THREAD_BUDGET_MILLIS - 1);
+
+        assertThat(mLoader.getSlowControllers()).isEmpty();
+    }
+
+    @Test
+    public void reportSlowControllers_shouldClearRecord() {
+        mLoader.recordMainThreadCost(null /* metricsFeatureProvider */,
+                new TestController(mContext, "key1", true),
+                PreferenceStateLoader.MAIN_THREAD_BUDGET_MILLIS);
+        assertThat(mLoader.getSlowControllers()).hasSize(1);
+
+        mLoader.reportSlowControllers();
+
+        assertThat(mLoader.getSlowControllers()).isEmpty();
+    }
+
+    private static class TestController extends BasePreferenceController implements
+            BasePreferenceController.BackgroundStateLoader<String> {
+
+        private final boolean mAvailable;
+        private int mLoadCount;
+
+        TestController(Context context, String key, boolean available) {
+            super(context, key);
+            mAvailable = available;
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return mAvailable ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
+        }
+
+        @Override
+        public String loadState() {
+            mLoadCount++;
+            return getPreferenceKey();
+        }
+
+        @Override
+        public void applyState(Preference preference, String state) {
+            preference.setSummary(state);
+        }
+    }
+}
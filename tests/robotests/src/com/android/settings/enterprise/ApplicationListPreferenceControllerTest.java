@@ -21,9 +21,6 @@ import static com.android.settings.testutils.ApplicationTestUtils.buildInfo;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.Answers.RETURNS_DEEP_STUBS;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -31,7 +28,6 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.content.pm.UserInfo;
 import android.os.UserManager;
 
@@ -74,8 +70,6 @@ public class ApplicationListPreferenceControllerTest {
     @Mock(answer = RETURNS_DEEP_STUBS)
     private PreferenceScreen mScreen;
     @Mock(answer = RETURNS_DEEP_STUBS)
-    private PackageManager mPackageManager;
-    @Mock(answer = RETURNS_DEEP_STUBS)
     private SettingsPreferenceFragment mFragment;
     @Mock
     private UserManager mUserManager;
@@ -90,12 +84,9 @@ public class ApplicationListPreferenceControllerTest {
         doReturn(mUserManager).when(mContext).getSystemService(UserManager.class);
         when(mFragment.getPreferenceScreen()).thenReturn(mScreen);
         when(mFragment.getPreferenceManager().getContext()).thenReturn(mContext);
-        when(mPackageManager.getText(eq(APP_1), anyInt(), any())).thenReturn(APP_1);
-        when(mPackageManager.getText(eq(APP_2), anyInt(), any())).thenReturn(APP_2);
-        when(mPackageManager.getText(eq(APP_3), anyInt(), any())).thenReturn(APP_3);
 
         mController = new ApplicationListPreferenceController(mContext, new ThreeAppsBuilder(),
-                mPackageManager, mFragment);
+                mFragment);
     }
 
     @Test
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.INotificationManager;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+
+import com.android.settings.notification.NotificationBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowPackageManager;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationChannelSliceCacheTest {
+
+    private Context mContext;
+    private ShadowPackageManager mPackageManager;
+    private NotificationChannelSliceCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mPackageManager = shadowOf(mContext.getPackageManager());
+        addPackage("pkg.old", 100, 0 /* flags */);
+        addPackage("pkg.recent", 200, 0 /* flags */);
+        addPackage("pkg.system", 200, ApplicationInfo.FLAG_SYSTEM);
+        addPackage("pkg.new", 300, 0 /* flags */);
+        mCache = NotificationChannelSliceCache.getInstance(mContext);
+    }
+
+    @Test
+    public void getPackagesInstalledBetween_shouldReturnNonSystemPackagesInRange() {
+        final List<PackageInfo> packages = mCache.getPackagesInstalledBetween(150, 300);
+
+        assertThat(packages).hasSize(2);
+        assertThat(packages.get(0).packageName).isEqualTo("pkg.recent");
+        assertThat(packages.get(1).packageName).isEqualTo("pkg.new");
+    }
+
+    @Test
+    public void onPackageChanged_addedAndRemoved_shouldUpdateIndex() {
+        mCache.getPackagesInstalledBetween(0, Long.MAX_VALUE);
+        addPackage("pkg.added", 250, 0 /* flags */);
+
+        mCache.onPackageChanged("pkg.added", false /* removed */);
+        mCache.onPackageChanged("pkg.recent", true /* removed */);
+
+        final List<PackageInfo> packages = mCache.getPackagesInstalledBetween(150, 300);
+        assertThat(packages).hasSize(2);
+        assertThat(packages.get(0).packageName).isEqualTo("pkg.added");
+        assertThat(packages.get(1).packageName).isEqualTo("pkg.new");
+    }
+
+    @Test
+    public void getAppRow_shouldCacheUntilInvalidated() {
+        final NotificationBackend.AppRow appRow = new NotificationBackend.AppRow();
+        mCache.putAppRow("pkg.recent", appRow);
+        mCache.putAppRow("pkg.new", null);
+
+        assertThat(mCache.hasAppRow("pkg.recent")).isTrue();
+        assertThat(mCache.getAppRow("pkg.recent")).isSameAs(appRow);
+        assertThat(mCache.hasAppRow("pkg.new")).isTrue();
+        assertThat(mCache.getAppRow("pkg.new")).isNull();
+
+        mCache.invalidateAppRow("pkg.recent");
+        assertThat(mCache.hasAppRow("pkg.recent")).isFalse();
+        assertThat(mCache.hasAppRow("pkg.new")).isTrue();
+    }
+
+    @Test
+    public void getInstance_sameApplication_shouldReuseInstance() {
+        assertThat(NotificationChannelSliceCache.getInstance(mContext)).isSameAs(mCache);
+    }
+
+    @Test
+    public void updateChannel_shouldInvalidateAppRow() {
+        final INotificationManager notificationManager =
+                ReflectionHelpers.getStaticField(NotificationBackend.class, "sINM");
+        ReflectionHelpers.setStaticField(NotificationBackend.class, "sINM",
+                mock(INotificationManager.class));
+        try {
+            mCache.putAppRow("pkg.recent", new NotificationBackend.AppRow());
+
+            new NotificationBackend().updateChannel("pkg.recent", 0 /* uid */,
+                    new NotificationChannel("channel", "channel",
+                            NotificationManager.IMPORTANCE_LOW));
+
+            assertThat(mCache.hasAppRow("pkg.recent")).isFalse();
+        } finally {
+            ReflectionHelpers.setStaticField(NotificationBackend.class, "sINM",
+                    notificationManager);
+        }
+    }
+
+    private void addPackage(String packageName, long firstInstallTime, int flags) {
+        final ApplicationInfo applicationInfo = new ApplicationInfo();
+        applicationInfo.packageName = packageName;
+        applicationInfo.flags = flags;
+        final PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.applicationInfo = applicationInfo;
+        packageInfo.firstInstallTime = firstInstallTime;
+        mPackageManager.addPackage(packageInfo);
+    }
+}
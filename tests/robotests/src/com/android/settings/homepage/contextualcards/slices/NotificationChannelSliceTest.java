@@ -24,8 +24,14 @@ import static android.app.slice.SliceItem.FORMAT_SLICE;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.robolectric.Shadows.shadowOf;
 
 import android.app.NotificationChannel;
@@ -315,6 +321,36 @@ public class NotificationChannelSliceTest {
         assertThat(metadata.getTitle()).isEqualTo(mContext.getString(R.string.no_suggested_app));
     }
 
+    @Test
+    @Config(shadows = ShadowRestrictedLockUtilsInternal.class)
+    public void getSlice_multiChannelPackage_shouldLoadAppRowsInOneBatch() {
+        addMockPackageToPackageManager(true /* isRecentlyInstalled */,
+                ApplicationInfo.FLAG_INSTALLED);
+        mockNotificationBackend(CHANNEL_COUNT, NOTIFICATION_COUNT, false /* banned */,
+                false /* isChannelBlocked */);
+
+        mNotificationChannelSlice.getSlice();
+
+        verify(mNotificationBackend).loadAppRows(any(Context.class), any(PackageManager.class),
+                any(RoleManager.class), argThat(apps -> apps.size() == 1), anyLong(), anyInt());
+    }
+
+    @Test
+    @Config(shadows = ShadowRestrictedLockUtilsInternal.class)
+    public void getSlice_singleChannelPackage_shouldHaveNoSuggestedAppTitle() {
+        addMockPackageToPackageManager(true /* isRecentlyInstalled */,
+                ApplicationInfo.FLAG_INSTALLED);
+        mockNotificationBackend(1 /* channelCount */, NOTIFICATION_COUNT, false /* banned */,
+                false /* isChannelBlocked */);
+
+        final Slice slice = mNotificationChannelSlice.getSlice();
+
+        final SliceMetadata metadata = SliceMetadata.from(mContext, slice);
+        assertThat(metadata.getTitle()).isEqualTo(mContext.getString(R.string.no_suggested_app));
+        // The channel count is read by the batch load, not once more by the slice.
+        verify(mNotificationBackend, never()).getChannelCount(any(String.class), any(int.class));
+    }
+
     private void addMockPackageToPackageManager(boolean isRecentlyInstalled, int flags) {
         final ApplicationInfo applicationInfo = new ApplicationInfo();
         applicationInfo.name = APP_LABEL;
@@ -345,8 +381,9 @@ public class NotificationChannelSliceTest {
 
         doReturn(buildNotificationChannelGroups(channels)).when(mNotificationBackend).getGroups(
                 any(String.class), any(int.class));
-        doReturn(appRow).when(mNotificationBackend).loadAppRow(any(Context.class),
-                any(PackageManager.class), any(RoleManager.class), any(PackageInfo.class));
+        doReturn(Arrays.asList(appRow)).when(mNotificationBackend).loadAppRows(
+                any(Context.class), any(PackageManager.class), any(RoleManager.class), anyList(),
+                anyLong(), anyInt());
         doReturn(channelCount).when(mNotificationBackend).getChannelCount(
                 any(String.class), any(int.class));
     }
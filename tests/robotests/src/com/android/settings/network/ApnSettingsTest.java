@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.Telephony;
+
+import androidx.fragment.app.FragmentActivity;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowThreadUtils.class)
+public class ApnSettingsTest {
+
+    private FakeTelephonyProvider mProvider;
+    private PreferenceScreen mApnList;
+    private ApnSettings mFragment;
+
+    @Before
+    public void setUp() {
+        mProvider = new FakeTelephonyProvider();
+        ShadowContentResolver.registerProviderInternal(
+                Telephony.Carriers.CONTENT_URI.getAuthority(), mProvider);
+
+        final FragmentActivity activity = Robolectric.setupActivity(FragmentActivity.class);
+        final PreferenceManager preferenceManager = new PreferenceManager(activity);
+        mApnList = preferenceManager.createPreferenceScreen(activity);
+        mFragment = spy(new ApnSettings());
+        doReturn(activity).when(mFragment).getActivity();
+        doReturn(true).when(mFragment).isAdded();
+        doReturn(preferenceManager).when(mFragment).getPreferenceManager();
+        doReturn(mApnList).when(mFragment).findPreference("apn_list");
+    }
+
+    @Test
+    public void fillList_unchangedRows_shouldKeepPreferences() {
+        mProvider.addApn("1", "Internet", "internet", "default");
+        mProvider.addApn("2", "MMS", "mms", "mms");
+        mFragment.fillList();
+        final Preference internet = mApnList.findPreference("1");
+        final Preference mms = mApnList.findPreference("2");
+
+        mFragment.fillList();
+
+        assertThat(mApnList.getPreferenceCount()).isEqualTo(2);
+        assertThat(mApnList.findPreference("1")).isSameAs(internet);
+        assertThat(mApnList.findPreference("2")).isSameAs(mms);
+    }
+
+    @Test
+    public void fillList_changedAndRemovedRows_shouldUpdatePreferences() {
+        mProvider.addApn("1", "Internet", "internet", "default");
+        mProvider.addApn("2", "Tethering", "tether", "dun");
+        mProvider.addApn("3", "MMS", "mms", "mms");
+        mFragment.fillList();
+        final Preference internet = mApnList.findPreference("1");
+        final Preference tethering = mApnList.findPreference("2");
+
+        mProvider.clear();
+        mProvider.addApn("1", "Internet", "internet", "default");
+        mProvider.addApn("2", "Hotspot", "tether", "dun");
+        mFragment.fillList();
+
+        assertThat(mApnList.getPreferenceCount()).isEqualTo(2);
+        assertThat(mApnList.findPreference("1")).isSameAs(internet);
+        assertThat(mApnList.findPreference("2")).isNotSameAs(tethering);
+        assertThat(mApnList.findPreference("2").getTitle()).isEqualTo("Hotspot");
+        assertThat(mApnList.findPreference("3")).isNull();
+    }
+
+    private static class FakeTelephonyProvider extends ContentProvider {
+        private final List<Object[]> mApns = new ArrayList<>();
+
+        void addApn(String id, String name, String apn, String type) {
+            // Same columns as ApnSettings#CARRIERS_PROJECTION.
+            mApns.add(new Object[] {id, name, apn, type, "" /* mvno type */,
+                    "" /* mvno match data */, Telephony.Carriers.UNEDITED});
+        }
+
+        void clear() {
+            mApns.clear();
+        }
+
+        @Override
+        public boolean onCreate() {
+            return false;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection,
+                String[] selectionArgs, String sortOrder) {
+            final MatrixCursor cursor = new MatrixCursor(projection);
+            if (uri.getPath().contains("preferapn")) {
+                // No preferred APN.
+                return cursor;
+            }
+            for (Object[] apn : mApns) {
+                cursor.addRow(apn);
+            }
+            return cursor;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection,
+                String[] selectionArgs) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.PersistableBundle;
+import android.telephony.CarrierConfigManager;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class TelephonyStateCacheTest {
+
+    private static final int SUB_ID = 1;
+    private static final int OTHER_SUB_ID = 2;
+
+    @Mock
+    private CarrierConfigManager mCarrierConfigManager;
+    @Mock
+    private SubscriptionManager mSubscriptionManager;
+
+    private Context mContext;
+    private PersistableBundle mCarrierConfig;
+    private TelephonyStateCache mCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mCarrierConfig = new PersistableBundle();
+        when(mCarrierConfigManager.getConfigForSubId(SUB_ID)).thenReturn(mCarrierConfig);
+        when(mSubscriptionManager.getActiveSubscriptionInfoList(true)).thenReturn(
+                Arrays.asList(mock(SubscriptionInfo.class)));
+        mCache = new TelephonyStateCache(mContext);
+    }
+
+    @Test
+    public void getCarrierConfig_shouldFetchOncePerSubscription() {
+        mCache.getCarrierConfig(mCarrierConfigManager, SUB_ID);
+        mCache.getCarrierConfig(mCarrierConfigManager, SUB_ID);
+        mCache.getCarrierConfig(mCarrierConfigManager, OTHER_SUB_ID);
+        mCache.getCarrierConfig(mCarrierConfigManager, OTHER_SUB_ID);
+
+        verify(mCarrierConfigManager).getConfigForSubId(SUB_ID);
+        // Unavailable configs are not cached.
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(OTHER_SUB_ID);
+    }
+
+    @Test
+    public void getCarrierConfig_otherManager_shouldShareConfig() {
+        final CarrierConfigManager otherManager = mock(CarrierConfigManager.class);
+        mCache.getCarrierConfig(mCarrierConfigManager, SUB_ID);
+
+        assertThat(mCache.getCarrierConfig(otherManager, SUB_ID)).isSameAs(mCarrierConfig);
+        verify(otherManager, never()).getConfigForSubId(anyInt());
+    }
+
+    @Test
+    public void carrierConfigChanged_shouldFetchAgain() {
+        mCache.getCarrierConfig(mCarrierConfigManager, SUB_ID);
+
+        mCache.mCarrierConfigReceiver.onReceive(mContext,
+                new Intent(CarrierConfigManager.ACTION_CARRIER_CONFIG_CHANGED));
+        mCache.getCarrierConfig(mCarrierConfigManager, SUB_ID);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(SUB_ID);
+    }
+
+    @Test
+    public void getCarrierConfigBoolean_shouldReadKeyOrDefaultToFalse() {
+        mCarrierConfig.putBoolean(CarrierConfigManager.KEY_WORLD_MODE_ENABLED_BOOL, true);
+
+        assertThat(mCache.getCarrierConfigBoolean(mCarrierConfigManager, SUB_ID,
+                CarrierConfigManager.KEY_WORLD_MODE_ENABLED_BOOL)).isTrue();
+        assertThat(mCache.getCarrierConfigBoolean(mCarrierConfigManager, OTHER_SUB_ID,
+                CarrierConfigManager.KEY_WORLD_MODE_ENABLED_BOOL)).isFalse();
+    }
+
+    @Test
+    public void getCarrierConfigIntAndString_shouldReadKeyOrDefault() {
+        mCarrierConfig.putInt(CarrierConfigManager.KEY_ENHANCED_4G_LTE_TITLE_VARIANT_INT, 2);
+        mCarrierConfig.putString(
+                CarrierConfigManager.KEY_CARRIER_SETTINGS_ACTIVITY_COMPONENT_NAME_STRING, "a/.B");
+
+        assertThat(mCache.getCarrierConfigInt(mCarrierConfigManager, SUB_ID,
+                CarrierConfigManager.KEY_ENHANCED_4G_LTE_TITLE_VARIANT_INT, 0)).isEqualTo(2);
+        assertThat(mCache.getCarrierConfigInt(mCarrierConfigManager, OTHER_SUB_ID,
+                CarrierConfigManager.KEY_ENHANCED_4G_LTE_TITLE_VARIANT_INT, 0)).isEqualTo(0);
+        assertThat(mCache.getCarrierConfigString(mCarrierConfigManager, SUB_ID,
+                CarrierConfigManager.KEY_CARRIER_SETTINGS_ACTIVITY_COMPONENT_NAME_STRING, ""))
+                .isEqualTo("a/.B");
+        assertThat(mCache.getCarrierConfigString(mCarrierConfigManager, OTHER_SUB_ID,
+                CarrierConfigManager.KEY_CARRIER_SETTINGS_ACTIVITY_COMPONENT_NAME_STRING, ""))
+                .isEmpty();
+    }
+
+    @Test
+    public void getActiveSubscriptionInfoList_shouldFetchAgainAfterSubscriptionsChange() {
+        mCache.getActiveSubscriptionInfoList(mSubscriptionManager);
+        mCache.getActiveSubscriptionInfoList(mSubscriptionManager);
+
+        mCache.getSubscriptionsChangedListener().onSubscriptionsChanged();
+        mCache.getActiveSubscriptionInfoList(mSubscriptionManager);
+
+        verify(mSubscriptionManager, times(2)).getActiveSubscriptionInfoList(true);
+    }
+
+    @Test
+    public void getActiveSubscriptionInfoList_otherManager_shouldShareList() {
+        final SubscriptionManager otherManager = mock(SubscriptionManager.class);
+        mCache.getActiveSubscriptionInfoList(mSubscriptionManager);
+
+        assertThat(mCache.getActiveSubscriptionInfoList(otherManager)).hasSize(1);
+        verify(otherManager, never()).getActiveSubscriptionInfoList(anyBoolean());
+    }
+
+    @Test
+    public void getActiveSubscriptionInfoList_shouldReturnModifiableCopy() {
+        mCache.getActiveSubscriptionInfoList(mSubscriptionManager).clear();
+
+        assertThat(mCache.getActiveSubscriptionInfoList(mSubscriptionManager)).hasSize(1);
+    }
+}
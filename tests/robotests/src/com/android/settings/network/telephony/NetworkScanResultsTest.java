@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.telephony.CellInfo;
+
+import com.android.internal.telephony.OperatorInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class NetworkScanResultsTest {
+
+    private static final String PLMN_1 = "310260";
+    private static final String PLMN_2 = "310410";
+
+    private NetworkScanResults mResults;
+
+    @Before
+    public void setUp() {
+        mResults = new NetworkScanResults();
+    }
+
+    @Test
+    public void merge_partialResults_shouldOnlyReturnNewOperators() {
+        final CellInfo first = createCellInfo("Operator 1", PLMN_1, false);
+        final CellInfo second = createCellInfo("Operator 2", PLMN_2, false);
+
+        assertThat(mResults.merge(Arrays.asList(first))).containsExactly(first);
+        assertThat(mResults.merge(Arrays.asList(createCellInfo("Operator 1", PLMN_1, false),
+                second))).containsExactly(second);
+        assertThat(mResults.getCellInfoList()).hasSize(2);
+        assertThat(mResults.indexOf(second)).isEqualTo(1);
+    }
+
+    @Test
+    public void merge_registeredCell_shouldReplaceRow() {
+        mResults.merge(Arrays.asList(createCellInfo("Operator 1", PLMN_1, false)));
+        final CellInfo registered = createCellInfo("Operator 1", PLMN_1, true);
+
+        assertThat(mResults.merge(Arrays.asList(registered))).containsExactly(registered);
+        assertThat(mResults.getCellInfoList()).containsExactly(registered);
+    }
+
+    @Test
+    public void merge_titleChanged_shouldReturnRow() {
+        mResults.merge(Arrays.asList(createCellInfo("", PLMN_1, false)));
+        final CellInfo named = createCellInfo("Operator 1", PLMN_1, false);
+
+        assertThat(mResults.merge(Arrays.asList(named))).containsExactly(named);
+    }
+
+    @Test
+    public void clear_shouldDropAllRows() {
+        mResults.merge(Arrays.asList(createCellInfo("Operator 1", PLMN_1, false)));
+
+        mResults.clear();
+
+        assertThat(mResults.getCellInfoList()).isEmpty();
+    }
+
+    private static CellInfo createCellInfo(String name, String plmn, boolean registered) {
+        final CellInfo cellInfo = CellInfoUtil.convertOperatorInfoToCellInfo(
+                new OperatorInfo(name, name, plmn));
+        cellInfo.setRegistered(registered);
+        return cellInfo;
+    }
+}
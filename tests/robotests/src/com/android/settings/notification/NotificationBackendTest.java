@@ -22,6 +22,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.role.RoleManager;
@@ -39,6 +41,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
@@ -92,6 +95,26 @@ public class NotificationBackendTest {
         assertFalse(appRow.systemApp);
     }
 
+    @Test
+    public void testLoadAppRows_shouldResolveRolesOnce() {
+        final List<PackageInfo> apps = new ArrayList<>();
+        apps.add(createPackageInfo("dialer"));
+        apps.add(createPackageInfo("other"));
+        RoleManager rm = mock(RoleManager.class);
+        when(rm.getRoleHolders(RoleManager.ROLE_DIALER)).thenReturn(Arrays.asList("dialer"));
+        when(rm.getRoleHolders(RoleManager.ROLE_EMERGENCY)).thenReturn(new ArrayList<>());
+
+        List<AppRow> rows = new NotificationBackend().loadAppRows(RuntimeEnvironment.application,
+                mock(PackageManager.class), rm, apps);
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).pkg).isEqualTo("dialer");
+        assertTrue(rows.get(0).systemApp);
+        assertFalse(rows.get(1).systemApp);
+        verify(rm).getRoleHolders(RoleManager.ROLE_DIALER);
+        verify(rm, never()).getHeldRolesFromController(anyString());
+    }
+
     @Test
     public void testGetAggregatedUsageEvents_multipleEventsAgg() {
         List<UsageEvents.Event> events = new ArrayList<>();
@@ -130,6 +153,14 @@ public class NotificationBackendTest {
         assertThat(appRow.sentByApp.avgSentWeekly).isEqualTo(3);
     }
 
+    private PackageInfo createPackageInfo(String packageName) {
+        PackageInfo pi = new PackageInfo();
+        pi.packageName = packageName;
+        pi.applicationInfo = new ApplicationInfo();
+        pi.applicationInfo.packageName = packageName;
+        return pi;
+    }
+
     private UsageEvents getUsageEvents(List<UsageEvents.Event> events) {
         UsageEvents usageEvents = new UsageEvents(events, new String[] {"pkg"});
         Parcel parcel = Parcel.obtain();
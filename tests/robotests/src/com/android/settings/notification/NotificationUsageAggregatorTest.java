@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.IUsageStatsManager;
+import android.app.usage.UsageEvents;
+import android.os.Parcel;
+import android.service.notification.NotifyingApp;
+
+import com.android.settings.notification.NotificationBackend.NotificationsSentState;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationUsageAggregatorTest {
+
+    private static final String PKG = "pkg";
+
+    @Mock
+    private IUsageStatsManager mUsageStatsManager;
+
+    private NotificationUsageAggregator mAggregator;
+    private long mNow;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mNow = System.currentTimeMillis();
+        mAggregator = new NotificationUsageAggregator(mUsageStatsManager, "settings") {
+            @Override
+            long currentTimeMillis() {
+                return mNow;
+            }
+        };
+    }
+
+    @Test
+    public void getNotifyingApps_shouldOnlyIncludeAppsNotifiedSinceStart() throws Exception {
+        final List<UsageEvents.Event> events = new ArrayList<>();
+        events.add(createEvent(mNow - 100, "channel1"));
+        when(mUsageStatsManager.queryEventsForUser(anyLong(), anyLong(), eq(0), anyString()))
+                .thenReturn(getUsageEvents(events));
+
+        final List<NotifyingApp> apps = mAggregator.getNotifyingApps(0, mNow - 1000);
+        final List<NotifyingApp> noApps = mAggregator.getNotifyingApps(0, mNow - 50);
+
+        assertThat(apps).hasSize(1);
+        assertThat(apps.get(0).getPackage()).isEqualTo(PKG);
+        assertThat(apps.get(0).getLastNotified()).isEqualTo(mNow - 100);
+        assertThat(noApps).isEmpty();
+    }
+
+    @Test
+    public void refresh_shouldQueryFromHighWaterMarkMinusOverlap() throws Exception {
+        when(mUsageStatsManager.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(new ArrayList<>()));
+
+        mAggregator.getNotifyingApps(0, mNow);
+        mNow += 1000;
+        mAggregator.getNotifyingApps(0, mNow);
+
+        final ArgumentCaptor<Long> begin = ArgumentCaptor.forClass(Long.class);
+        final ArgumentCaptor<Long> end = ArgumentCaptor.forClass(Long.class);
+        verify(mUsageStatsManager, times(2)).queryEventsForUser(begin.capture(), end.capture(),
+                eq(0), anyString());
+        assertThat(begin.getAllValues().get(0)).isEqualTo(end.getAllValues().get(0)
+                - NotificationUsageAggregator.WINDOW_MILLIS
+                - NotificationUsageAggregator.OVERLAP_MILLIS);
+        assertThat(begin.getAllValues().get(1)).isEqualTo(
+                end.getAllValues().get(0) - NotificationUsageAggregator.OVERLAP_MILLIS);
+    }
+
+    @Test
+    public void getSentStatesByChannel_eventInOverlap_shouldCountOnce() throws Exception {
+        final List<UsageEvents.Event> first = new ArrayList<>();
+        first.add(createEvent(mNow - 100, "channel1"));
+        final List<UsageEvents.Event> second = new ArrayList<>();
+        second.add(createEvent(mNow - 100, "channel1"));
+        when(mUsageStatsManager.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(first), getUsageEvents(second));
+
+        final long start = mNow - 1000;
+        mAggregator.getSentStatesByChannel(0, PKG, start);
+        mNow += 1000;
+        final Map<String, NotificationsSentState> states =
+                mAggregator.getSentStatesByChannel(0, PKG, start);
+
+        assertThat(states.get("channel1").sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void getSentStatesByChannel_lateEvent_shouldBeCounted() throws Exception {
+        final List<UsageEvents.Event> first = new ArrayList<>();
+        first.add(createEvent(mNow - 100, "channel1"));
+        final List<UsageEvents.Event> second = new ArrayList<>();
+        // Reported after the first query, but happened before its end.
+        second.add(createEvent(mNow - 10, "channel1"));
+        when(mUsageStatsManager.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(first), getUsageEvents(second));
+
+        final long start = mNow - 1000;
+        mAggregator.getSentStatesByChannel(0, PKG, start);
+        mNow += 1000;
+        final Map<String, NotificationsSentState> states =
+                mAggregator.getSentStatesByChannel(0, PKG, start);
+
+        assertThat(states.get("channel1").sentCount).isEqualTo(2);
+        assertThat(states.get("channel1").lastSent).isEqualTo(mNow - 1010);
+    }
+
+    @Test
+    public void getSentStatesByChannel_shouldAccumulateAcrossQueries() throws Exception {
+        final List<UsageEvents.Event> first = new ArrayList<>();
+        first.add(createEvent(mNow - 300, "channel1"));
+        first.add(createEvent(mNow - 200, null));
+        final List<UsageEvents.Event> second = new ArrayList<>();
+        second.add(createEvent(mNow - 100, "channel1"));
+        second.add(createEvent(mNow - 50, "channel2"));
+        when(mUsageStatsManager.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(first), getUsageEvents(second));
+
+        final long start = mNow - 1000;
+        final long lastSent = mNow - 100;
+
+        mAggregator.getSentStatesByChannel(0, PKG, start);
+        mNow += 1000;
+        final Map<String, NotificationsSentState> states =
+                mAggregator.getSentStatesByChannel(0, PKG, start);
+
+        assertThat(states).hasSize(2);
+        assertThat(states.get("channel1").sentCount).isEqualTo(2);
+        assertThat(states.get("channel1").lastSent).isEqualTo(lastSent);
+        assertThat(states.get("channel2").sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void getSentStatesByChannel_eventsOutsideWindow_shouldBeDropped() throws Exception {
+        final List<UsageEvents.Event> events = new ArrayList<>();
+        events.add(createEvent(mNow - NotificationUsageAggregator.WINDOW_MILLIS - 1000,
+                "channel1"));
+        when(mUsageStatsManager.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(events));
+
+        assertThat(mAggregator.getSentStatesByChannel(0, PKG, 0)).isEmpty();
+        assertThat(mAggregator.getNotifyingApps(0, 0)).isEmpty();
+    }
+
+    @Test
+    public void timestampList_shouldStaySortedAndTrimFromFront() {
+        final NotificationUsageAggregator.TimestampList list =
+                new NotificationUsageAggregator.TimestampList();
+        for (long timestamp : new long[] {5, 1, 3, 7, 9, 2}) {
+            list.add(timestamp);
+        }
+
+        list.removeBefore(3);
+
+        assertThat(list.size()).isEqualTo(4);
+        assertThat(list.countSince(7)).isEqualTo(2);
+        assertThat(list.last()).isEqualTo(9);
+        assertThat(list.contains(5)).isTrue();
+        assertThat(list.contains(2)).isFalse();
+        assertThat(list.contains(4)).isFalse();
+    }
+
+    private static UsageEvents.Event createEvent(long timestamp, String channelId) {
+        final UsageEvents.Event event = new UsageEvents.Event();
+        event.mEventType = UsageEvents.Event.NOTIFICATION_INTERRUPTION;
+        event.mPackage = PKG;
+        event.mNotificationChannelId = channelId;
+        event.mTimeStamp = timestamp;
+        return event;
+    }
+
+    private UsageEvents getUsageEvents(List<UsageEvents.Event> events) {
+        UsageEvents usageEvents = new UsageEvents(events, new String[] {PKG});
+        Parcel parcel = Parcel.obtain();
+        parcel.setDataPosition(0);
+        usageEvents.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        return UsageEvents.CREATOR.createFromParcel(parcel);
+    }
+}
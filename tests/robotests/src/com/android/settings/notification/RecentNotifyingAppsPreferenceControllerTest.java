@@ -48,6 +48,7 @@ import android.service.notification.NotifyingApp;
 import android.text.TextUtils;
 
 import com.android.settings.R;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
 import com.android.settingslib.applications.AppUtils;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.instantapps.InstantAppDataProvider;
@@ -74,6 +75,7 @@ import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceScreen;
 
 @RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowThreadUtils.class)
 public class RecentNotifyingAppsPreferenceControllerTest {
 
     @Mock
@@ -300,16 +302,17 @@ public class RecentNotifyingAppsPreferenceControllerTest {
         mController = new RecentNotifyingAppsPreferenceController(
                 mContext, mBackend, mIUsageStatsManager, mUserManager, mAppState, mHost);
 
+        final long now = System.currentTimeMillis();
         List<Event> events = new ArrayList<>();
         Event app = new Event();
         app.mEventType = Event.NOTIFICATION_INTERRUPTION;
         app.mPackage = "b";
-        app.mTimeStamp = 1;
+        app.mTimeStamp = now - 20;
         events.add(app);
         Event app1 = new Event();
         app1.mEventType = Event.MAX_EVENT_TYPE;
         app1.mPackage = "com.foo.bar";
-        app1.mTimeStamp = 10;
+        app1.mTimeStamp = now - 10;
         events.add(app1);
         UsageEvents usageEvents = getUsageEvents(
                 new String[] {"b", "com.foo.bar"}, events);
@@ -320,12 +323,12 @@ public class RecentNotifyingAppsPreferenceControllerTest {
         Event app10 = new Event();
         app10.mEventType = Event.NOTIFICATION_INTERRUPTION;
         app10.mPackage = "a";
-        app10.mTimeStamp = 2;
+        app10.mTimeStamp = now - 18;
         events10.add(app10);
         Event app10a = new Event();
         app10a.mEventType = Event.NOTIFICATION_INTERRUPTION;
         app10a.mPackage = "a";
-        app10a.mTimeStamp = 20;
+        app10a.mTimeStamp = now;
         events10.add(app10a);
         UsageEvents usageEvents10 = getUsageEvents(
                 new String[] {"a"}, events10);
@@ -338,12 +341,12 @@ public class RecentNotifyingAppsPreferenceControllerTest {
         boolean foundPkg0 = false;
         boolean foundPkg10 = false;
         for (NotifyingApp notifyingApp : mController.mApps) {
-            if (notifyingApp.getLastNotified() == 20
+            if (notifyingApp.getLastNotified() == now
                     && notifyingApp.getPackage().equals("a")
                     && notifyingApp.getUserId() == 10) {
                 foundPkg10 = true;
             }
-            if (notifyingApp.getLastNotified() == 1
+            if (notifyingApp.getLastNotified() == now - 20
                     && notifyingApp.getPackage().equals("b")
                     && notifyingApp.getUserId() == 0) {
                 foundPkg0 = true;
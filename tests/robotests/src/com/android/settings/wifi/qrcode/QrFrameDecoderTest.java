@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi.qrcode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import com.google.zxing.WriterException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class QrFrameDecoderTest {
+
+    private static final int PREVIEW_WIDTH = 640;
+    private static final int PREVIEW_HEIGHT = 480;
+    private static final int QR_CODE_SIZE = 320;
+    private static final Rect FRAME = new Rect(100, 80, 100 + QR_CODE_SIZE, 80 + QR_CODE_SIZE);
+
+    private QrFrameDecoder mDecoder;
+
+    @Before
+    public void setUp() {
+        mDecoder = new QrFrameDecoder();
+    }
+
+    @Test
+    public void decode_qrCodeInsideFrame_shouldReturnQrCode() throws WriterException {
+        mDecoder.setFrame(createPreviewFrame("http://www.google.com", FRAME), PREVIEW_WIDTH,
+                PREVIEW_HEIGHT, FRAME);
+
+        assertThat(mDecoder.decode()).isEqualTo("http://www.google.com");
+    }
+
+    @Test
+    public void decode_qrCodeOutsideFrame_shouldReturnNull() throws WriterException {
+        final Rect otherFrame = new Rect(0, 0, QR_CODE_SIZE / 2, QR_CODE_SIZE / 2);
+
+        mDecoder.setFrame(createPreviewFrame("http://www.google.com", FRAME), PREVIEW_WIDTH,
+                PREVIEW_HEIGHT, otherFrame);
+
+        assertThat(mDecoder.decode()).isNull();
+    }
+
+    @Test
+    public void decode_nextFrame_shouldReturnNextQrCode() throws WriterException {
+        mDecoder.setFrame(createPreviewFrame("first", FRAME), PREVIEW_WIDTH, PREVIEW_HEIGHT,
+                FRAME);
+        mDecoder.decode();
+
+        mDecoder.setFrame(createPreviewFrame("second", FRAME), PREVIEW_WIDTH, PREVIEW_HEIGHT,
+                FRAME);
+
+        assertThat(mDecoder.decode()).isEqualTo("second");
+    }
+
+    @Test
+    public void decode_noFrame_shouldReturnNull() {
+        assertThat(mDecoder.decode()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setFrame_frameOutsidePreview_shouldThrow() {
+        mDecoder.setFrame(new byte[PREVIEW_WIDTH * PREVIEW_HEIGHT * 3 / 2], PREVIEW_WIDTH,
+                PREVIEW_HEIGHT, new Rect(PREVIEW_WIDTH - 10, 0, PREVIEW_WIDTH + 10, 20));
+    }
+
+    /** Returns an NV21 preview frame showing {@code contents} inside {@code frame}. */
+    private static byte[] createPreviewFrame(String contents, Rect frame)
+            throws WriterException {
+        final byte[] yuvData = new byte[PREVIEW_WIDTH * PREVIEW_HEIGHT * 3 / 2];
+        Arrays.fill(yuvData, (byte) 0x80);
+        final Bitmap qrCode = QrCodeGenerator.encodeQrCode(contents, frame.width());
+        for (int y = 0; y < frame.height(); y++) {
+            for (int x = 0; x < frame.width(); x++) {
+                yuvData[(frame.top + y) * PREVIEW_WIDTH + frame.left + x] =
+                        (byte) (qrCode.getPixel(x, y) & 0xff);
+            }
+        }
+        qrCode.recycle();
+        return yuvData;
+    }
+}
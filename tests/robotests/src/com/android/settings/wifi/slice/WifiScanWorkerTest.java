@@ -61,6 +61,7 @@ import org.robolectric.annotation.Config;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.shadows.ShadowNetworkInfo;
+import org.robolectric.util.ReflectionHelpers;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {
@@ -103,8 +104,8 @@ public class WifiScanWorkerTest {
 
     @Test
     public void AccessPointList_sameState_shouldBeTheSame() {
-        final AccessPoint ap1 = createAccessPoint(DetailedState.CONNECTED);
-        final AccessPoint ap2 = createAccessPoint(DetailedState.CONNECTED);
+        final WifiSliceItem ap1 = createWifiSliceItem(DetailedState.CONNECTED);
+        final WifiSliceItem ap2 = createWifiSliceItem(DetailedState.CONNECTED);
 
         assertThat(mWifiScanWorker.areListsTheSame(Arrays.asList(ap1), Arrays.asList(ap2)))
                 .isTrue();
@@ -112,8 +113,8 @@ public class WifiScanWorkerTest {
 
     @Test
     public void AccessPointList_differentState_shouldBeDifferent() {
-        final AccessPoint ap1 = createAccessPoint(DetailedState.CONNECTING);
-        final AccessPoint ap2 = createAccessPoint(DetailedState.CONNECTED);
+        final WifiSliceItem ap1 = createWifiSliceItem(DetailedState.CONNECTING);
+        final WifiSliceItem ap2 = createWifiSliceItem(DetailedState.CONNECTED);
 
         assertThat(mWifiScanWorker.areListsTheSame(Arrays.asList(ap1), Arrays.asList(ap2)))
                 .isFalse();
@@ -121,15 +122,45 @@ public class WifiScanWorkerTest {
 
     @Test
     public void AccessPointList_differentListLength_shouldBeDifferent() {
-        final AccessPoint ap1 = createAccessPoint(DetailedState.CONNECTED);
-        final AccessPoint ap2 = createAccessPoint(DetailedState.CONNECTED);
-        final List<AccessPoint> list = new ArrayList<>();
+        final WifiSliceItem ap1 = createWifiSliceItem(DetailedState.CONNECTED);
+        final WifiSliceItem ap2 = createWifiSliceItem(DetailedState.CONNECTED);
+        final List<WifiSliceItem> list = new ArrayList<>();
         list.add(ap1);
         list.add(ap2);
 
         assertThat(mWifiScanWorker.areListsTheSame(list, Arrays.asList(ap1))).isFalse();
     }
 
+    @Test
+    public void AccessPointList_compareWithNull_shouldBeDifferent() {
+        final WifiSliceItem ap1 = createWifiSliceItem(DetailedState.CONNECTED);
+
+        assertThat(mWifiScanWorker.areListsTheSame(Arrays.asList(ap1), null)).isFalse();
+    }
+
+    @Test
+    public void saveAccessPointState_displayedAccessPoint_shouldSaveLatestState() {
+        final AccessPoint accessPoint = createReachableAccessPoint("ap");
+        setAccessPoints(accessPoint);
+        mWifiScanWorker.onAccessPointsChanged();
+        final Bundle savedState = new Bundle();
+
+        mWifiScanWorker.saveAccessPointState(accessPoint.getKey(), savedState);
+
+        assertThat(savedState.getString("key_ssid")).isEqualTo("ap");
+    }
+
+    @Test
+    public void saveAccessPointState_accessPointNotDisplayed_shouldSaveNothing() {
+        setAccessPoints(createReachableAccessPoint("ap"));
+        mWifiScanWorker.onAccessPointsChanged();
+        final Bundle savedState = new Bundle();
+
+        mWifiScanWorker.saveAccessPointState("other", savedState);
+
+        assertThat(savedState.isEmpty()).isTrue();
+    }
+
     @Test
     public void NetworkCallback_onCapabilitiesChanged_shouldNotifyChange() {
         final Network network = mConnectivityManager.getActiveNetwork();
@@ -219,8 +250,21 @@ public class WifiScanWorkerTest {
         return new AccessPoint(mContext, savedState);
     }
 
-    private AccessPoint createAccessPoint(DetailedState detailedState) {
-        return createAccessPoint("ap", detailedState);
+    private AccessPoint createReachableAccessPoint(String ssid) {
+        final AccessPoint accessPoint = spy(createAccessPoint(ssid, DetailedState.CONNECTED));
+        doReturn(true).when(accessPoint).isReachable();
+        return accessPoint;
+    }
+
+    private void setAccessPoints(AccessPoint... accessPoints) {
+        final WifiTracker wifiTracker = mock(WifiTracker.class);
+        doReturn(mWifiManager).when(wifiTracker).getManager();
+        doReturn(Arrays.asList(accessPoints)).when(wifiTracker).getAccessPoints();
+        ReflectionHelpers.setField(mWifiScanWorker, "mWifiTracker", wifiTracker);
+    }
+
+    private WifiSliceItem createWifiSliceItem(DetailedState detailedState) {
+        return new WifiSliceItem(createAccessPoint("ap", detailedState));
     }
 
     @Implements(WifiTracker.class)
@@ -151,9 +151,9 @@ public class WifiSliceTest {
     }
 
     private void setWorkerResults(AccessPoint... accessPoints) {
-        final ArrayList<AccessPoint> results = new ArrayList<>();
+        final ArrayList<WifiSliceItem> results = new ArrayList<>();
         for (AccessPoint ap : accessPoints) {
-            results.add(ap);
+            results.add(new WifiSliceItem(ap));
         }
         final SliceBackgroundWorker worker = SliceBackgroundWorker.getInstance(mWifiSlice.getUri());
         doReturn(results).when(worker).getResults();
@@ -66,4 +66,33 @@ public class UiBlockerControllerTest {
         assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS)).isTrue();
         assertThat(mSyncableController.isBlockerFinished()).isTrue();
     }
+
+    @Test
+    public void countDown_notifyEachBlockerWithoutWaitingForOthers() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mSyncableController.start(() -> {}, key -> {
+            if (KEY_1.equals(key)) {
+                latch.countDown();
+            }
+        });
+
+        mSyncableController.countDown(KEY_1);
+
+        assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(mSyncableController.isBlockerFinished(KEY_1)).isTrue();
+        assertThat(mSyncableController.isBlockerFinished(KEY_2)).isFalse();
+        assertThat(mSyncableController.isBlockerFinished()).isFalse();
+    }
+
+    @Test
+    public void start_timeout_finishAllBlockers() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final UiBlockerController controller =
+                new UiBlockerController(Arrays.asList(KEY_1, KEY_2), 100 /* timeout */);
+        controller.start(() -> latch.countDown());
+
+        assertThat(latch.await(TIMEOUT, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(controller.isBlockerFinished()).isTrue();
+        assertThat(controller.isBlockerFinished(KEY_2)).isTrue();
+    }
 }
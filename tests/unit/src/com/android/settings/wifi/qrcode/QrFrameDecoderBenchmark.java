@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi.qrcode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+/**
+ * Measures how many preview frames per second the QR scanner decodes. Frames are 720p NV21
+ * images with a Wi-Fi QR code inside the scanning frame, like the camera preview delivers them.
+ * Results are logged under the "QrFrameDecoderBenchmark" tag.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class QrFrameDecoderBenchmark {
+    private static final String TAG = "QrFrameDecoderBenchmark";
+
+    private static final int PREVIEW_WIDTH = 1280;
+    private static final int PREVIEW_HEIGHT = 720;
+    private static final int FRAME_SIZE = 480;
+    private static final Rect FRAME = new Rect((PREVIEW_WIDTH - FRAME_SIZE) / 2,
+            (PREVIEW_HEIGHT - FRAME_SIZE) / 2, (PREVIEW_WIDTH + FRAME_SIZE) / 2,
+            (PREVIEW_HEIGHT + FRAME_SIZE) / 2);
+    private static final int FRAME_COUNT = 8;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 20;
+
+    private String[] mQrCodes;
+    private byte[][] mPreviewFrames;
+
+    @Before
+    public void setUp() throws WriterException {
+        mQrCodes = new String[FRAME_COUNT];
+        mPreviewFrames = new byte[FRAME_COUNT][];
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            mQrCodes[i] = "WIFI:S:Warehouse-" + i + ";T:WPA;P:password" + i + ";;";
+            mPreviewFrames[i] = createPreviewFrame(mQrCodes[i]);
+        }
+    }
+
+    @Test
+    public void decode_reusedFrameBuffer() {
+        final QrFrameDecoder decoder = new QrFrameDecoder();
+        runBenchmark("reused frame buffer", i -> {
+            decoder.setFrame(mPreviewFrames[i], PREVIEW_WIDTH, PREVIEW_HEIGHT, FRAME);
+            return decoder.decode();
+        });
+    }
+
+    @Test
+    public void decode_newFrameBufferPerFrame() {
+        // How frames were decoded before the frame buffer was reused, as a baseline.
+        final QrFrameDecoder decoder = new QrFrameDecoder();
+        runBenchmark("new frame buffer per frame", i -> {
+            final LuminanceSource image = new QrYuvLuminanceSource(mPreviewFrames[i],
+                    PREVIEW_WIDTH, PREVIEW_HEIGHT).crop(FRAME.left, FRAME.top, FRAME.width(),
+                    FRAME.height());
+            return decoder.decode(new BinaryBitmap(new HybridBinarizer(image)));
+        });
+    }
+
+    private void runBenchmark(String name, FrameDecoder frameDecoder) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            decodeAllFrames(frameDecoder);
+        }
+
+        final long startTime = SystemClock.elapsedRealtimeNanos();
+        for (int round = 0; round < ROUNDS; round++) {
+            decodeAllFrames(frameDecoder);
+        }
+        final long elapsedNanos = SystemClock.elapsedRealtimeNanos() - startTime;
+
+        final int frames = ROUNDS * FRAME_COUNT;
+        Log.i(TAG, name + ": " + frames + " frames, "
+                + (frames * 1_000_000_000L / elapsedNanos) + " frames/s, "
+                + (elapsedNanos / frames / 1000) + " us/frame");
+    }
+
+    private void decodeAllFrames(FrameDecoder frameDecoder) {
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            assertThat(frameDecoder.decode(i)).isEqualTo(mQrCodes[i]);
+        }
+    }
+
+    /** Returns an NV21 preview frame showing {@code contents} inside {@link #FRAME}. */
+    private static byte[] createPreviewFrame(String contents) throws WriterException {
+        final byte[] yuvData = new byte[PREVIEW_WIDTH * PREVIEW_HEIGHT * 3 / 2];
+        Arrays.fill(yuvData, (byte) 0x80);
+        final Bitmap qrCode = QrCodeGenerator.encodeQrCode(contents, FRAME_SIZE);
+        final int[] pixels = new int[FRAME_SIZE * FRAME_SIZE];
+        qrCode.getPixels(pixels, 0, FRAME_SIZE, 0, 0, FRAME_SIZE, FRAME_SIZE);
+        qrCode.recycle();
+        for (int y = 0; y < FRAME_SIZE; y++) {
+            for (int x = 0; x < FRAME_SIZE; x++) {
+                yuvData[(FRAME.top + y) * PREVIEW_WIDTH + FRAME.left + x] =
+                        (byte) (pixels[y * FRAME_SIZE + x] & 0xff);
+            }
+        }
+        return yuvData;
+    }
+
+    private interface FrameDecoder {
+        String decode(int frameIndex);
+    }
+}